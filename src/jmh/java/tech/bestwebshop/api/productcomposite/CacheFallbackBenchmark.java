@@ -0,0 +1,67 @@
+package tech.bestwebshop.api.productcomposite;
+
+import org.openjdk.jmh.annotations.*;
+import tech.bestwebshop.api.productcomposite.cache.CacheProperties;
+import tech.bestwebshop.api.productcomposite.cache.InventoryCache;
+import tech.bestwebshop.api.productcomposite.model.Product;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * The cache paths the handler fallbacks take when a backing service is unavailable: a single product read and a
+ * filtered listing scanned from the cached values.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class CacheFallbackBenchmark {
+
+    @Param({"1000", "10000", "100000", "1000000"})
+    public int catalogSize;
+
+    private InventoryCache cache;
+
+    @Setup
+    public void setUp() {
+        CacheProperties properties = new CacheProperties();
+        properties.getProducts().setMaximumSize(catalogSize);
+        cache = new InventoryCache(properties);
+        List<Product> products = ProductQueries.join(List.of(Catalogs.coreProducts(catalogSize)),
+                Catalogs.categoriesById());
+        cache.products().replaceAll(products.stream()
+                .collect(Collectors.toMap(Product::getId, Function.identity())));
+    }
+
+    @TearDown
+    public void tearDown() {
+        cache.shutdown();
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public Optional<Product> getProductCache() {
+        return cache.products().get(ThreadLocalRandom.current().nextInt(catalogSize));
+    }
+
+    @Benchmark
+    public List<Product> getProductsCacheUnfiltered() {
+        return ProductQueries.filter(cache.products().values(), "", -1e10, 1e10);
+    }
+
+    @Benchmark
+    public List<Product> getProductsCacheByText() {
+        return ProductQueries.filter(cache.products().values(), "Product 42", -1e10, 1e10);
+    }
+
+    @Benchmark
+    public List<Product> getProductsCacheByPrice() {
+        return ProductQueries.filter(cache.products().values(), "", 100, 120);
+    }
+}
@@ -0,0 +1,48 @@
+package tech.bestwebshop.api.productcomposite;
+
+import tech.bestwebshop.api.productcomposite.model.Category;
+import tech.bestwebshop.api.productcomposite.model.CoreProduct;
+
+import java.util.Map;
+import java.util.Random;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Deterministic synthetic catalogs for the benchmarks.
+ */
+final class Catalogs {
+
+    static final int CATEGORY_COUNT = 200;
+
+    private static final String[] WORDS = {"phone", "laptop", "camera", "speaker", "monitor", "keyboard", "mouse",
+            "charger", "cable", "headset", "tablet", "watch", "printer", "router", "drive", "lamp"};
+
+    private Catalogs() {
+    }
+
+    static CoreProduct[] coreProducts(int size) {
+        Random random = new Random(size);
+        CoreProduct[] coreProducts = new CoreProduct[size];
+        for (int id = 0; id < size; id++) {
+            String word = WORDS[random.nextInt(WORDS.length)];
+            coreProducts[id] = new CoreProduct(id, "Product " + id + " " + word,
+                    Math.round(random.nextDouble() * 200_000) / 100.0, random.nextInt(CATEGORY_COUNT),
+                    "A " + WORDS[random.nextInt(WORDS.length)] + " for every " + word + " owner");
+        }
+        return coreProducts;
+    }
+
+    static Category[] categories() {
+        return IntStream.range(0, CATEGORY_COUNT)
+                .mapToObj(id -> new Category(id, "Category " + id))
+                .toArray(Category[]::new);
+    }
+
+    static Map<Integer, Category> categoriesById() {
+        return IntStream.range(0, CATEGORY_COUNT)
+                .mapToObj(id -> new Category(id, "Category " + id))
+                .collect(Collectors.toMap(Category::getId, Function.identity()));
+    }
+}
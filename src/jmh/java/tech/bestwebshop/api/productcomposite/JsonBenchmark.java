@@ -0,0 +1,72 @@
+package tech.bestwebshop.api.productcomposite;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+import tech.bestwebshop.api.productcomposite.model.Category;
+import tech.bestwebshop.api.productcomposite.model.CoreProduct;
+import tech.bestwebshop.api.productcomposite.model.Product;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Jackson cost of the payloads this service reads from product-service and category-service and writes to its
+ * clients.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class JsonBenchmark {
+
+    @Param({"1000", "10000", "100000", "1000000"})
+    public int catalogSize;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private CoreProduct[] coreProducts;
+    private Product[] products;
+    private Category[] categories;
+    private byte[] coreProductsJson;
+    private byte[] productsJson;
+    private byte[] categoriesJson;
+
+    @Setup
+    public void setUp() throws IOException {
+        coreProducts = Catalogs.coreProducts(catalogSize);
+        products = ProductQueries.join(List.of(coreProducts), Catalogs.categoriesById()).toArray(new Product[0]);
+        categories = Catalogs.categories();
+        coreProductsJson = objectMapper.writeValueAsBytes(coreProducts);
+        productsJson = objectMapper.writeValueAsBytes(products);
+        categoriesJson = objectMapper.writeValueAsBytes(categories);
+    }
+
+    @Benchmark
+    public CoreProduct[] readCoreProducts() throws IOException {
+        return objectMapper.readValue(coreProductsJson, CoreProduct[].class);
+    }
+
+    @Benchmark
+    public byte[] writeProducts() throws IOException {
+        return objectMapper.writeValueAsBytes(products);
+    }
+
+    @Benchmark
+    public Product[] readProducts() throws IOException {
+        return objectMapper.readValue(productsJson, Product[].class);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public Category[] readCategories() throws IOException {
+        return objectMapper.readValue(categoriesJson, Category[].class);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public byte[] writeCategories() throws IOException {
+        return objectMapper.writeValueAsBytes(categories);
+    }
+}
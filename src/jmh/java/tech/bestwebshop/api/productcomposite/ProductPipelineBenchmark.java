@@ -0,0 +1,67 @@
+package tech.bestwebshop.api.productcomposite;
+
+import org.openjdk.jmh.annotations.*;
+import tech.bestwebshop.api.productcomposite.index.IndexProperties;
+import tech.bestwebshop.api.productcomposite.index.ProductIndex;
+import tech.bestwebshop.api.productcomposite.model.Category;
+import tech.bestwebshop.api.productcomposite.model.CoreProduct;
+import tech.bestwebshop.api.productcomposite.model.Product;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The in-process part of {@code GET /products}: filtering the core products by text and price and joining them with
+ * their categories, compared with answering the same query from the search index.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class ProductPipelineBenchmark {
+
+    @Param({"1000", "10000", "100000", "1000000"})
+    public int catalogSize;
+
+    /**
+     * An unfiltered listing, a selective text search and a price range.
+     */
+    @Param({"all", "text", "price"})
+    public String query;
+
+    private CoreProduct[] coreProducts;
+    private Map<Integer, Category> categories;
+    private ProductIndex index;
+    private String text;
+    private double minPrice;
+    private double maxPrice;
+
+    @Setup
+    public void setUp() {
+        coreProducts = Catalogs.coreProducts(catalogSize);
+        categories = Catalogs.categoriesById();
+        index = new ProductIndex(new IndexProperties());
+        index.replaceAll(ProductQueries.join(List.of(coreProducts), categories));
+
+        text = query.equals("text") ? "Product 42" : "";
+        minPrice = query.equals("price") ? 100 : -1e10;
+        maxPrice = query.equals("price") ? 120 : 1e10;
+    }
+
+    @Benchmark
+    public List<CoreProduct> filter() {
+        return ProductQueries.filter(coreProducts, text, minPrice, maxPrice);
+    }
+
+    @Benchmark
+    public List<Product> filterAndJoin() {
+        return ProductQueries.join(ProductQueries.filter(coreProducts, text, minPrice, maxPrice), categories);
+    }
+
+    @Benchmark
+    public List<Product> indexSearch() {
+        return index.search(text, minPrice, maxPrice);
+    }
+}
@@ -0,0 +1,111 @@
+package tech.bestwebshop.api.productcomposite;
+
+import com.netflix.hystrix.Hystrix;
+import com.netflix.hystrix.HystrixCommand;
+import com.netflix.hystrix.HystrixCommandGroupKey;
+import com.netflix.hystrix.HystrixCommandKey;
+import com.netflix.hystrix.HystrixCommandProperties;
+import com.netflix.hystrix.HystrixThreadPoolProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpMethod;
+import tech.bestwebshop.api.productcomposite.resilience.DownstreamResilience;
+import tech.bestwebshop.api.productcomposite.resilience.ResilienceProperties;
+
+import java.net.URI;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-call overhead of guarding a downstream call: the {@code @HystrixCommand} setup the handlers used (thread
+ * isolation on a pool of 50, circuit breaker at 20 requests / 50 % errors), the same command with semaphore
+ * isolation, and {@link DownstreamResilience} with and without retries. The guarded call itself does nothing, so the
+ * numbers are pure overhead; run with {@code -t 8} to see the cost under contention.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class ResilienceBenchmark {
+
+    private static final URI PRODUCT_SERVICE = URI.create("http://product-service/products/42");
+    private static final String RESPONSE = "{\"id\":42}";
+
+    private DownstreamResilience resilience;
+    private HystrixCommand.Setter threadIsolated;
+    private HystrixCommand.Setter semaphoreIsolated;
+
+    @Setup
+    public void setUp() {
+        // as in application.yml; logback's default would print both libraries' per-call DEBUG events
+        ((ch.qos.logback.classic.Logger) LoggerFactory.getLogger(org.slf4j.Logger.ROOT_LOGGER_NAME))
+                .setLevel(ch.qos.logback.classic.Level.WARN);
+        resilience = new DownstreamResilience(new ResilienceProperties(), new SimpleMeterRegistry());
+        threadIsolated = setter("thread", HystrixCommandProperties.ExecutionIsolationStrategy.THREAD);
+        semaphoreIsolated = setter("semaphore", HystrixCommandProperties.ExecutionIsolationStrategy.SEMAPHORE);
+    }
+
+    @TearDown
+    public void tearDown() {
+        Hystrix.reset();
+    }
+
+    @Benchmark
+    public String unguarded() {
+        return call();
+    }
+
+    @Benchmark
+    public String hystrixThreadIsolated() {
+        return new GuardedCall(threadIsolated).execute();
+    }
+
+    @Benchmark
+    public String hystrixSemaphoreIsolated() {
+        return new GuardedCall(semaphoreIsolated).execute();
+    }
+
+    @Benchmark
+    public String resilienceWithRetry() {
+        return resilience.execute(PRODUCT_SERVICE, HttpMethod.GET, ResilienceBenchmark::call);
+    }
+
+    @Benchmark
+    public String resilienceWithoutRetry() {
+        return resilience.execute(PRODUCT_SERVICE, HttpMethod.PUT, ResilienceBenchmark::call);
+    }
+
+    private static String call() {
+        return RESPONSE;
+    }
+
+    private static HystrixCommand.Setter setter(String key,
+                                                HystrixCommandProperties.ExecutionIsolationStrategy isolation) {
+        return HystrixCommand.Setter.withGroupKey(HystrixCommandGroupKey.Factory.asKey("InventoryController"))
+                .andCommandKey(HystrixCommandKey.Factory.asKey(key))
+                .andCommandPropertiesDefaults(HystrixCommandProperties.Setter()
+                        .withExecutionIsolationStrategy(isolation)
+                        .withExecutionIsolationSemaphoreMaxConcurrentRequests(10000)
+                        .withCircuitBreakerRequestVolumeThreshold(20)
+                        .withCircuitBreakerErrorThresholdPercentage(50))
+                .andThreadPoolPropertiesDefaults(HystrixThreadPoolProperties.Setter().withCoreSize(50));
+    }
+
+    private static final class GuardedCall extends HystrixCommand<String> {
+
+        private GuardedCall(Setter setter) {
+            super(setter);
+        }
+
+        @Override
+        protected String run() {
+            return call();
+        }
+
+        @Override
+        protected String getFallback() {
+            return RESPONSE;
+        }
+    }
+}
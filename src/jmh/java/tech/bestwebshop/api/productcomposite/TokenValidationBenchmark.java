@@ -0,0 +1,144 @@
+package tech.bestwebshop.api.productcomposite;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.security.oauth2.resource.ResourceServerProperties;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.security.jwt.JwtHelper;
+import org.springframework.security.jwt.crypto.sign.RsaSigner;
+import org.springframework.security.oauth2.provider.OAuth2Authentication;
+import org.springframework.security.oauth2.provider.authentication.OAuth2AuthenticationDetails;
+import org.springframework.security.oauth2.provider.token.DefaultTokenServices;
+import org.springframework.security.oauth2.provider.token.store.jwk.JwkTokenStore;
+import tech.bestwebshop.api.productcomposite.security.BearerHeaders;
+import tech.bestwebshop.api.productcomposite.security.CachingTokenServices;
+import tech.bestwebshop.api.productcomposite.security.JwkKeySet;
+import tech.bestwebshop.api.productcomposite.security.TokenProperties;
+
+import java.io.File;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.file.Files;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.interfaces.RSAPrivateKey;
+import java.security.interfaces.RSAPublicKey;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-request cost of authenticating a bearer token and of forwarding it: the token services of the OAuth2
+ * auto-configuration, {@link CachingTokenServices} without and with its cache, and the headers built for every
+ * downstream call versus once per request. The key set is read from a local file, so no network is involved.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class TokenValidationBenchmark {
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+    private static final String KEY_ID = "benchmark";
+
+    private String token;
+    private File keySet;
+    private DefaultTokenServices autoConfigured;
+    private CachingTokenServices uncached;
+    private CachingTokenServices cached;
+    private OAuth2Authentication authentication;
+
+    @Setup
+    public void setUp() throws Exception {
+        ((ch.qos.logback.classic.Logger) LoggerFactory.getLogger(org.slf4j.Logger.ROOT_LOGGER_NAME))
+                .setLevel(ch.qos.logback.classic.Level.WARN);
+        KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+        generator.initialize(2048);
+        KeyPair keyPair = generator.generateKeyPair();
+        keySet = File.createTempFile("jwks", ".json");
+        Files.write(keySet.toPath(), OBJECT_MAPPER.writeValueAsBytes(Map.of("keys", List.of(jwk(keyPair)))));
+        token = token(keyPair);
+
+        autoConfigured = new DefaultTokenServices();
+        autoConfigured.setTokenStore(new JwkTokenStore(keySet.toURI().toString()));
+        TokenProperties noCache = new TokenProperties();
+        noCache.getCache().setEnabled(false);
+        uncached = tokenServices(noCache);
+        cached = tokenServices(new TokenProperties());
+        authentication = cached.loadAuthentication(token);
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.setAttribute(OAuth2AuthenticationDetails.ACCESS_TOKEN_VALUE, token);
+        authentication.setDetails(new OAuth2AuthenticationDetails(request));
+    }
+
+    @TearDown
+    public void tearDown() {
+        keySet.delete();
+    }
+
+    @Benchmark
+    public OAuth2Authentication autoConfiguredTokenServices() {
+        return autoConfigured.loadAuthentication(token);
+    }
+
+    @Benchmark
+    public OAuth2Authentication verifiedOnce() {
+        return uncached.loadAuthentication(token);
+    }
+
+    @Benchmark
+    public OAuth2Authentication cachedToken() {
+        return cached.loadAuthentication(token);
+    }
+
+    @Benchmark
+    public HttpHeaders headersPerCall() {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setBearerAuth(((OAuth2AuthenticationDetails) authentication.getDetails()).getTokenValue());
+        return headers;
+    }
+
+    @Benchmark
+    public HttpHeaders headersPerRequest() {
+        return BearerHeaders.of(authentication);
+    }
+
+    private CachingTokenServices tokenServices(TokenProperties properties) {
+        ResourceServerProperties resourceServer = new ResourceServerProperties();
+        resourceServer.getJwk().setKeySetUri(keySet.toURI().toString());
+        return new CachingTokenServices(new JwkKeySet(resourceServer, properties, new SimpleMeterRegistry()),
+                properties);
+    }
+
+    private static String token(KeyPair keyPair) throws IOException {
+        Map<String, Object> claims = Map.of(
+                "user_name", "benchmark",
+                "client_id", "webshop-webclient",
+                "scope", List.of("all.read", "all.write"),
+                "authorities", List.of("ROLE_USER", "ROLE_ADMIN"),
+                "exp", Instant.now().plusSeconds(3600).getEpochSecond());
+        return JwtHelper.encode(OBJECT_MAPPER.writeValueAsString(claims),
+                new RsaSigner((RSAPrivateKey) keyPair.getPrivate()), Map.of("kid", KEY_ID)).getEncoded();
+    }
+
+    private static Map<String, String> jwk(KeyPair keyPair) {
+        RSAPublicKey publicKey = (RSAPublicKey) keyPair.getPublic();
+        return Map.of("kty", "RSA", "kid", KEY_ID, "alg", "RS256", "use", "sig",
+                "n", base64Url(publicKey.getModulus()), "e", base64Url(publicKey.getPublicExponent()));
+    }
+
+    private static String base64Url(BigInteger value) {
+        byte[] bytes = value.toByteArray();
+        if (bytes.length > 1 && bytes[0] == 0) {
+            bytes = Arrays.copyOfRange(bytes, 1, bytes.length);
+        }
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+    }
+}
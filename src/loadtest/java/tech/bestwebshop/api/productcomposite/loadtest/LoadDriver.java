@@ -0,0 +1,303 @@
+package tech.bestwebshop.api.productcomposite.loadtest;
+
+import org.HdrHistogram.Histogram;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import tech.bestwebshop.api.productcomposite.InventoryServiceApplication;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.Function;
+import java.util.regex.Pattern;
+
+/**
+ * Load test of every {@code InventoryController} endpoint against embedded stubs of product-service,
+ * category-service and the authorization server. No Eureka, database or real token issuer is needed.
+ * <p>
+ * Each endpoint is driven by {@code loadtest.concurrency} closed-loop clients for {@code loadtest.duration}, after a
+ * warm-up of {@code loadtest.warmup}. This happens once with healthy backends, with the circuits closed, and once
+ * with every backend call failing, so that the circuits are open and the fallbacks answer. Throughput, status codes
+ * and latency percentiles are printed per endpoint. If {@code loadtest.histogram-dir} is set, the full latency
+ * distributions are written there as {@code .hgrm} files, together with the service's Prometheus metrics after
+ * each phase.
+ * <p>
+ * Other settings: {@code loadtest.catalog-size}, {@code loadtest.latency}, {@code loadtest.jitter} and
+ * {@code loadtest.failure-rate} of the stubs in the closed phase, {@code loadtest.endpoints} (a regex on the
+ * endpoint names) and {@code loadtest.phases}. All of them can be given as system properties or as
+ * {@code --loadtest.*=} program arguments; other program arguments are passed on to the application, e.g.
+ * {@code --spring.profiles.active=virtual-threads}.
+ */
+public final class LoadDriver {
+
+    private static final int CATEGORY_COUNT = 100;
+    private static final String NDJSON = "application/x-ndjson";
+    private static final long HIGHEST_LATENCY_MICROS = TimeUnit.MINUTES.toMicros(5);
+
+    private final HttpClient client = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(Duration.ofSeconds(5))
+            .build();
+    private final int catalogSize = Integer.getInteger("loadtest.catalog-size", 1000);
+    private final int concurrency = Integer.getInteger("loadtest.concurrency", 8);
+    private final Duration duration = duration("loadtest.duration", "10s");
+    private final Duration warmup = duration("loadtest.warmup", "3s");
+    private final Pattern endpointFilter = Pattern.compile(System.getProperty("loadtest.endpoints", ".*"));
+    private final String histogramDir = System.getProperty("loadtest.histogram-dir");
+    private final Map<String, String> etags = new ConcurrentHashMap<>();
+
+    private String baseUrl;
+    private String token;
+
+    private LoadDriver() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        List<String> applicationArgs = new ArrayList<>();
+        for (String arg : args) {
+            if (arg.startsWith("--loadtest.") && arg.contains("=")) {
+                System.setProperty(arg.substring(2, arg.indexOf('=')), arg.substring(arg.indexOf('=') + 1));
+            } else {
+                applicationArgs.add(arg);
+            }
+        }
+        new LoadDriver().run(applicationArgs.toArray(new String[0]));
+        // the Ribbon and Eureka timers would otherwise keep the JVM alive
+        System.exit(0);
+    }
+
+    private void run(String[] args) throws Exception {
+        try (StubIssuer issuer = new StubIssuer();
+             StubService products = new StubService("products");
+             StubService categories = new StubService("categories")) {
+            seed(products, categories);
+            List<String> arguments = new ArrayList<>(List.of(
+                    "--server.port=0",
+                    "--eureka.client.enabled=false",
+                    "--ribbon.eureka.enabled=false",
+                    "--product-service.ribbon.listOfServers=localhost:" + products.port(),
+                    "--category-service.ribbon.listOfServers=localhost:" + categories.port(),
+                    "--security.oauth2.resource.jwk.key-set-uri=" + issuer.keySetUri(),
+                    "--security.oauth2.client.access-token-uri=" + issuer.tokenUri(),
+                    "--logging.level.root=WARN",
+                    "--logging.level.org.springframework.security=WARN"));
+            arguments.addAll(Arrays.asList(args));
+            ConfigurableApplicationContext application = new SpringApplicationBuilder(InventoryServiceApplication.class)
+                    .run(arguments.toArray(new String[0]));
+            try {
+                baseUrl = "http://localhost:" + application.getEnvironment().getProperty("local.server.port");
+                token = issuer.token(Duration.ofHours(12), "USER", "ADMIN");
+                for (String phase : System.getProperty("loadtest.phases", "closed,open").split(",")) {
+                    double failureRate = phase.equals("open") ? 1.0
+                            : Double.parseDouble(System.getProperty("loadtest.failure-rate", "0"));
+                    for (StubService stub : List.of(products, categories)) {
+                        stub.setLatency(duration("loadtest.latency", "5ms"));
+                        stub.setJitter(duration("loadtest.jitter", "5ms"));
+                        stub.setFailureRate(failureRate);
+                    }
+                    runPhase(phase);
+                }
+            } finally {
+                application.close();
+            }
+        }
+    }
+
+    private void runPhase(String phase) throws Exception {
+        System.out.printf("%nPhase '%s': %d clients, %s per endpoint%n", phase, concurrency, duration);
+        System.out.printf("%-34s %9s %9s  %-24s %8s %8s %8s %8s %8s%n", "endpoint", "requests", "req/s",
+                "statuses", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms");
+        for (Map.Entry<String, Function<Random, HttpRequest>> endpoint : endpoints().entrySet()) {
+            if (!endpointFilter.matcher(endpoint.getKey()).matches()) {
+                continue;
+            }
+            drive(endpoint.getValue(), warmup);
+            Result result = drive(endpoint.getValue(), duration);
+            Histogram latencies = result.latencies;
+            System.out.printf("%-34s %9d %9.0f  %-24s %8.2f %8.2f %8.2f %8.2f %8.2f%n", endpoint.getKey(),
+                    latencies.getTotalCount(), latencies.getTotalCount() / (double) duration.toMillis() * 1000,
+                    result.statuses, millis(latencies.getValueAtPercentile(50)),
+                    millis(latencies.getValueAtPercentile(90)), millis(latencies.getValueAtPercentile(99)),
+                    millis(latencies.getValueAtPercentile(99.9)), millis(latencies.getMaxValue()));
+            if (histogramDir != null) {
+                writeHistogram(phase, endpoint.getKey(), latencies);
+            }
+        }
+        if (histogramDir != null) {
+            // the service's own view: handler and downstream timers, cache gauges, fallback counters
+            client.send(get("/actuator/prometheus", "text/plain"), HttpResponse.BodyHandlers.ofFile(
+                    Files.createDirectories(Path.of(histogramDir)).resolve(phase + "-prometheus.txt")));
+        }
+    }
+
+    private Result drive(Function<Random, HttpRequest> requests, Duration runtime) throws Exception {
+        ExecutorService clients = Executors.newFixedThreadPool(concurrency);
+        long deadline = System.nanoTime() + runtime.toNanos();
+        List<Future<Result>> futures = new ArrayList<>();
+        for (int i = 0; i < concurrency; i++) {
+            int seed = i;
+            futures.add(clients.submit(() -> {
+                Random random = new Random(seed);
+                Result result = new Result();
+                while (System.nanoTime() < deadline) {
+                    HttpRequest request = requests.apply(random);
+                    long start = System.nanoTime();
+                    int status;
+                    try {
+                        status = client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+                    } catch (IOException ex) {
+                        status = -1;
+                    }
+                    result.record(status, (System.nanoTime() - start) / 1000);
+                }
+                return result;
+            }));
+        }
+        Result total = new Result();
+        for (Future<Result> future : futures) {
+            total.add(future.get());
+        }
+        clients.shutdown();
+        return total;
+    }
+
+    /**
+     * Request factories for every endpoint, in the order of the controller.
+     */
+    private Map<String, Function<Random, HttpRequest>> endpoints() {
+        Map<String, Function<Random, HttpRequest>> endpoints = new LinkedHashMap<>();
+        endpoints.put("GET /products/{id}", random -> get("/products/" + productId(random), null));
+        endpoints.put("GET /products", random -> get("/products", null));
+        endpoints.put("GET /products (If-None-Match)", random -> revalidate("/products"));
+        endpoints.put("GET /products?text&minPrice", random ->
+                get("/products?text=phone&minPrice=" + random.nextInt(1000), null));
+        endpoints.put("GET /products?page&size&sort", random ->
+                get("/products?page=" + random.nextInt(10) + "&size=20&sort=price,desc", null));
+        endpoints.put("GET /products (ndjson)", random -> get("/products", NDJSON));
+        endpoints.put("POST /products", random -> send("POST", "/products", String.format(
+                "{\"name\":\"Load %d\",\"price\":%d.5,\"category\":\"Category %d\",\"details\":\"Load test\"}",
+                random.nextInt(), 1 + random.nextInt(1000), random.nextInt(CATEGORY_COUNT))));
+        endpoints.put("PUT /products/{id}", random -> {
+            int id = productId(random);
+            int categoryId = id % CATEGORY_COUNT;
+            return send("PUT", "/products/" + id, String.format("{\"id\":%d,\"name\":\"Product %d\",\"price\":%d.5,"
+                            + "\"category\":{\"id\":%d,\"name\":\"Category %d\"},\"details\":\"Updated\"}",
+                    id, id, 1 + random.nextInt(1000), categoryId, categoryId));
+        });
+        endpoints.put("DELETE /products/{id}", random -> send("DELETE", "/products/" + productId(random), null));
+        endpoints.put("POST /categories", random ->
+                send("POST", "/categories", "{\"name\":\"Category " + random.nextInt(CATEGORY_COUNT * 2) + "\"}"));
+        endpoints.put("GET /categories", random -> get("/categories", null));
+        endpoints.put("GET /categories (ndjson)", random -> get("/categories", NDJSON));
+        endpoints.put("GET /categories/{id}", random -> get("/categories/" + random.nextInt(CATEGORY_COUNT), null));
+        endpoints.put("PUT /categories/{id}", random -> {
+            int id = random.nextInt(CATEGORY_COUNT);
+            return send("PUT", "/categories/" + id, "{\"id\":" + id + ",\"name\":\"Category " + id + "\"}");
+        });
+        endpoints.put("DELETE /categories/{id}", random ->
+                send("DELETE", "/categories/" + random.nextInt(CATEGORY_COUNT), null));
+        return endpoints;
+    }
+
+    private int productId(Random random) {
+        return random.nextInt(catalogSize);
+    }
+
+    private HttpRequest get(String path, String accept) {
+        HttpRequest.Builder builder = request(path).GET();
+        builder.header("Accept", accept == null ? "application/json" : accept);
+        return builder.build();
+    }
+
+    /**
+     * A GET carrying the ETag the service returned for {@code path} the first time it was asked, as a polling
+     * client or CDN would send it.
+     */
+    private HttpRequest revalidate(String path) {
+        String etag = etags.computeIfAbsent(path, key -> {
+            try {
+                return client.send(get(key, null), HttpResponse.BodyHandlers.discarding()).headers()
+                        .firstValue("ETag").orElse("\"none\"");
+            } catch (IOException ex) {
+                return "\"none\"";
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException(ex);
+            }
+        });
+        return request(path).GET().header("Accept", "application/json").header("If-None-Match", etag).build();
+    }
+
+    private HttpRequest send(String method, String path, String json) {
+        HttpRequest.BodyPublisher body = json == null ? HttpRequest.BodyPublishers.noBody()
+                : HttpRequest.BodyPublishers.ofString(json);
+        return request(path).header("Content-Type", "application/json").method(method, body).build();
+    }
+
+    private HttpRequest.Builder request(String path) {
+        return HttpRequest.newBuilder(URI.create(baseUrl + path))
+                .timeout(Duration.ofSeconds(30))
+                .header("Authorization", "Bearer " + token);
+    }
+
+    private void seed(StubService products, StubService categories) {
+        Random random = new Random(catalogSize);
+        String[] words = {"phone", "laptop", "camera", "speaker", "monitor", "keyboard", "charger", "headset"};
+        for (int id = 0; id < CATEGORY_COUNT; id++) {
+            categories.add(new HashMap<>(Map.of("id", id, "name", "Category " + id)));
+        }
+        for (int id = 0; id < catalogSize; id++) {
+            String word = words[random.nextInt(words.length)];
+            products.add(new HashMap<>(Map.of("id", id, "name", "Product " + id + " " + word,
+                    "price", Math.round(random.nextDouble() * 100_000) / 100.0, "categoryID", id % CATEGORY_COUNT,
+                    "details", "A " + word + " for the load test")));
+        }
+    }
+
+    private void writeHistogram(String phase, String endpoint, Histogram latencies) throws IOException {
+        Path directory = Files.createDirectories(Path.of(histogramDir));
+        String name = phase + "-" + endpoint.replaceAll("[^A-Za-z0-9]+", "-").replaceAll("-$", "") + ".hgrm";
+        try (PrintStream out = new PrintStream(Files.newOutputStream(directory.resolve(name)))) {
+            latencies.outputPercentileDistribution(out, 1000.0);
+        }
+    }
+
+    private static double millis(long micros) {
+        return micros / 1000.0;
+    }
+
+    private static Duration duration(String property, String defaultValue) {
+        String value = System.getProperty(property, defaultValue).trim().toLowerCase(Locale.ROOT);
+        if (value.endsWith("ms")) {
+            return Duration.ofMillis(Long.parseLong(value.substring(0, value.length() - 2)));
+        }
+        if (value.endsWith("s")) {
+            return Duration.ofSeconds(Long.parseLong(value.substring(0, value.length() - 1)));
+        }
+        return Duration.parse(value.toUpperCase(Locale.ROOT));
+    }
+
+    private static final class Result {
+
+        private final Histogram latencies = new Histogram(HIGHEST_LATENCY_MICROS, 3);
+        private final SortedMap<Integer, Integer> statuses = new TreeMap<>();
+
+        void record(int status, long micros) {
+            latencies.recordValue(Math.min(Math.max(micros, 1), HIGHEST_LATENCY_MICROS));
+            statuses.merge(status, 1, Integer::sum);
+        }
+
+        void add(Result other) {
+            latencies.add(other.latencies);
+            other.statuses.forEach((status, count) -> statuses.merge(status, count, Integer::sum));
+        }
+    }
+}
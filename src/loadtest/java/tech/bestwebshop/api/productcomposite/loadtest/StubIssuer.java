@@ -0,0 +1,122 @@
+package tech.bestwebshop.api.productcomposite.loadtest;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpServer;
+import org.springframework.security.jwt.JwtHelper;
+import org.springframework.security.jwt.crypto.sign.RsaSigner;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigInteger;
+import java.net.InetSocketAddress;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.NoSuchAlgorithmException;
+import java.security.interfaces.RSAPrivateKey;
+import java.security.interfaces.RSAPublicKey;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Embedded stand-in for the authorization server. It publishes an RSA key at {@code /oauth2/jwks.json} and mints
+ * RS256 access tokens in the format the inventory service expects, so tokens are verified exactly as in production.
+ * {@code /oauth/token} answers client-credentials requests, e.g. those of the catalog refresher, without checking
+ * the client.
+ */
+class StubIssuer implements AutoCloseable {
+
+    static final String JWKS_PATH = "/oauth2/jwks.json";
+    static final String TOKEN_PATH = "/oauth/token";
+
+    private static final String KEY_ID = "loadtest";
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final KeyPair keyPair;
+    private final HttpServer server;
+
+    StubIssuer() throws IOException {
+        try {
+            KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+            generator.initialize(2048);
+            keyPair = generator.generateKeyPair();
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException(ex);
+        }
+        byte[] jwks = objectMapper.writeValueAsBytes(Map.of("keys", List.of(jwk())));
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 64);
+        server.createContext(JWKS_PATH, exchange -> {
+            exchange.getResponseHeaders().set("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, jwks.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(jwks);
+            }
+        });
+        server.createContext(TOKEN_PATH, exchange -> {
+            byte[] body = objectMapper.writeValueAsBytes(Map.of(
+                    "access_token", token(Duration.ofHours(1), "SERVICE"),
+                    "token_type", "bearer",
+                    "expires_in", Duration.ofHours(1).getSeconds()));
+            exchange.getRequestBody().readAllBytes();
+            exchange.getResponseHeaders().set("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        server.start();
+    }
+
+    String keySetUri() {
+        return "http://localhost:" + server.getAddress().getPort() + JWKS_PATH;
+    }
+
+    String tokenUri() {
+        return "http://localhost:" + server.getAddress().getPort() + TOKEN_PATH;
+    }
+
+    String token(Duration validity, String... roles) {
+        Map<String, Object> claims = Map.of(
+                "user_name", "loadtest",
+                "client_id", "webshop-webclient",
+                "scope", List.of("all.read", "all.write"),
+                "authorities", Arrays.stream(roles).map(role -> "ROLE_" + role).toArray(),
+                "jti", UUID.randomUUID().toString(),
+                "exp", Instant.now().plus(validity).getEpochSecond());
+        try {
+            return JwtHelper.encode(objectMapper.writeValueAsString(claims),
+                    new RsaSigner((RSAPrivateKey) keyPair.getPrivate()), Map.of("kid", KEY_ID)).getEncoded();
+        } catch (JsonProcessingException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+    }
+
+    private Map<String, String> jwk() {
+        RSAPublicKey publicKey = (RSAPublicKey) keyPair.getPublic();
+        return Map.of(
+                "kty", "RSA",
+                "kid", KEY_ID,
+                "alg", "RS256",
+                "use", "sig",
+                "n", base64Url(publicKey.getModulus()),
+                "e", base64Url(publicKey.getPublicExponent()));
+    }
+
+    private static String base64Url(BigInteger value) {
+        byte[] bytes = value.toByteArray();
+        if (bytes.length > 1 && bytes[0] == 0) {
+            bytes = Arrays.copyOfRange(bytes, 1, bytes.length);
+        }
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+    }
+}
@@ -0,0 +1,157 @@
+package tech.bestwebshop.api.productcomposite.loadtest;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Embedded stand-in for product-service or category-service: one REST collection under {@code /<resource>} with
+ * list, get, create, update and delete.
+ * <p>
+ * Writes are answered as the real service would but not applied, so every phase of a load test sees the same
+ * catalog. Every response is delayed by {@link #setLatency latency} plus up to {@link #setJitter jitter}, and a
+ * {@link #setFailureRate fraction} of requests is answered with 503.
+ */
+class StubService implements AutoCloseable {
+
+    private static final TypeReference<Map<String, Object>> ITEM = new TypeReference<>() {
+    };
+
+    private final String resource;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final Map<Integer, Map<String, Object>> items = new ConcurrentSkipListMap<>();
+    private final AtomicInteger nextId = new AtomicInteger();
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+    private final HttpServer server;
+
+    private volatile Duration latency = Duration.ZERO;
+    private volatile Duration jitter = Duration.ZERO;
+    private volatile double failureRate;
+
+    StubService(String resource) throws IOException {
+        this.resource = resource;
+        this.server = HttpServer.create(new InetSocketAddress("localhost", 0), 1024);
+        server.createContext("/" + resource, this::handle);
+        server.setExecutor(executor);
+        server.start();
+    }
+
+    int port() {
+        return server.getAddress().getPort();
+    }
+
+    void add(Map<String, Object> item) {
+        int id = (Integer) item.get("id");
+        items.put(id, item);
+        nextId.accumulateAndGet(id + 1, Math::max);
+    }
+
+    void setLatency(Duration latency) {
+        this.latency = latency;
+    }
+
+    void setJitter(Duration jitter) {
+        this.jitter = jitter;
+    }
+
+    void setFailureRate(double failureRate) {
+        this.failureRate = failureRate;
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            delay();
+            if (ThreadLocalRandom.current().nextDouble() < failureRate) {
+                exchange.sendResponseHeaders(503, -1);
+                return;
+            }
+            String path = exchange.getRequestURI().getPath();
+            String rest = path.substring(resource.length() + 1);
+            Integer id = rest.length() > 1 ? parseId(rest.substring(1)) : null;
+            switch (exchange.getRequestMethod()) {
+                case "GET":
+                    if (id == null) {
+                        respond(exchange, 200, new ArrayList<>(items.values()));
+                    } else {
+                        respondItem(exchange, items.get(id));
+                    }
+                    break;
+                case "POST":
+                    Map<String, Object> created = objectMapper.readValue(exchange.getRequestBody(), ITEM);
+                    created.put("id", nextId.getAndIncrement());
+                    respond(exchange, 200, created);
+                    break;
+                case "PUT":
+                    Map<String, Object> updated = objectMapper.readValue(exchange.getRequestBody(), ITEM);
+                    updated.put("id", id);
+                    respondItem(exchange, id == null || !items.containsKey(id) ? null : updated);
+                    break;
+                case "DELETE":
+                    respondItem(exchange, id == null ? null : items.get(id));
+                    break;
+                default:
+                    exchange.sendResponseHeaders(405, -1);
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private void delay() {
+        long nanos = latency.toNanos();
+        if (!jitter.isZero()) {
+            nanos += ThreadLocalRandom.current().nextLong(jitter.toNanos());
+        }
+        if (nanos > 0) {
+            try {
+                Thread.sleep(nanos / 1_000_000, (int) (nanos % 1_000_000));
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private void respondItem(HttpExchange exchange, Map<String, Object> item) throws IOException {
+        if (item == null) {
+            exchange.sendResponseHeaders(404, -1);
+        } else {
+            respond(exchange, 200, item);
+        }
+    }
+
+    private void respond(HttpExchange exchange, int status, Object body) throws IOException {
+        byte[] json = objectMapper.writeValueAsBytes(body);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, json.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(json);
+        }
+    }
+
+    private static Integer parseId(String value) {
+        try {
+            return Integer.valueOf(value);
+        } catch (NumberFormatException ex) {
+            return null;
+        }
+    }
+}
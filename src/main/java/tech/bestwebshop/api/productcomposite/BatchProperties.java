@@ -0,0 +1,24 @@
+package tech.bestwebshop.api.productcomposite;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Data
+@ConfigurationProperties(prefix = "inventory.batch")
+public class BatchProperties {
+
+    /**
+     * Maximum number of product writes in flight for one batch request.
+     */
+    private int concurrency = 16;
+    /**
+     * Workers shared by all batch requests and category cascades. They are kept apart from the fan-out threads, so
+     * that concurrent imports queue behind each other instead of taking the threads product listings need.
+     */
+    private int threads = 16;
+    private int maxItems = 10_000;
+    /**
+     * Number of processed products between two progress log lines of a category cascade.
+     */
+    private int progressInterval = 500;
+}
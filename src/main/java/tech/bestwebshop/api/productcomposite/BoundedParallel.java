@@ -0,0 +1,36 @@
+package tech.bestwebshop.api.productcomposite;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntConsumer;
+
+/**
+ * Runs a task for every index of a range with at most {@code concurrency} of them in flight, without queueing one
+ * executor task per index.
+ */
+final class BoundedParallel {
+
+    private BoundedParallel() {
+    }
+
+    /**
+     * Blocks until {@code task} has run for every index in {@code [0, count)}. Exceptions thrown by the task are
+     * not caught here; tasks are expected to record their own failures.
+     */
+    static void forEach(int count, int concurrency, Executor executor, IntConsumer task) {
+        AtomicInteger next = new AtomicInteger();
+        int workers = Math.max(1, Math.min(concurrency, count));
+        List<CompletableFuture<Void>> running = new ArrayList<>(workers);
+        for (int worker = 0; worker < workers; worker++) {
+            running.add(CompletableFuture.runAsync(() -> {
+                for (int index = next.getAndIncrement(); index < count; index = next.getAndIncrement()) {
+                    task.accept(index);
+                }
+            }, executor));
+        }
+        CompletableFuture.allOf(running.toArray(new CompletableFuture[0])).join();
+    }
+}
@@ -0,0 +1,155 @@
+package tech.bestwebshop.api.productcomposite;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpMethod;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.RestTemplate;
+import tech.bestwebshop.api.productcomposite.cache.InventoryCache;
+import tech.bestwebshop.api.productcomposite.client.HedgedRequests;
+import tech.bestwebshop.api.productcomposite.client.SingleFlight;
+import tech.bestwebshop.api.productcomposite.model.Category;
+import tech.bestwebshop.api.productcomposite.model.Product;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.logging.Logger;
+
+/**
+ * Resolves the categories referenced by a set of products.
+ * <p>
+ * Hits are served from the local category cache. Misses are fetched from category-service: one
+ * {@code GET /categories} if there are more than {@code category-list-threshold} of them, otherwise one
+ * {@code GET /categories/{id}} per miss spread over at most {@code category-concurrency} parallel requests.
+ * Whatever has not arrived after {@code category-timeout} is left out of the result.
+ */
+@Component
+public class CategoryResolver {
+
+    private static final Logger LOGGER = Logger.getLogger(CategoryResolver.class.getSimpleName());
+
+    private static final String CATEGORY_SERVICE_URL = "http://category-service/categories";
+
+    private final RestTemplate restTemplate;
+    private final SingleFlight singleFlight;
+    private final HedgedRequests hedgedRequests;
+    private final InventoryCache cache;
+    private final ExecutorService fanOutExecutor;
+    private final FanOutProperties properties;
+
+    public CategoryResolver(RestTemplate restTemplate, SingleFlight singleFlight, HedgedRequests hedgedRequests,
+                            InventoryCache cache, @Qualifier("fanOutExecutor") ExecutorService fanOutExecutor,
+                            FanOutProperties properties) {
+        this.restTemplate = restTemplate;
+        this.singleFlight = singleFlight;
+        this.hedgedRequests = hedgedRequests;
+        this.cache = cache;
+        this.fanOutExecutor = fanOutExecutor;
+        this.properties = properties;
+    }
+
+    public Map<Integer, Category> resolve(Collection<Integer> categoryIds, HttpEntity<?> request) {
+        Map<Integer, Category> resolved = new ConcurrentHashMap<>();
+        List<Integer> misses = new ArrayList<>();
+        for (Integer categoryId : new HashSet<>(categoryIds)) {
+            Optional<Category> category = cache.categories().get(categoryId);
+            if (category.isPresent()) {
+                resolved.put(categoryId, category.get());
+            } else {
+                misses.add(categoryId);
+            }
+        }
+        if (misses.isEmpty()) {
+            return resolved;
+        }
+
+        List<CompletableFuture<Void>> fetches = new ArrayList<>();
+        if (misses.size() > properties.getCategoryListThreshold()) {
+            fetches.add(CompletableFuture.runAsync(() -> fetchAll(misses, request, resolved), fanOutExecutor));
+        } else {
+            int partitions = Math.min(properties.getCategoryConcurrency(), misses.size());
+            for (int partition = 0; partition < partitions; partition++) {
+                List<Integer> slice = new ArrayList<>();
+                for (int i = partition; i < misses.size(); i += partitions) {
+                    slice.add(misses.get(i));
+                }
+                fetches.add(CompletableFuture.runAsync(() -> fetchEach(slice, request, resolved), fanOutExecutor));
+            }
+        }
+
+        try {
+            CompletableFuture.allOf(fetches.toArray(new CompletableFuture[0]))
+                    .get(properties.getCategoryTimeout().toMillis(), TimeUnit.MILLISECONDS);
+        } catch (ExecutionException ex) {
+            LOGGER.warning("[CategoryResolver#resolve] Fetching categories failed: " + ex.getCause().getMessage());
+        } catch (TimeoutException ex) {
+            LOGGER.warning("[CategoryResolver#resolve] Fetching categories timed out, returning partial result.");
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        // copy so that late arrivals do not change the result under the caller
+        return new HashMap<>(resolved);
+    }
+
+    /**
+     * Stand-in for a category that could not be resolved in time. It carries the id the product refers to and an
+     * empty name, since {@link tech.bestwebshop.api.productcomposite.model.Product} does not accept a null category.
+     * It is told apart from a real category by its type, not its name, so a category that really has an empty name
+     * still counts as resolved.
+     */
+    public static Category unresolved(int categoryId) {
+        return new UnresolvedCategory(categoryId);
+    }
+
+    /**
+     * Whether the product carries its real category rather than an {@link #unresolved} stand-in. Products with a
+     * stand-in are answered, but neither cached nor indexed, so the next read resolves their category again.
+     */
+    public static boolean isResolved(Product product) {
+        return !(product.getCategory() instanceof UnresolvedCategory);
+    }
+
+    private void fetchAll(Collection<Integer> wanted, HttpEntity<?> request, Map<Integer, Category> resolved) {
+        Category[] categories = singleFlight.execute("GET " + CATEGORY_SERVICE_URL,
+                () -> hedgedRequests.execute(CATEGORY_SERVICE_URL, () -> restTemplate.exchange(
+                        CATEGORY_SERVICE_URL, HttpMethod.GET, request, Category[].class))).getBody();
+        if (categories == null) {
+            return;
+        }
+        Set<Integer> wantedIds = new HashSet<>(wanted);
+        for (Category category : categories) {
+            cache.categories().put(category.getId(), category);
+            if (wantedIds.contains(category.getId())) {
+                resolved.put(category.getId(), category);
+            }
+        }
+    }
+
+    private void fetchEach(List<Integer> categoryIds, HttpEntity<?> request, Map<Integer, Category> resolved) {
+        for (Integer categoryId : categoryIds) {
+            try {
+                String url = CATEGORY_SERVICE_URL + "/" + categoryId;
+                Category category = singleFlight.execute("GET " + url, () -> hedgedRequests.execute(url,
+                        () -> restTemplate.exchange(url, HttpMethod.GET, request, Category.class))).getBody();
+                if (category != null) {
+                    cache.categories().put(category.getId(), category);
+                    resolved.put(category.getId(), category);
+                }
+            } catch (HttpClientErrorException.NotFound ex) {
+                LOGGER.fine("[CategoryResolver#fetchEach] Category " + categoryId + " does not exist.");
+            }
+        }
+    }
+
+    /**
+     * Marker type of the {@link #unresolved} stand-ins. It adds no state, so a stand-in still equals and serializes
+     * like a plain category with the same id and name.
+     */
+    private static final class UnresolvedCategory extends Category {
+
+        private UnresolvedCategory(int categoryId) {
+            super(categoryId, "");
+        }
+    }
+}
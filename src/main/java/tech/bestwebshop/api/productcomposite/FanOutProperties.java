@@ -0,0 +1,34 @@
+package tech.bestwebshop.api.productcomposite;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Settings for the concurrent downstream calls made by one request, e.g. the product and category legs of
+ * {@code GET /products}.
+ */
+@Data
+@ConfigurationProperties(prefix = "inventory.fan-out")
+public class FanOutProperties {
+
+    private int threads = 32;
+    /**
+     * Deadline of the product leg. Has to cover every attempt the resilience policy of product-service allows, see
+     * {@code ResilienceProperties.Policy#longestGet()}: a leg given up on does not interrupt its call.
+     */
+    private Duration productTimeout = Duration.ofMillis(900);
+    /**
+     * Deadline of the category leg, likewise for category-service.
+     */
+    private Duration categoryTimeout = Duration.ofMillis(500);
+    /**
+     * Maximum number of parallel {@code GET /categories/{id}} requests made to resolve one listing.
+     */
+    private int categoryConcurrency = 4;
+    /**
+     * Above this many unknown categories the whole category list is fetched with a single request instead.
+     */
+    private int categoryListThreshold = 16;
+}
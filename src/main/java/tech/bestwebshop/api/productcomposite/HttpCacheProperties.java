@@ -0,0 +1,23 @@
+package tech.bestwebshop.api.productcomposite;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "inventory.http-cache")
+public class HttpCacheProperties {
+
+    /**
+     * How long clients may reuse a GET response before revalidating it with {@code If-None-Match}. Zero means
+     * every use is revalidated.
+     */
+    private Duration maxAge = Duration.ZERO;
+    /**
+     * Mark responses {@code public} so shared caches such as the CDN may store them. All users with read access
+     * get the same catalog, so this is safe as long as the CDN forwards the {@code Authorization} header on
+     * revalidation.
+     */
+    private boolean shared = false;
+}
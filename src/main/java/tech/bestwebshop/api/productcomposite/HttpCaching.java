@@ -0,0 +1,95 @@
+package tech.bestwebshop.api.productcomposite;
+
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import tech.bestwebshop.api.productcomposite.cache.ContentDigest;
+import tech.bestwebshop.api.productcomposite.cache.InventoryCache;
+import tech.bestwebshop.api.productcomposite.model.Category;
+import tech.bestwebshop.api.productcomposite.model.Product;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Adds a strong {@code ETag} and {@code Cache-Control} to successful GET responses.
+ * <p>
+ * The tag is a SHA-256 digest, truncated to 128 bits, over the {@link ContentDigest} of each returned product or
+ * category and the unpaged total, so it is the same on every replica and changes whenever an entity in the response
+ * does. The entity digests are the ones {@link InventoryCache} computed when the entities were cached, so a response
+ * only hashes 16 bytes per entity; entities the cache does not hold are digested on the spot. Spring MVC and
+ * WebFlux compare the tag with {@code If-None-Match} before the body is written and answer
+ * {@code 304 Not Modified} without serializing anything.
+ */
+@Component
+@EnableConfigurationProperties(HttpCacheProperties.class)
+public class HttpCaching {
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private final CacheControl cacheControl;
+    private final InventoryCache cache;
+
+    public HttpCaching(HttpCacheProperties properties, InventoryCache cache) {
+        CacheControl control = properties.getMaxAge().isZero()
+                ? CacheControl.noCache()
+                : CacheControl.maxAge(properties.getMaxAge().toMillis(), TimeUnit.MILLISECONDS).mustRevalidate();
+        this.cacheControl = properties.isShared() ? control.cachePublic() : control.cachePrivate();
+        this.cache = cache;
+    }
+
+    public <T> ResponseEntity<T> tagged(ResponseEntity<T> response) {
+        T body = response.getBody();
+        int status = response.getStatusCodeValue();
+        if (body == null || status < 200 || status >= 300) {
+            return response;
+        }
+        HttpHeaders headers = new HttpHeaders();
+        headers.addAll(response.getHeaders());
+        headers.setETag("\"" + digest(status, response.getHeaders(), body) + "\"");
+        headers.setCacheControl(cacheControl);
+        return ResponseEntity.status(response.getStatusCode()).headers(headers).body(body);
+    }
+
+    private String digest(int status, HttpHeaders headers, Object body) {
+        MessageDigest digest = ContentDigest.sha256();
+        if (body instanceof Collection) {
+            Collection<?> elements = (Collection<?>) body;
+            digest.update(ByteBuffer.allocate(2 * Integer.BYTES).putInt(status).putInt(elements.size()).array());
+            // the unpaged total belongs to the representation of a page as well
+            String total = String.valueOf(headers.getFirst(Paging.TOTAL_COUNT_HEADER));
+            digest.update(total.getBytes(StandardCharsets.UTF_8));
+            for (Object element : elements) {
+                digest.update(entityDigest(element));
+            }
+        } else {
+            digest.update(ByteBuffer.allocate(Integer.BYTES).putInt(status).array());
+            digest.update(entityDigest(body));
+        }
+        byte[] hash = digest.digest();
+        char[] tag = new char[ContentDigest.LENGTH * 2];
+        for (int i = 0; i < ContentDigest.LENGTH; i++) {
+            tag[2 * i] = HEX[(hash[i] >> 4) & 0xf];
+            tag[2 * i + 1] = HEX[hash[i] & 0xf];
+        }
+        return new String(tag);
+    }
+
+    private byte[] entityDigest(Object entity) {
+        byte[] stored = null;
+        if (entity instanceof Product) {
+            Product product = (Product) entity;
+            stored = cache.products().digest(product.getId(), product);
+        } else if (entity instanceof Category) {
+            Category category = (Category) entity;
+            stored = cache.categories().digest(category.getId(), category);
+        }
+        // e.g. a freshly written entity that was not cached, or one the cache has replaced since
+        return stored != null ? stored : ContentDigest.of(entity);
+    }
+}
@@ -1,72 +1,139 @@
 package tech.bestwebshop.api.productcomposite;
 
-import com.netflix.hystrix.contrib.javanica.annotation.HystrixCommand;
-import com.netflix.hystrix.contrib.javanica.annotation.HystrixProperty;
-import org.springframework.cloud.client.circuitbreaker.EnableCircuitBreaker;
-import org.springframework.cloud.netflix.hystrix.EnableHystrix;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.http.*;
 import org.springframework.lang.Nullable;
 import org.springframework.security.oauth2.common.exceptions.OAuth2Exception;
 import org.springframework.security.oauth2.provider.OAuth2Authentication;
-import org.springframework.security.oauth2.provider.authentication.OAuth2AuthenticationDetails;
 import org.springframework.stereotype.Component;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.client.HttpClientErrorException;
 import org.springframework.web.client.RestTemplate;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import tech.bestwebshop.api.productcomposite.cache.CachedValue;
+import tech.bestwebshop.api.productcomposite.cache.InventoryCache;
+import tech.bestwebshop.api.productcomposite.client.HedgedRequests;
+import tech.bestwebshop.api.productcomposite.client.SingleFlight;
+import tech.bestwebshop.api.productcomposite.events.CatalogEvents;
+import tech.bestwebshop.api.productcomposite.index.CategoryNameIndex;
+import tech.bestwebshop.api.productcomposite.index.ProductIndex;
+import tech.bestwebshop.api.productcomposite.logging.LogValues;
+import tech.bestwebshop.api.productcomposite.logging.SampledLogger;
 import tech.bestwebshop.api.productcomposite.model.*;
+import tech.bestwebshop.api.productcomposite.resilience.StreamConsumerException;
+import tech.bestwebshop.api.productcomposite.resilience.StreamingResponseExtractor;
+import tech.bestwebshop.api.productcomposite.security.BearerHeaders;
 
 import javax.annotation.security.RolesAllowed;
 import javax.validation.Valid;
+import java.io.IOException;
+import java.io.OutputStream;
 import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
 import java.util.logging.Logger;
 import java.util.stream.Collectors;
 
 import static java.util.Objects.requireNonNull;
 
 @Component
-@EnableHystrix
 @RestController
-@EnableCircuitBreaker
 @CrossOrigin(origins = "*", allowedHeaders = "*")
+@ConditionalOnProperty(prefix = "inventory.reactive", name = "enabled", havingValue = "false", matchIfMissing = true)
 public class InventoryController {
 
     private static final Logger LOGGER = Logger.getLogger(InventoryController.class.getSimpleName());
-
-    private final Map<Integer, Product> productCache = new LinkedHashMap<>();
-    private final Map<Integer, Category> categoryCache = new LinkedHashMap<>();
+    // one in a hundred requests of the hot read endpoints is logged at INFO, the rest at FINE
+    private static final SampledLogger HOT_LOGGER = new SampledLogger(LOGGER, 100);
 
     private static final String PRODUCT_SERVICE_URL = "http://product-service/products";
     private static final String CATEGORY_SERVICE_URL = "http://category-service/categories";
     private static final String MAX_PRICE = "1e10";
     private static final String MIN_PRICE = "-1e10";
+    private static final String NDJSON = "application/x-ndjson";
+    static final String UNDELETED_PRODUCTS_HEADER = "X-Undeleted-Products";
 
     private final RestTemplate restTemplate;
-
-    public InventoryController(RestTemplate restTemplate) {
+    private final SingleFlight singleFlight;
+    private final HedgedRequests hedgedRequests;
+    private final ObjectMapper objectMapper;
+    private final InventoryCache cache;
+    private final ProductIndex productIndex;
+    private final CategoryNameIndex categoryNames;
+    private final CategoryResolver categoryResolver;
+    private final CatalogEvents catalogEvents;
+    private final HttpCaching httpCaching;
+    private final ExecutorService fanOutExecutor;
+    private final ExecutorService writeExecutor;
+    private final FanOutProperties fanOutProperties;
+    private final BatchProperties batchProperties;
+    private final MeterRegistry meterRegistry;
+
+    public InventoryController(RestTemplate restTemplate, SingleFlight singleFlight, HedgedRequests hedgedRequests,
+                               ObjectMapper objectMapper, InventoryCache cache,
+                               ProductIndex productIndex, CategoryNameIndex categoryNames,
+                               CategoryResolver categoryResolver, CatalogEvents catalogEvents,
+                               HttpCaching httpCaching, @Qualifier("fanOutExecutor") ExecutorService fanOutExecutor,
+                               @Qualifier("writeExecutor") ExecutorService writeExecutor,
+                               FanOutProperties fanOutProperties, BatchProperties batchProperties,
+                               MeterRegistry meterRegistry) {
         this.restTemplate = restTemplate;
+        this.singleFlight = singleFlight;
+        this.hedgedRequests = hedgedRequests;
+        this.objectMapper = objectMapper;
+        this.cache = cache;
+        this.productIndex = productIndex;
+        this.categoryNames = categoryNames;
+        this.categoryResolver = categoryResolver;
+        this.catalogEvents = catalogEvents;
+        this.httpCaching = httpCaching;
+        this.fanOutExecutor = fanOutExecutor;
+        this.writeExecutor = writeExecutor;
+        this.fanOutProperties = fanOutProperties;
+        this.batchProperties = batchProperties;
+        this.meterRegistry = meterRegistry;
     }
 
-    @HystrixCommand(fallbackMethod = "getProductCache", commandProperties = {
-            @HystrixProperty(name = "circuitBreaker.requestVolumeThreshold", value = "2")
-    })
     @GetMapping("/products/{id}")
     @RolesAllowed({"USER"})
     public ResponseEntity<Product> getProduct(@PathVariable(value = "id") Long productId, OAuth2Authentication auth) {
-        LOGGER.info("Get Product with ID " + productId);
+        return withFallback(() -> {
+            HOT_LOGGER.info(() -> "[InventoryService#getProduct] Get product with ID " + productId);
+            if (cache.isProductReadThrough()) {
+                Optional<CachedValue<Product>> cached = cache.products().lookup(productId.intValue());
+                if (cached.isPresent()) {
+                    if (cached.get().isStale()) {
+                        cache.products().refresh(productId.intValue(), () -> {
+                            Optional<Product> product = refreshedBody(loadProduct(productId, auth));
+                            if (product.isEmpty()) {
+                                productIndex.remove(productId.intValue());
+                            }
+                            return product;
+                        }, cache.refreshExecutor());
+                    }
+                    return httpCaching.tagged(ResponseEntity.ok(cached.get().getValue()));
+                }
+            }
+            return httpCaching.tagged(loadProduct(productId, auth));
+        }, () -> getProductCache(productId, auth));
+    }
+
+    private ResponseEntity<Product> loadProduct(Long productId, OAuth2Authentication auth) {
         ResponseEntity<CoreProduct> coreProductEntity;
         try {
-            coreProductEntity = restTemplate.exchange(PRODUCT_SERVICE_URL + "/" + productId,
-                    HttpMethod.GET, buildHttpEntity(auth), CoreProduct.class);
+            coreProductEntity = get(PRODUCT_SERVICE_URL + "/" + productId, auth, CoreProduct.class);
         } catch (HttpClientErrorException.NotFound ex) {
             return ResponseEntity.notFound().build();
         } catch (OAuth2Exception ex) {
             return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
-        } catch (Exception ex) {
-            LOGGER.warning("[InventoryService#getProduct] Exception: " + ex.getMessage() + "\n" + ex.getStackTrace());
-            return ResponseEntity.notFound().build();
         }
+        // other failures, refused calls included, propagate to the handler's fallback
         CoreProduct tmpCoreProduct = requireNonNull(coreProductEntity.getBody());
-        System.out.println("[InventoryService#getProduct] Got Core Product " + tmpCoreProduct);
 
         ResponseEntity<Category> coreCategoryEntity = getCategory(tmpCoreProduct.getCategoryID(), auth);
         HttpStatus categoryStatus = coreCategoryEntity.getStatusCode();
@@ -85,284 +152,492 @@ public class InventoryController {
         }*/
 
         Category tmpCategory = requireNonNull(coreCategoryEntity.getBody());
-        LOGGER.info("[InventoryService#getProduct] Got Category " + tmpCategory);
 
         Product tmpProduct = new Product(tmpCoreProduct.getId(), tmpCoreProduct.getName(), tmpCoreProduct.getPrice(),
                 tmpCategory, tmpCoreProduct.getDetails());
-        productCache.putIfAbsent(tmpProduct.getId(), tmpProduct);
-        LOGGER.info("[InventoryService#getProduct] Return Product " + tmpProduct);
+        cache.products().put(tmpProduct.getId(), tmpProduct);
+        productIndex.put(tmpProduct);
+        LOGGER.fine(() -> "[InventoryService#getProduct] Return product " + tmpProduct.getId());
         return ResponseEntity.ok(tmpProduct);
     }
 
-    @SuppressWarnings("unused")
-    public ResponseEntity<Product> getProductCache(Long productId, OAuth2Authentication auth) {
-        LOGGER.info("[InventoryService#getProductCache] Get product with ID " + productId);
-        Product product = productCache.get(productId);
+    private ResponseEntity<Product> getProductCache(Long productId, OAuth2Authentication auth) {
+        countFallback("getProduct");
+        LOGGER.fine(() -> "[InventoryService#getProductCache] Get product with ID " + productId);
+        Product product = cache.products().get(productId.intValue()).orElse(null);
         if (product == null) {
             return ResponseEntity.notFound().build();
         }
-        LOGGER.info("[InventoryService#getProductCache] Return product " + product);
-        return ResponseEntity.ok(product);
+        return httpCaching.tagged(ResponseEntity.ok(product));
     }
 
-    @HystrixCommand(fallbackMethod = "getProductsCache", commandProperties = {
-            @HystrixProperty(name = "circuitBreaker.requestVolumeThreshold", value = "2"),
-    })
     @GetMapping("/products")
     @RolesAllowed({"USER"})
     public ResponseEntity<List<Product>> getProducts(@RequestParam(defaultValue = "") String text,
                                                      @RequestParam(defaultValue = MIN_PRICE) Double minPrice,
                                                      @RequestParam(defaultValue = MAX_PRICE) Double maxPrice,
+                                                     @RequestParam(required = false) Integer page,
+                                                     @RequestParam(required = false) Integer size,
+                                                     @RequestParam(required = false) String sort,
                                                      OAuth2Authentication auth) {
-        LOGGER.info("Get products");
-        ResponseEntity<CoreProduct[]> coreProductsEntity;
+        return withFallback(() -> {
+            HOT_LOGGER.info(() -> "[InventoryService#getProducts] Get products, text=" + LogValues.quote(text)
+                    + " minPrice=" + minPrice + " maxPrice=" + maxPrice);
+            Comparator<Product> order;
+            try {
+                order = Paging.productOrder(sort, size);
+            } catch (IllegalArgumentException ex) {
+                return ResponseEntity.badRequest().build();
+            }
+            if (!Paging.isValid(page, size)) {
+                return ResponseEntity.badRequest().build();
+            }
+            return httpCaching.tagged(Paging.paginate(findProducts(text, minPrice, maxPrice, auth), page, size, order));
+        }, () -> getProductsCache(text, minPrice, maxPrice, page, size, sort, auth));
+    }
 
+    private ResponseEntity<List<Product>> findProducts(String text, Double minPrice, Double maxPrice,
+                                                       OAuth2Authentication auth) {
+        if (productIndex.isServable()) {
+            List<Product> products = productIndex.search(text, minPrice, maxPrice);
+            LOGGER.fine(() -> "[InventoryService#getProducts] Return " + products.size() + " indexed products.");
+            return ResponseEntity.ok(products);
+        }
+        CompletableFuture<ResponseEntity<CoreProduct[]>> coreProductsLeg = CompletableFuture.supplyAsync(() ->
+                get(PRODUCT_SERVICE_URL, auth, CoreProduct[].class), fanOutExecutor);
+        if (cache.categories().size() == 0) {
+            // cold cache: load the category list while the products are on their way, so that resolving their
+            // categories below hits the cache or joins the same call; a failure here is retried by the resolver
+            CompletableFuture.supplyAsync(() -> loadCategories(auth), fanOutExecutor)
+                    .whenComplete(this::categoryWarmUpDone);
+        }
+
+        ResponseEntity<CoreProduct[]> coreProductsEntity;
         try {
-            coreProductsEntity = restTemplate.exchange(PRODUCT_SERVICE_URL, HttpMethod.GET, buildHttpEntity(auth),
-                    CoreProduct[].class);
-        } catch (OAuth2Exception e){
-            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
-        } catch (Exception ex) {
-            LOGGER.warning("[InventoryService#getProduct] Exception: " + ex.getMessage() + "\n" + ex.getStackTrace());
-            return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
+            coreProductsEntity = coreProductsLeg.get(fanOutProperties.getProductTimeout().toMillis(),
+                    TimeUnit.MILLISECONDS);
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof OAuth2Exception) {
+                return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+            }
+            if (ex.getCause() instanceof HttpClientErrorException.NotFound) {
+                return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
+            }
+            // failed, refused or shed calls: let the fallback serve the cached listing
+            throw rethrow(ex.getCause());
+        } catch (TimeoutException ex) {
+            coreProductsLeg.cancel(true);
+            // let the fallback serve the cached listing
+            throw new IllegalStateException("product-service did not answer within "
+                    + fanOutProperties.getProductTimeout().toMillis() + " ms");
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(ex);
         }
 
-        List<CoreProduct> coreProducts = Arrays.stream(requireNonNull(coreProductsEntity.getBody()))
-                .filter(product -> (product.getName().contains(text) || product.getDetails().contains(text))
-                        && product.getPrice() <= maxPrice
-                        && product.getPrice() >= minPrice)
-                .collect(Collectors.toList());
+        List<CoreProduct> coreProducts = ProductQueries.filter(requireNonNull(coreProductsEntity.getBody()), text,
+                minPrice, maxPrice);
+
+        LOGGER.fine(() -> "[InventoryService#getProducts] Found " + coreProducts.size() + " core products.");
+
+        // only the categories actually referenced are resolved, mostly from the local cache
+        Map<Integer, Category> categoryCoreMap = categoryResolver.resolve(coreProducts.stream()
+                .map(CoreProduct::getCategoryID)
+                .collect(Collectors.toSet()), buildHttpEntity(auth));
+
+        List<Product> products = ProductQueries.join(coreProducts, categoryCoreMap);
+
+        // products whose category did not resolve in time are answered, but not remembered with a stand-in
+        List<Product> resolved = products.stream().filter(CategoryResolver::isResolved).collect(Collectors.toList());
+        if (isUnfiltered(text, minPrice, maxPrice) && resolved.size() == products.size()) {
+            // only an unfiltered listing is a complete picture of the catalog
+            cache.products().replaceAll(products.stream()
+                    .collect(Collectors.toMap(Product::getId, product -> product, (a, b) -> b)));
+            productIndex.replaceAll(products);
+        } else {
+            resolved.forEach(product -> {
+                cache.products().put(product.getId(), product);
+                productIndex.put(product);
+            });
+        }
+        LOGGER.fine(() -> "[InventoryService#getProducts] Return " + products.size() + " products.");
+        return ResponseEntity.ok(products);
+    }
 
-        LOGGER.info("[InventoryService#getProducts] Found " + coreProducts.size() + " core products.");
+    /**
+     * Nobody waits for the cold-cache category warm-up, so its failures are logged and counted here as
+     * {@code inventory.warm-up.failures}.
+     */
+    private void categoryWarmUpDone(@Nullable ResponseEntity<List<Category>> categories, @Nullable Throwable ex) {
+        if (ex == null && categories != null && wasCallSuccessful(categories)) {
+            return;
+        }
+        meterRegistry.counter("inventory.warm-up.failures", "cache", "categories").increment();
+        Throwable cause = ex instanceof CompletionException && ex.getCause() != null ? ex.getCause() : ex;
+        LOGGER.warning("[InventoryService#getProducts] Warming up the category cache failed: "
+                + (cause != null ? cause.getMessage() : "category-service answered " + categories.getStatusCode()));
+    }
 
-        ResponseEntity<List<Category>> coreCategoriesEntity = getCategories(auth);
-        List<Category> categories = requireNonNull(coreCategoriesEntity.getBody());
-        Map<Integer, Category> categoryCoreMap = categories.stream()
-                .collect(Collectors.toMap(Category::getId, category -> category, (a, b) -> b));
+    /**
+     * Waits for a concurrently loaded category list. If it fails or takes too long the cached categories are used,
+     * so the product listing is still answered, possibly with some categories missing.
+     */
+    private List<Category> awaitCategories(CompletableFuture<ResponseEntity<List<Category>>> categoriesLeg) {
+        try {
+            ResponseEntity<List<Category>> categoriesEntity = categoriesLeg.get(
+                    fanOutProperties.getCategoryTimeout().toMillis(), TimeUnit.MILLISECONDS);
+            if (wasCallSuccessful(categoriesEntity) && categoriesEntity.getBody() != null) {
+                return categoriesEntity.getBody();
+            }
+            LOGGER.warning("[InventoryService#getProducts] Category leg returned " + categoriesEntity.getStatusCode()
+                    + ", using cached categories.");
+        } catch (ExecutionException ex) {
+            LOGGER.warning("[InventoryService#getProducts] Category leg failed, using cached categories: "
+                    + ex.getCause().getMessage());
+        } catch (TimeoutException ex) {
+            categoriesLeg.cancel(true);
+            LOGGER.warning("[InventoryService#getProducts] Category leg timed out, using cached categories.");
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(ex);
+        }
+        return cache.categories().values();
+    }
 
-        List<Product> products = coreProducts.stream()
-                .map((CoreProduct coreProduct) -> {
-                    Category coreCategory = categoryCoreMap.get(coreProduct.getCategoryID());
-                    return new Product(coreProduct.getId(), coreProduct.getName(), coreProduct.getPrice(), coreCategory,
-                            coreProduct.getDetails());
-                })
-                .collect(Collectors.toList());
+    private ResponseEntity<List<Product>> getProductsCache(String text, Double minPrice, Double maxPrice, Integer page,
+                                                           Integer size, String sort, OAuth2Authentication auth) {
+        countFallback("getProducts");
+        LOGGER.fine("[InventoryService#getProductsCache] Get cached products.");
+        Comparator<Product> order;
+        try {
+            order = Paging.productOrder(sort, size);
+        } catch (IllegalArgumentException ex) {
+            return ResponseEntity.badRequest().build();
+        }
+        return httpCaching.tagged(Paging.paginate(findCachedProducts(text, minPrice, maxPrice), page, size, order));
+    }
 
-        productCache.clear();
-        products.forEach(product -> productCache.put(product.getId(), product));
-        LOGGER.info("[InventoryService#getProducts] Return " + products.size() + " products.");
+    private ResponseEntity<List<Product>> findCachedProducts(String text, Double minPrice, Double maxPrice) {
+        if (productIndex.isComplete()) {
+            List<Product> products = productIndex.search(text, minPrice, maxPrice);
+            LOGGER.fine(() -> "[InventoryService#getProducts] Return " + products.size() + " indexed products.");
+            return ResponseEntity.ok(products);
+        }
+        List<Product> products = ProductQueries.filter(cache.products().values(), text, minPrice, maxPrice);
+        LOGGER.fine(() -> "[InventoryService#getProducts] Return " + products.size() + " products.");
         return ResponseEntity.ok(products);
     }
 
-    @SuppressWarnings("unused")
-    public ResponseEntity<List<Product>> getProductsCache(String text, Double minPrice, Double maxPrice, OAuth2Authentication auth) {
-        LOGGER.info("[InventoryService#getProductsCache] Get cached products.");
-        List<Product> products = productCache.values()
-                .stream()
-                .filter(product -> (product.getName().contains(text) || product.getDetails().contains(text))
-                        && product.getPrice() <= maxPrice
-                        && product.getPrice() >= minPrice)
-                .collect(Collectors.toList());
-        LOGGER.info("[InventoryService#getProducts] Return " + products.size() + " products.");
-        return ResponseEntity.ok(products);
+    /**
+     * NDJSON variant of {@link #getProducts}. Core products are read from product-service one at a time and written
+     * to the response as soon as they are composed, so memory use does not grow with the catalog. Sorting is not
+     * supported in this mode, pages follow product-service's order, and there is no cache fallback once the
+     * response has started.
+     */
+    @GetMapping(value = "/products", produces = NDJSON)
+    @RolesAllowed({"USER"})
+    public ResponseEntity<StreamingResponseBody> streamProducts(@RequestParam(defaultValue = "") String text,
+                                                                @RequestParam(defaultValue = MIN_PRICE) Double minPrice,
+                                                                @RequestParam(defaultValue = MAX_PRICE) Double maxPrice,
+                                                                @RequestParam(required = false) Integer page,
+                                                                @RequestParam(required = false) Integer size,
+                                                                OAuth2Authentication auth) {
+        if (!Paging.isValid(page, size)) {
+            return ResponseEntity.badRequest().build();
+        }
+        CompletableFuture<ResponseEntity<List<Category>>> categoriesLeg = CompletableFuture.supplyAsync(() ->
+                loadCategories(auth), fanOutExecutor);
+        long skip = size == null || page == null ? 0 : (long) page * size;
+        long limit = size == null ? Long.MAX_VALUE : size;
+
+        StreamingResponseBody body = outputStream -> {
+            Map<Integer, Category> categoryCoreMap = awaitCategories(categoriesLeg).stream()
+                    .collect(Collectors.toMap(Category::getId, category -> category, (a, b) -> b));
+            long[] matched = {0};
+            readArray(PRODUCT_SERVICE_URL, auth, CoreProduct.class, coreProduct -> {
+                if ((coreProduct.getName().contains(text) || coreProduct.getDetails().contains(text))
+                        && coreProduct.getPrice() <= maxPrice
+                        && coreProduct.getPrice() >= minPrice
+                        && matched[0]++ >= skip) {
+                    Product product = new Product(coreProduct.getId(), coreProduct.getName(), coreProduct.getPrice(),
+                            categoryCoreMap.getOrDefault(coreProduct.getCategoryID(),
+                                    CategoryResolver.unresolved(coreProduct.getCategoryID())),
+                            coreProduct.getDetails());
+                    writeLine(outputStream, product);
+                }
+                return matched[0] - skip < limit;
+            });
+        };
+        return ResponseEntity.ok().contentType(MediaType.parseMediaType(NDJSON)).body(body);
     }
 
-    @HystrixCommand(fallbackMethod = "newProductCache", commandProperties = {
-            @HystrixProperty(name = "circuitBreaker.requestVolumeThreshold", value = "2")
-    })
     @PostMapping("/products")
     @RolesAllowed({"ADMIN"})
     public ResponseEntity<Product> newProduct(@RequestBody @Valid ProductDTO productDTO, OAuth2Authentication auth) {
-        ResponseEntity<Category> categoryResponseEntity = getOrCreateCategory(productDTO.getCategory(), auth);
-        if (!wasCallSuccessful(categoryResponseEntity)) {
-            return ResponseEntity.status(categoryResponseEntity.getStatusCode()).build();
-        }
-        Category category = requireNonNull(categoryResponseEntity.getBody());
+        return withFallback(() -> {
+            ResponseEntity<Category> categoryResponseEntity = getOrCreateCategory(productDTO.getCategory(), auth);
+            if (!wasCallSuccessful(categoryResponseEntity)) {
+                return ResponseEntity.status(categoryResponseEntity.getStatusCode()).build();
+            }
+            Category category = requireNonNull(categoryResponseEntity.getBody());
 
-        CoreProduct newCoreProduct = new CoreProduct(0, productDTO.getName(), productDTO.getPrice(), category.getId(),
-                productDTO.getDetails());
+            CoreProduct newCoreProduct = new CoreProduct(0, productDTO.getName(), productDTO.getPrice(),
+                    category.getId(), productDTO.getDetails());
 
-        ResponseEntity<CoreProduct> coreProductResponseEntity = restTemplate.exchange(PRODUCT_SERVICE_URL, HttpMethod.POST,
-                buildHttpEntity(auth, newCoreProduct), CoreProduct.class);
-        if (!wasCallSuccessful(coreProductResponseEntity)) {
-            return ResponseEntity.status(coreProductResponseEntity.getStatusCode()).build();
-        }
-        CoreProduct coreProduct = requireNonNull(coreProductResponseEntity.getBody());
-        Product product = new Product(coreProduct.getId(), coreProduct.getName(), coreProduct.getPrice(), category,
-                coreProduct.getDetails());
-        return ResponseEntity.status(HttpStatus.CREATED).body(product);
+            ResponseEntity<CoreProduct> coreProductResponseEntity = restTemplate.exchange(PRODUCT_SERVICE_URL,
+                    HttpMethod.POST, buildHttpEntity(auth, newCoreProduct), CoreProduct.class);
+            if (!wasCallSuccessful(coreProductResponseEntity)) {
+                return ResponseEntity.status(coreProductResponseEntity.getStatusCode()).build();
+            }
+            CoreProduct coreProduct = requireNonNull(coreProductResponseEntity.getBody());
+            Product product = new Product(coreProduct.getId(), coreProduct.getName(), coreProduct.getPrice(), category,
+                    coreProduct.getDetails());
+            catalogEvents.productChanged(product);
+            return ResponseEntity.status(HttpStatus.CREATED).body(product);
+        }, () -> newProductCache(productDTO, auth));
     }
 
-    @SuppressWarnings("unused")
-    public ResponseEntity<Product> newProductCache(@RequestBody @Valid ProductDTO productDTO, OAuth2Authentication auth) {
+    private ResponseEntity<Product> newProductCache(ProductDTO productDTO, OAuth2Authentication auth) {
+        countFallback("newProduct");
         return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(null);
     }
 
-    @HystrixCommand(fallbackMethod = "updateProductCache", commandProperties = {
-            @HystrixProperty(name = "circuitBreaker.requestVolumeThreshold", value = "2")
-    })
     @PutMapping("/products/{id}")
     @RolesAllowed({"ADMIN"})
     public ResponseEntity<Product> updateProduct(@PathVariable(value = "id") Integer productId,
                                                  @RequestBody @Valid Product productToUpdate,
                                                  OAuth2Authentication auth) {
-        CoreProduct coreProductToUpdate = new CoreProduct(productToUpdate.getId(), productToUpdate.getName(),
-                productToUpdate.getPrice(), productToUpdate.getCategory().getId(), productToUpdate.getDetails());
-        ResponseEntity<CoreProduct> coreProductResponseEntity;
-        try {
-            coreProductResponseEntity = restTemplate.exchange(PRODUCT_SERVICE_URL + "/" + productId, HttpMethod.PUT,
-                    buildHttpEntity(auth, coreProductToUpdate), CoreProduct.class);
-        } catch (HttpClientErrorException.NotFound ex) {
-            return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
-        } catch (OAuth2Exception ex){
-            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
-        }
-        CoreProduct coreProduct = requireNonNull(coreProductResponseEntity.getBody());
-
-        ResponseEntity<Category> coreCategoryEntity;
-        try {
-            coreCategoryEntity = restTemplate.exchange(CATEGORY_SERVICE_URL + "/" + coreProduct.getCategoryID(),
-                    HttpMethod.GET, buildHttpEntity(auth), Category.class);
-        } catch (HttpClientErrorException.NotFound ex) {
-            return ResponseEntity.notFound().build();
-        } catch (OAuth2Exception ex){
-            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
-        }
+        return withFallback(() -> {
+            CoreProduct coreProductToUpdate = new CoreProduct(productToUpdate.getId(), productToUpdate.getName(),
+                    productToUpdate.getPrice(), productToUpdate.getCategory().getId(), productToUpdate.getDetails());
+            ResponseEntity<CoreProduct> coreProductResponseEntity;
+            try {
+                coreProductResponseEntity = restTemplate.exchange(PRODUCT_SERVICE_URL + "/" + productId, HttpMethod.PUT,
+                        buildHttpEntity(auth, coreProductToUpdate), CoreProduct.class);
+            } catch (HttpClientErrorException.NotFound ex) {
+                return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
+            } catch (OAuth2Exception ex){
+                return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+            }
+            CoreProduct coreProduct = requireNonNull(coreProductResponseEntity.getBody());
+
+            ResponseEntity<Category> coreCategoryEntity;
+            try {
+                coreCategoryEntity = get(CATEGORY_SERVICE_URL + "/" + coreProduct.getCategoryID(), auth,
+                        Category.class);
+            } catch (HttpClientErrorException.NotFound ex) {
+                return ResponseEntity.notFound().build();
+            } catch (OAuth2Exception ex){
+                return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+            }
 
-        Category tmpCategory = requireNonNull(coreCategoryEntity.getBody());
+            Category tmpCategory = requireNonNull(coreCategoryEntity.getBody());
 
-        Product tmpProduct = new Product(coreProduct.getId(), coreProduct.getName(), coreProduct.getPrice(),
-                tmpCategory, coreProduct.getDetails());
-        productCache.put(tmpProduct.getId(), tmpProduct);
-        return ResponseEntity.status(HttpStatus.ACCEPTED).body(tmpProduct);
+            Product tmpProduct = new Product(coreProduct.getId(), coreProduct.getName(), coreProduct.getPrice(),
+                    tmpCategory, coreProduct.getDetails());
+            catalogEvents.productChanged(tmpProduct);
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(tmpProduct);
+        }, () -> updateProductCache(productId, productToUpdate, auth));
     }
 
-    @SuppressWarnings("unused")
-    public ResponseEntity<Product> updateProductCache(@PathVariable(value = "id") Integer productId,
-                                                      @RequestBody @Valid Product productToUpdate,
-                                                      OAuth2Authentication auth){
+    private ResponseEntity<Product> updateProductCache(Integer productId, Product productToUpdate,
+                                                       OAuth2Authentication auth) {
+        countFallback("updateProduct");
         return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(null);
     }
 
-    @HystrixCommand(fallbackMethod = "deleteProductCache", commandProperties = {
-            @HystrixProperty(name = "circuitBreaker.requestVolumeThreshold", value = "2")
-    })
     @DeleteMapping("/products/{id}")
     @RolesAllowed({"ADMIN"})
     public ResponseEntity<Product> deleteProduct(@PathVariable(value = "id") Integer productId, OAuth2Authentication auth) {
-        ResponseEntity<CoreProduct> coreProductResponseEntity;
-        try {
-            coreProductResponseEntity = restTemplate.exchange(PRODUCT_SERVICE_URL + "/" + productId,
-                    HttpMethod.DELETE, buildHttpEntity(auth), CoreProduct.class);
-        } catch (HttpClientErrorException.NotFound ex) {
-            return ResponseEntity.notFound().build();
-        } catch (OAuth2Exception ex) {
-            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
-        }
-        CoreProduct coreProduct = requireNonNull(coreProductResponseEntity.getBody());
-
-        ResponseEntity<Category> categoryResponseEntity = getCategory(coreProduct.getCategoryID(), auth);
-        /*try {
-            categoryResponseEntity = restTemplate.exchange(CATEGORY_SERVICE_URL + "/" + coreProduct.getCategoryID(),
-                    HttpMethod.GET, buildHttpEntity(), Category.class);
-        } catch (HttpClientErrorException.NotFound ex) {
-            return ResponseEntity.notFound().build();
-        }*/
-        HttpStatus categoryStatus = categoryResponseEntity.getStatusCode();
-        if(!wasCallSuccessful(categoryResponseEntity) && categoryStatus != HttpStatus.NOT_FOUND){
-            if(categoryStatus == HttpStatus.FORBIDDEN){
+        return withFallback(() -> {
+            ResponseEntity<CoreProduct> coreProductResponseEntity;
+            try {
+                coreProductResponseEntity = restTemplate.exchange(PRODUCT_SERVICE_URL + "/" + productId,
+                        HttpMethod.DELETE, buildHttpEntity(auth), CoreProduct.class);
+            } catch (HttpClientErrorException.NotFound ex) {
+                return ResponseEntity.notFound().build();
+            } catch (OAuth2Exception ex) {
                 return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
-            } else {
-                throw new RuntimeException();
             }
-        }
-        Category category = requireNonNull(categoryResponseEntity.getBody());
-        Product product = new Product(coreProduct.getId(), coreProduct.getName(), coreProduct.getPrice(), category,
-                coreProduct.getDetails());
-        return ResponseEntity.accepted().body(product);
+            CoreProduct coreProduct = requireNonNull(coreProductResponseEntity.getBody());
+            catalogEvents.productDeleted(productId);
+
+            ResponseEntity<Category> categoryResponseEntity = getCategory(coreProduct.getCategoryID(), auth);
+            /*try {
+                categoryResponseEntity = restTemplate.exchange(CATEGORY_SERVICE_URL + "/" + coreProduct.getCategoryID(),
+                        HttpMethod.GET, buildHttpEntity(), Category.class);
+            } catch (HttpClientErrorException.NotFound ex) {
+                return ResponseEntity.notFound().build();
+            }*/
+            HttpStatus categoryStatus = categoryResponseEntity.getStatusCode();
+            if(!wasCallSuccessful(categoryResponseEntity) && categoryStatus != HttpStatus.NOT_FOUND){
+                if(categoryStatus == HttpStatus.FORBIDDEN){
+                    return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+                } else {
+                    throw new RuntimeException();
+                }
+            }
+            Category category = requireNonNull(categoryResponseEntity.getBody());
+            Product product = new Product(coreProduct.getId(), coreProduct.getName(), coreProduct.getPrice(), category,
+                    coreProduct.getDetails());
+            return ResponseEntity.accepted().body(product);
+        }, () -> deleteProductCache(productId, auth));
     }
 
-    @SuppressWarnings("unused")
-    public ResponseEntity<Product> deleteProductCache(@PathVariable(value = "id") Integer productId, OAuth2Authentication auth) {
+    private ResponseEntity<Product> deleteProductCache(Integer productId, OAuth2Authentication auth) {
+        countFallback("deleteProduct");
         return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(null);
     }
 
+    /**
+     * Resolves a category name through the name index. The category list is only downloaded if the index is too
+     * old to trust a miss; concurrent creates of the same new name are done once.
+     */
     private ResponseEntity<Category> getOrCreateCategory(String categoryName, OAuth2Authentication auth) {
-        ResponseEntity<List<Category>> categoriesEntity;
+        Optional<Category> known = categoryNames.find(categoryName);
+        if (known.isPresent()) {
+            return ResponseEntity.ok(known.get());
+        }
         try {
-            categoriesEntity = getCategories(auth);
+            if (!categoryNames.isServable()) {
+                ResponseEntity<List<Category>> categoriesEntity = loadCategories(auth);
+                if (!wasCallSuccessful(categoriesEntity)) {
+                    return ResponseEntity.status(categoriesEntity.getStatusCode()).build();
+                }
+            }
+            return ResponseEntity.ok(categoryNames.getOrCreate(categoryName,
+                    name -> requireNonNull(postCategory(new CategoryDTO(name), auth).getBody())));
+        } catch (HttpClientErrorException.BadRequest ex) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).build();
         } catch (OAuth2Exception ex){
             return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
         }
-
-        List<Category> categories = requireNonNull(categoriesEntity.getBody());
-
-        Optional<Category> categoryOptional = categories.stream()
-                .filter(category -> category.getName().equals(categoryName))
-                .findFirst();
-
-        return categoryOptional.map(ResponseEntity::ok)
-                .orElseGet(() -> createCategory(new CategoryDTO(categoryName), auth));
     }
 
-    @HystrixCommand(fallbackMethod = "createCategoryCache", commandProperties = {
-            @HystrixProperty(name = "circuitBreaker.requestVolumeThreshold", value = "2")
-    })
     @PostMapping("/categories")
     @RolesAllowed({"ADMIN"})
     public ResponseEntity<Category> createCategory(@RequestBody @Valid CategoryDTO categoryDTO, OAuth2Authentication auth) {
-        try {
-            return restTemplate.exchange(CATEGORY_SERVICE_URL, HttpMethod.POST, buildHttpEntity(auth, categoryDTO),
-                    Category.class);
-        } catch (HttpClientErrorException.BadRequest ex) {
-            return ResponseEntity.status(HttpStatus.BAD_REQUEST).build();
-        } catch (OAuth2Exception ex){
-            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
-        }
+        return withFallback(() -> {
+            try {
+                return postCategory(categoryDTO, auth);
+            } catch (HttpClientErrorException.BadRequest ex) {
+                return ResponseEntity.status(HttpStatus.BAD_REQUEST).build();
+            } catch (OAuth2Exception ex){
+                return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+            }
+        }, () -> createCategoryCache(categoryDTO, auth));
+    }
+
+    private ResponseEntity<Category> postCategory(CategoryDTO categoryDTO, OAuth2Authentication auth) {
+        ResponseEntity<Category> categoryResponseEntity = restTemplate.exchange(CATEGORY_SERVICE_URL, HttpMethod.POST,
+                buildHttpEntity(auth, categoryDTO), Category.class);
+        successfulBody(categoryResponseEntity).ifPresent(catalogEvents::categoryChanged);
+        return categoryResponseEntity;
     }
 
-    @SuppressWarnings("unused")
-    public ResponseEntity<Category> createCategoryCache(@RequestBody @Valid CategoryDTO categoryDTO, OAuth2Authentication auth) {
+    private ResponseEntity<Category> createCategoryCache(CategoryDTO categoryDTO, OAuth2Authentication auth) {
+        countFallback("createCategory");
         return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(null);
     }
 
-    @HystrixCommand(fallbackMethod = "getCategoriesCache", commandProperties = {
-            @HystrixProperty(name = "circuitBreaker.requestVolumeThreshold", value = "2")
-    })
     @GetMapping("/categories")
     @RolesAllowed({"USER"})
-    public ResponseEntity<List<Category>> getCategories(OAuth2Authentication auth) {
-        LOGGER.info("[InventoryService#getCategories] Get categories.");
+    public ResponseEntity<List<Category>> getCategories(@RequestParam(required = false) Integer page,
+                                                        @RequestParam(required = false) Integer size,
+                                                        @RequestParam(required = false) String sort,
+                                                        OAuth2Authentication auth) {
+        return withFallback(() -> {
+            Comparator<Category> order;
+            try {
+                order = Paging.categoryOrder(sort, size);
+            } catch (IllegalArgumentException ex) {
+                return ResponseEntity.badRequest().build();
+            }
+            if (!Paging.isValid(page, size)) {
+                return ResponseEntity.badRequest().build();
+            }
+            return httpCaching.tagged(Paging.paginate(loadCategories(auth), page, size, order));
+        }, () -> getCategoriesCache(page, size, sort, auth));
+    }
+
+    private ResponseEntity<List<Category>> loadCategories(OAuth2Authentication auth) {
+        HOT_LOGGER.info(() -> "[InventoryService#getCategories] Get categories.");
         ResponseEntity<Category[]> categoriesEntity;
         try {
-            categoriesEntity = restTemplate.exchange(CATEGORY_SERVICE_URL, HttpMethod.GET, buildHttpEntity(auth),
-                    Category[].class);
+            categoriesEntity = get(CATEGORY_SERVICE_URL, auth, Category[].class);
         } catch (OAuth2Exception ex){
             return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
         }
         List<Category> categories = List.of(requireNonNull(categoriesEntity.getBody()));
-        LOGGER.info("[InventoryService#getCategories] Found " + categories.size() + " categories.");
-        categoryCache.clear();
-        categories.forEach(category -> categoryCache.put(category.getId(), category));
+        LOGGER.fine(() -> "[InventoryService#getCategories] Found " + categories.size() + " categories.");
+        cache.categories().replaceAll(categories.stream()
+                .collect(Collectors.toMap(Category::getId, category -> category, (a, b) -> b)));
+        categoryNames.replaceAll(categories);
         return ResponseEntity.ok(categories);
     }
 
-    @SuppressWarnings("unused")
-    public ResponseEntity<List<Category>> getCategoriesCache(OAuth2Authentication auth) {
-        LOGGER.info("[InventoryService#getCategoriesCache] Get cached categories.");
-        return ResponseEntity.ok(List.copyOf(categoryCache.values()));
+    private ResponseEntity<List<Category>> getCategoriesCache(Integer page, Integer size, String sort,
+                                                              OAuth2Authentication auth) {
+        countFallback("getCategories");
+        LOGGER.fine("[InventoryService#getCategoriesCache] Get cached categories.");
+        Comparator<Category> order;
+        try {
+            order = Paging.categoryOrder(sort, size);
+        } catch (IllegalArgumentException ex) {
+            return ResponseEntity.badRequest().build();
+        }
+        return httpCaching.tagged(Paging.paginate(ResponseEntity.ok(cache.categories().values()), page, size,
+                order));
+    }
+
+    /**
+     * NDJSON variant of {@link #getCategories}, written while category-service's response is read.
+     */
+    @GetMapping(value = "/categories", produces = NDJSON)
+    @RolesAllowed({"USER"})
+    public ResponseEntity<StreamingResponseBody> streamCategories(@RequestParam(required = false) Integer page,
+                                                                  @RequestParam(required = false) Integer size,
+                                                                  OAuth2Authentication auth) {
+        if (!Paging.isValid(page, size)) {
+            return ResponseEntity.badRequest().build();
+        }
+        long skip = size == null || page == null ? 0 : (long) page * size;
+        long limit = size == null ? Long.MAX_VALUE : size;
+
+        StreamingResponseBody body = outputStream -> {
+            long[] seen = {0};
+            readArray(CATEGORY_SERVICE_URL, auth, Category.class, category -> {
+                if (seen[0]++ >= skip) {
+                    writeLine(outputStream, category);
+                }
+                return seen[0] - skip < limit;
+            });
+        };
+        return ResponseEntity.ok().contentType(MediaType.parseMediaType(NDJSON)).body(body);
     }
 
-    @HystrixCommand(fallbackMethod = "getCategoryCache", commandProperties = {
-            @HystrixProperty(name = "circuitBreaker.requestVolumeThreshold", value = "2")
-    })
     @GetMapping("categories/{id}")
     @RolesAllowed({"USER"})
     public ResponseEntity<Category> getCategory(@PathVariable(value = "id") Integer categoryId, OAuth2Authentication auth){
+        return withFallback(() -> {
+            if (cache.isCategoryReadThrough()) {
+                Optional<CachedValue<Category>> cached = cache.categories().lookup(categoryId);
+                if (cached.isPresent()) {
+                    if (cached.get().isStale()) {
+                        cache.categories().refresh(categoryId,
+                                () -> refreshedBody(loadCategory(categoryId, auth)), cache.refreshExecutor());
+                    }
+                    return httpCaching.tagged(ResponseEntity.ok(cached.get().getValue()));
+                }
+            }
+            return httpCaching.tagged(loadCategory(categoryId, auth));
+        }, () -> getCategoryCache(categoryId, auth));
+    }
+
+    private ResponseEntity<Category> loadCategory(Integer categoryId, OAuth2Authentication auth) {
         ResponseEntity<Category> categoryEntity;
         try {
-            categoryEntity = restTemplate.exchange(CATEGORY_SERVICE_URL + "/" + categoryId,
-                    HttpMethod.GET, buildHttpEntity(auth), Category.class);
+            categoryEntity = get(CATEGORY_SERVICE_URL + "/" + categoryId, auth, Category.class);
         } catch (HttpClientErrorException.NotFound ex) {
             return ResponseEntity.notFound().build();
         } catch (OAuth2Exception ex){
@@ -370,83 +645,239 @@ public class InventoryController {
         }
 
         Category category = requireNonNull(categoryEntity.getBody());
-        categoryCache.putIfAbsent(category.getId(), category);
+        cache.categories().put(category.getId(), category);
         return ResponseEntity.ok(category);
     }
 
-    @SuppressWarnings("unused")
-    public ResponseEntity<Category> getCategoryCache(@PathVariable(value = "id") Long categoryId, OAuth2Authentication auth){
-        Category category = categoryCache.get(categoryId);
+    private ResponseEntity<Category> getCategoryCache(Integer categoryId, OAuth2Authentication auth){
+        countFallback("getCategory");
+        Category category = cache.categories().get(categoryId).orElse(null);
         if (category == null) {
             return ResponseEntity.notFound().build();
         }
-        return ResponseEntity.ok(category);
+        return httpCaching.tagged(ResponseEntity.ok(category));
     }
 
-    @HystrixCommand(fallbackMethod = "updateCategoryCache", commandProperties = {
-            @HystrixProperty(name = "circuitBreaker.requestVolumeThreshold", value = "2")
-    })
     @PutMapping("/categories/{id}")
     @RolesAllowed({"ADMIN"})
     public ResponseEntity<Category> updateCategory(@PathVariable(value = "id") Long categoryId,
                                                    @RequestBody @Valid Category categoryToUpdate,
                                                    OAuth2Authentication auth) {
-        ResponseEntity<Category> categoryResponseEntity;
-        try {
-            categoryResponseEntity = restTemplate.exchange(CATEGORY_SERVICE_URL + "/" + categoryId,
-                    HttpMethod.PUT, buildHttpEntity(auth, categoryToUpdate), Category.class);
-        } catch (OAuth2Exception ex){
-            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
-        }
-        Category category = requireNonNull(categoryResponseEntity.getBody());
-        categoryCache.put(category.getId(), category);
-        return ResponseEntity.status(HttpStatus.ACCEPTED).body(category);
+        return withFallback(() -> {
+            ResponseEntity<Category> categoryResponseEntity;
+            try {
+                categoryResponseEntity = restTemplate.exchange(CATEGORY_SERVICE_URL + "/" + categoryId,
+                        HttpMethod.PUT, buildHttpEntity(auth, categoryToUpdate), Category.class);
+            } catch (OAuth2Exception ex){
+                return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+            }
+            Category category = requireNonNull(categoryResponseEntity.getBody());
+            catalogEvents.categoryChanged(category);
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(category);
+        }, () -> updateCategoryCache(categoryId, categoryToUpdate, auth));
     }
 
-    @SuppressWarnings("unused")
-    public ResponseEntity<Category> updateCategoryCache(@PathVariable(value = "id") Long categoryId,
-                                                        @RequestBody @Valid Category categoryToUpdate,
-                                                        OAuth2Authentication auth) {
+    private ResponseEntity<Category> updateCategoryCache(Long categoryId, Category categoryToUpdate,
+                                                         OAuth2Authentication auth) {
+        countFallback("updateCategory");
         return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(null);
     }
 
-    @HystrixCommand(fallbackMethod = "deleteCategoryCache", commandProperties = {
-            @HystrixProperty(name = "circuitBreaker.requestVolumeThreshold", value = "2")
-    })
+    /**
+     * Deletes the category and then its products. The products are looked up before anything is deleted, so that
+     * a failed lookup leaves the catalog as it was. If some products could not be deleted the answer is
+     * {@code 502 Bad Gateway} with their number in {@value #UNDELETED_PRODUCTS_HEADER}; repeating the request
+     * deletes the products still referring to the category, even though the category itself is gone.
+     */
     @DeleteMapping("/categories/{id}")
     @RolesAllowed({"ADMIN"})
     public ResponseEntity<Category> deleteCategory(@PathVariable(value = "id") Long categoryId, OAuth2Authentication auth) {
-        ResponseEntity<Category> categoryResponseEntity;
+        return withFallback(() -> {
+            List<Integer> productIds;
+            try {
+                productIds = productIdsInCategory(categoryId.intValue(), auth);
+            } catch (OAuth2Exception ex) {
+                return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+            }
+
+            ResponseEntity<Category> categoryResponseEntity;
+            try {
+                categoryResponseEntity = restTemplate.exchange(CATEGORY_SERVICE_URL + "/" + categoryId,
+                        HttpMethod.DELETE, buildHttpEntity(auth), Category.class);
+            } catch (HttpClientErrorException.NotFound ex) {
+                // left over by an earlier, partly failed cascade
+                int undeleted = deleteProducts(categoryId.intValue(), productIds, auth);
+                return ResponseEntity.status(undeleted == 0 ? HttpStatus.NOT_FOUND : HttpStatus.BAD_GATEWAY)
+                        .header(UNDELETED_PRODUCTS_HEADER, String.valueOf(undeleted)).build();
+            } catch (OAuth2Exception ex){
+                return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+            }
+            Category category = requireNonNull(categoryResponseEntity.getBody());
+            catalogEvents.categoryDeleted(category.getId());
+
+            //Delete all associated products
+            int undeleted = deleteProducts(category.getId(), productIds, auth);
+            return ResponseEntity.status(undeleted == 0 ? HttpStatus.ACCEPTED : HttpStatus.BAD_GATEWAY)
+                    .header(UNDELETED_PRODUCTS_HEADER, String.valueOf(undeleted)).body(category);
+        }, () -> deleteCategoryCache(categoryId, auth));
+    }
+
+    /**
+     * The products of a category, from the search index when it is fresh, otherwise from one product listing.
+     */
+    private List<Integer> productIdsInCategory(int categoryId, OAuth2Authentication auth) {
+        if (productIndex.isServable()) {
+            return productIndex.productIdsInCategory(categoryId);
+        }
+        return Arrays.stream(requireNonNull(get(PRODUCT_SERVICE_URL, auth, CoreProduct[].class).getBody()))
+                .filter(product -> product.getCategoryID() == categoryId)
+                .map(CoreProduct::getId)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Deletes the given products on the write executor with at most {@code inventory.batch.concurrency} requests in
+     * flight and logs the progress every {@code inventory.batch.progress-interval} products. Products that are
+     * already gone count as deleted, other failures are logged and skipped.
+     *
+     * @return the number of products that could not be deleted
+     */
+    private int deleteProducts(int categoryId, List<Integer> productIds, OAuth2Authentication auth) {
+        HttpEntity<?> request = buildHttpEntity(auth);
+        AtomicInteger done = new AtomicInteger();
+        AtomicInteger failed = new AtomicInteger();
+        BoundedParallel.forEach(productIds.size(), batchProperties.getConcurrency(), writeExecutor, index -> {
+            int productId = productIds.get(index);
+            try {
+                restTemplate.exchange(PRODUCT_SERVICE_URL + "/" + productId, HttpMethod.DELETE, request,
+                        CoreProduct.class);
+            } catch (HttpClientErrorException.NotFound ex) {
+                LOGGER.fine(() -> "[InventoryService#deleteProducts] Product " + productId + " was already deleted.");
+            } catch (RuntimeException ex) {
+                failed.incrementAndGet();
+                LOGGER.warning("[InventoryService#deleteProducts] Deleting product " + productId + " failed: "
+                        + ex.getMessage());
+                return;
+            } finally {
+                int count = done.incrementAndGet();
+                if (count % batchProperties.getProgressInterval() == 0 || count == productIds.size()) {
+                    LOGGER.info("[InventoryService#deleteProducts] Category " + categoryId + ": " + count + "/"
+                            + productIds.size() + " products processed.");
+                }
+            }
+            catalogEvents.productDeleted(productId);
+        });
+        if (failed.get() > 0) {
+            LOGGER.warning("[InventoryService#deleteProducts] Category " + categoryId + ": " + failed.get()
+                    + " of " + productIds.size() + " products could not be deleted.");
+        }
+        return failed.get();
+    }
+
+    private ResponseEntity<Category> deleteCategoryCache(Long categoryId, OAuth2Authentication auth) {
+        countFallback("deleteCategory");
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(null);
+    }
+
+    /**
+     * Runs a handler and answers with its fallback instead if a call to a backing service fails or is refused.
+     */
+    private static <T> ResponseEntity<T> withFallback(Supplier<ResponseEntity<T>> handler,
+                                                      Supplier<ResponseEntity<T>> fallback) {
         try {
-            categoryResponseEntity = restTemplate.exchange(CATEGORY_SERVICE_URL + "/" + categoryId,
-                    HttpMethod.DELETE, buildHttpEntity(auth), Category.class);
-        } catch (HttpClientErrorException.NotFound ex) {
-            return ResponseEntity.notFound().build();
-        } catch (OAuth2Exception ex){
-            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+            return handler.get();
+        } catch (RuntimeException ex) {
+            LOGGER.fine(() -> "[InventoryService#withFallback] Falling back after " + ex);
+            return fallback.get();
+        }
+    }
+
+    private static RuntimeException rethrow(Throwable cause) {
+        if (cause instanceof RuntimeException) {
+            return (RuntimeException) cause;
+        }
+        if (cause instanceof Error) {
+            throw (Error) cause;
         }
-        Category category = requireNonNull(categoryResponseEntity.getBody());
+        return new IllegalStateException(cause);
+    }
 
-        ResponseEntity<CoreProduct[]> coreProductsResponseEntity;
+    private void countFallback(String handler) {
+        meterRegistry.counter("inventory.fallbacks", "handler", handler).increment();
+    }
 
+    private static boolean isUnfiltered(String text, Double minPrice, Double maxPrice) {
+        return text.isEmpty() && minPrice <= Double.parseDouble(MIN_PRICE) && maxPrice >= Double.parseDouble(MAX_PRICE);
+    }
+
+    /**
+     * Outcome of a background refresh: empty if the resource is gone, so that the cache drops it. Any other failure
+     * is thrown, so that the cached value is kept.
+     */
+    private static <T> Optional<T> refreshedBody(ResponseEntity<T> responseEntity) {
+        if (responseEntity.getStatusCode() == HttpStatus.NOT_FOUND) {
+            return Optional.empty();
+        }
+        if (!wasCallSuccessful(responseEntity)) {
+            throw new IllegalStateException("Refresh answered " + responseEntity.getStatusCode());
+        }
+        return Optional.of(requireNonNull(responseEntity.getBody()));
+    }
+
+    private static <T> Optional<T> successfulBody(ResponseEntity<T> responseEntity) {
+        return wasCallSuccessful(responseEntity) ? Optional.ofNullable(responseEntity.getBody()) : Optional.empty();
+    }
+
+    /**
+     * GETs a resource from a backing service, sharing the call with concurrent requests for the same URL and
+     * hedging it if the service is slow to answer.
+     */
+    private <T> ResponseEntity<T> get(String url, OAuth2Authentication auth, Class<T> type) {
+        HttpEntity<?> request = buildHttpEntity(auth);
+        return singleFlight.execute("GET " + url, () -> hedgedRequests.execute(url,
+                () -> restTemplate.exchange(url, HttpMethod.GET, request, type)));
+    }
+
+    /**
+     * Reads a JSON array from a backing service element by element, without materializing the whole array.
+     * Elements already handed to the consumer cannot be taken back, so the call is not retried, and a consumer
+     * failing to write its output is not held against the backing service.
+     */
+    private <T> void readArray(String url, OAuth2Authentication auth, Class<T> type, ElementConsumer<T> consumer)
+            throws IOException {
+        HttpHeaders headers = BearerHeaders.of(auth);
+        StreamingResponseExtractor<Void> extractor = response -> {
+            try (MappingIterator<T> elements = objectMapper.readerFor(type).readValues(response.getBody())) {
+                boolean more = true;
+                while (more && elements.hasNextValue()) {
+                    T element = elements.nextValue();
+                    try {
+                        more = consumer.accept(element);
+                    } catch (IOException ex) {
+                        throw new StreamConsumerException(ex);
+                    }
+                }
+            }
+            return null;
+        };
         try {
-            coreProductsResponseEntity = restTemplate.exchange(PRODUCT_SERVICE_URL, HttpMethod.GET, buildHttpEntity(auth),
-                    CoreProduct[].class);
-        } catch (OAuth2Exception ex){
-            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+            restTemplate.execute(url, HttpMethod.GET, request -> request.getHeaders().putAll(headers), extractor);
+        } catch (StreamConsumerException ex) {
+            throw ex.getCause();
         }
+    }
 
-        List<CoreProduct> coreProducts = Arrays.stream(requireNonNull(coreProductsResponseEntity.getBody()))
-                .filter(product -> product.getCategoryID() == category.getId())
-                .collect(Collectors.toList());
-        //Delete all associated products
-        coreProducts.forEach(coreProduct -> deleteProduct(coreProduct.getCategoryID(), auth));
-        return ResponseEntity.accepted().body(category);
+    private void writeLine(OutputStream outputStream, Object value) throws IOException {
+        outputStream.write(objectMapper.writeValueAsBytes(value));
+        outputStream.write('\n');
     }
 
-    @SuppressWarnings("unused")
-    public ResponseEntity<Category> deleteCategoryCache(@PathVariable(value = "id") Long categoryId, OAuth2Authentication auth) {
-        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(null);
+    @FunctionalInterface
+    private interface ElementConsumer<T> {
+        /**
+         * @return whether further elements should be read
+         */
+        boolean accept(T element) throws IOException;
     }
 
     @SuppressWarnings("BooleanMethodIsAlwaysInverted")
@@ -460,22 +891,6 @@ public class InventoryController {
     }
 
     private <T> HttpEntity<T> buildHttpEntity(OAuth2Authentication auth, @Nullable T body) {
-        final OAuth2AuthenticationDetails details = (OAuth2AuthenticationDetails) auth.getDetails();
-        LOGGER.info("Token is: " + details.getTokenValue());
-        HttpHeaders headers = new HttpHeaders();
-        headers.setBearerAuth(details.getTokenValue());
-        return new HttpEntity<>(body, headers);
-    }
-
-    /*private <T> HttpEntity<T> buildHttpEntity(@Nullable T body) {
-        HttpHeaders headers = new HttpHeaders();
-        LOGGER.info("HTTP body should be " + body);
-        return new HttpEntity<>(body, headers);
+        return new HttpEntity<>(body, BearerHeaders.of(auth));
     }
-
-    private <T> HttpEntity<T> buildHttpEntity() {
-        HttpHeaders headers = new HttpHeaders();
-        return new HttpEntity<>(null, headers);
-    }*/
-
 }
@@ -2,13 +2,13 @@ package tech.bestwebshop.api.productcomposite;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
-import org.springframework.cloud.client.circuitbreaker.EnableCircuitBreaker;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.cloud.client.discovery.EnableDiscoveryClient;
 import org.springframework.cloud.client.loadbalancer.LoadBalanced;
-import org.springframework.cloud.netflix.hystrix.EnableHystrix;
 import org.springframework.cloud.netflix.ribbon.RibbonClient;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.ClientHttpRequestFactory;
 import org.springframework.security.config.annotation.method.configuration.EnableGlobalMethodSecurity;
 import org.springframework.security.config.annotation.method.configuration.GlobalMethodSecurityConfiguration;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
@@ -16,20 +16,108 @@ import org.springframework.security.oauth2.config.annotation.web.configuration.E
 import org.springframework.security.oauth2.config.annotation.web.configuration.ResourceServerConfigurerAdapter;
 import org.springframework.security.oauth2.provider.error.OAuth2AccessDeniedHandler;
 import org.springframework.web.client.RestTemplate;
+import org.springframework.web.reactive.function.client.WebClient;
 import org.springframework.web.servlet.config.annotation.ResourceHandlerRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+import tech.bestwebshop.api.productcomposite.client.DownstreamMetrics;
+import tech.bestwebshop.api.productcomposite.limit.DownstreamLimits;
+import tech.bestwebshop.api.productcomposite.resilience.DownstreamResilience;
+import tech.bestwebshop.api.productcomposite.resilience.ResilienceProperties;
+import tech.bestwebshop.api.productcomposite.resilience.ResilientRestTemplate;
+
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
 
 @SpringBootApplication
 @EnableDiscoveryClient
-@EnableCircuitBreaker
-@EnableHystrix
 @RibbonClient("inventory-service")
+@EnableConfigurationProperties({FanOutProperties.class, BatchProperties.class, ReactiveProperties.class,
+        VirtualThreadProperties.class})
 public class InventoryServiceApplication {
 
+    private static final Logger LOGGER = Logger.getLogger(InventoryServiceApplication.class.getSimpleName());
+
+    @Bean
+    @LoadBalanced
+    public RestTemplate restTemplate(ClientHttpRequestFactory clientHttpRequestFactory,
+                                     DownstreamResilience downstreamResilience,
+                                     DownstreamLimits downstreamLimits, DownstreamMetrics downstreamMetrics){
+        RestTemplate restTemplate = new ResilientRestTemplate(clientHttpRequestFactory, downstreamResilience);
+        // registered before the load balancer's interceptor, so the service name is still in the URI;
+        // calls shed by the limiter never reach the metrics, every retry passes both again
+        restTemplate.getInterceptors().add(downstreamLimits);
+        restTemplate.getInterceptors().add(downstreamMetrics);
+        return restTemplate;
+    }
+
     @Bean
     @LoadBalanced
-    public RestTemplate restTemplate(){
-        return new RestTemplate();
+    public WebClient.Builder loadBalancedWebClientBuilder(DownstreamResilience downstreamResilience,
+                                                          DownstreamLimits downstreamLimits,
+                                                          DownstreamMetrics downstreamMetrics) {
+        return WebClient.builder().filter(downstreamResilience).filter(downstreamLimits).filter(downstreamMetrics);
+    }
+
+    @Bean
+    public ExecutorService fanOutExecutor(FanOutProperties properties, VirtualThreadProperties virtualThreads,
+                                          ResilienceProperties resilience) {
+        checkLegTimeout("product-service", properties.getProductTimeout(), resilience);
+        checkLegTimeout("category-service", properties.getCategoryTimeout(), resilience);
+        if (virtualThreads.isEnabled() && VirtualThreads.isSupported()) {
+            return VirtualThreads.newThreadPerTaskExecutor("inventory-fan-out-");
+        }
+        AtomicInteger counter = new AtomicInteger();
+        return Executors.newFixedThreadPool(properties.getThreads(), runnable -> {
+            Thread thread = new Thread(runnable, "inventory-fan-out-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Runs the product writes of batch requests and category cascades, bounded on every runtime: they must never
+     * hold the threads the read fan-out needs, and the backing services take only so many writes at once.
+     */
+    @Bean
+    public ExecutorService writeExecutor(BatchProperties properties) {
+        AtomicInteger counter = new AtomicInteger();
+        return Executors.newFixedThreadPool(properties.getThreads(), runnable -> {
+            Thread thread = new Thread(runnable, "inventory-write-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Runs hedged GETs, both the first and the second request, so that the caller can wait for whichever answers
+     * first. Unbounded, as the calls are already bounded by the concurrency limits.
+     */
+    @Bean
+    public ExecutorService hedgeExecutor(VirtualThreadProperties virtualThreads) {
+        if (virtualThreads.isEnabled() && VirtualThreads.isSupported()) {
+            return VirtualThreads.newThreadPerTaskExecutor("inventory-hedge-");
+        }
+        AtomicInteger counter = new AtomicInteger();
+        return Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "inventory-hedge-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * A leg that gives up before its call does leaves the call holding a fan-out thread and a bulkhead slot.
+     */
+    private static void checkLegTimeout(String service, Duration legTimeout, ResilienceProperties resilience) {
+        Duration longestGet = resilience.policyFor(service).longestGet();
+        if (resilience.isEnabled() && longestGet.compareTo(legTimeout) > 0) {
+            LOGGER.warning("[InventoryServiceApplication#fanOutExecutor] Calls to " + service + " may take up to "
+                    + longestGet.toMillis() + " ms with retries, longer than the " + legTimeout.toMillis()
+                    + " ms fan-out timeout; shorten inventory.resilience.routes." + service + ".timeout.");
+        }
     }
 
     public static void main(String[] args) {
@@ -0,0 +1,106 @@
+package tech.bestwebshop.api.productcomposite;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.lang.Nullable;
+import tech.bestwebshop.api.productcomposite.model.Category;
+import tech.bestwebshop.api.productcomposite.model.Product;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Offset pagination and sorting for the listing endpoints.
+ * <p>
+ * {@code sort} has the form {@code field} or {@code field,asc|desc}. Without {@code size} the whole listing is
+ * returned, as before; {@code size} is capped at {@link #MAX_PAGE_SIZE}. The unpaged total is reported in the
+ * {@value #TOTAL_COUNT_HEADER} header.
+ * <p>
+ * Listings come from the backing services, the cache or the index, each in its own order, so pages are always cut
+ * from a sorted listing: by id if no sort was requested, and with ties broken by id otherwise.
+ */
+final class Paging {
+
+    static final int MAX_PAGE_SIZE = 1000;
+    static final String TOTAL_COUNT_HEADER = "X-Total-Count";
+
+    private static final Comparator<Product> PRODUCT_ID = Comparator.comparingInt(Product::getId);
+    private static final Comparator<Category> CATEGORY_ID = Comparator.comparingInt(Category::getId);
+    private static final Map<String, Comparator<Product>> PRODUCT_FIELDS = Map.of(
+            "id", PRODUCT_ID,
+            "name", Comparator.comparing(Product::getName),
+            "price", Comparator.comparingDouble(Product::getPrice));
+    private static final Map<String, Comparator<Category>> CATEGORY_FIELDS = Map.of(
+            "id", CATEGORY_ID,
+            "name", Comparator.comparing(Category::getName));
+
+    private Paging() {
+    }
+
+    /**
+     * @return the requested order, the id order for a page without one, or {@code null} if an unpaged listing
+     * needs no sorting
+     * @throws IllegalArgumentException if the sort expression is invalid
+     */
+    @Nullable
+    static Comparator<Product> productOrder(@Nullable String sort, @Nullable Integer size) {
+        return order(sort, size, PRODUCT_FIELDS, PRODUCT_ID);
+    }
+
+    @Nullable
+    static Comparator<Category> categoryOrder(@Nullable String sort, @Nullable Integer size) {
+        return order(sort, size, CATEGORY_FIELDS, CATEGORY_ID);
+    }
+
+    static boolean isValid(@Nullable Integer page, @Nullable Integer size) {
+        return (page == null || page >= 0) && (size == null || size > 0);
+    }
+
+    static <T> ResponseEntity<List<T>> paginate(ResponseEntity<List<T>> listing, @Nullable Integer page,
+                                                @Nullable Integer size, @Nullable Comparator<T> order) {
+        List<T> items = listing.getBody();
+        int status = listing.getStatusCodeValue();
+        if (items == null || status < 200 || status >= 300) {
+            return listing;
+        }
+        List<T> result = items;
+        if (order != null) {
+            result = new ArrayList<>(items);
+            result.sort(order);
+        }
+        if (size != null) {
+            int pageSize = Math.min(size, MAX_PAGE_SIZE);
+            long from = Math.min((long) (page == null ? 0 : page) * pageSize, result.size());
+            int to = (int) Math.min(from + pageSize, result.size());
+            result = List.copyOf(result.subList((int) from, to));
+        }
+        HttpHeaders headers = new HttpHeaders();
+        headers.addAll(listing.getHeaders());
+        headers.set(TOTAL_COUNT_HEADER, String.valueOf(items.size()));
+        return ResponseEntity.status(listing.getStatusCode()).headers(headers).body(result);
+    }
+
+    @Nullable
+    private static <T> Comparator<T> order(@Nullable String sort, @Nullable Integer size,
+                                           Map<String, Comparator<T>> fields, Comparator<T> byId) {
+        if (sort == null || sort.isBlank()) {
+            return size == null ? null : byId;
+        }
+        String[] parts = sort.split(",");
+        Comparator<T> comparator = fields.get(parts[0].trim());
+        if (comparator == null || parts.length > 2) {
+            throw new IllegalArgumentException("Unsupported sort: " + sort);
+        }
+        if (parts.length == 2) {
+            String direction = parts[1].trim();
+            if (direction.equalsIgnoreCase("desc")) {
+                comparator = comparator.reversed();
+            } else if (!direction.equalsIgnoreCase("asc")) {
+                throw new IllegalArgumentException("Unsupported sort direction: " + sort);
+            }
+        }
+        return comparator == byId ? comparator : comparator.thenComparing(byId);
+    }
+}
@@ -0,0 +1,292 @@
+package tech.bestwebshop.api.productcomposite;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.http.*;
+import org.springframework.lang.Nullable;
+import org.springframework.security.oauth2.common.exceptions.OAuth2Exception;
+import org.springframework.security.oauth2.provider.OAuth2Authentication;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.client.HttpStatusCodeException;
+import org.springframework.web.client.RestTemplate;
+import tech.bestwebshop.api.productcomposite.cache.InventoryCache;
+import tech.bestwebshop.api.productcomposite.events.CatalogEvents;
+import tech.bestwebshop.api.productcomposite.index.CategoryNameIndex;
+import tech.bestwebshop.api.productcomposite.logging.LogValues;
+import tech.bestwebshop.api.productcomposite.model.*;
+import tech.bestwebshop.api.productcomposite.security.BearerHeaders;
+
+import javax.annotation.security.RolesAllowed;
+import javax.validation.ConstraintViolation;
+import javax.validation.Validator;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.function.Supplier;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+
+/**
+ * Bulk variants of the product mutations for catalog imports.
+ * <p>
+ * Each endpoint takes an array and answers {@code 207 Multi-Status} with one {@link BatchResult} per item, in
+ * request order. Categories are looked up once per request and created once per distinct missing name; product
+ * writes run on the shared write executor with at most {@code inventory.batch.concurrency} requests in flight. A
+ * failing item does not stop the others.
+ */
+@RestController
+@CrossOrigin(origins = "*", allowedHeaders = "*")
+@EnableConfigurationProperties(BatchProperties.class)
+public class ProductBatchController {
+
+    private static final Logger LOGGER = Logger.getLogger(ProductBatchController.class.getSimpleName());
+
+    private static final String PRODUCT_SERVICE_URL = "http://product-service/products";
+    private static final String CATEGORY_SERVICE_URL = "http://category-service/categories";
+
+    private final RestTemplate restTemplate;
+    private final InventoryCache cache;
+    private final CategoryNameIndex categoryNames;
+    private final CategoryResolver categoryResolver;
+    private final CatalogEvents catalogEvents;
+    private final Validator validator;
+    private final ExecutorService writeExecutor;
+    private final BatchProperties properties;
+
+    public ProductBatchController(RestTemplate restTemplate, InventoryCache cache, CategoryNameIndex categoryNames,
+                                  CategoryResolver categoryResolver, CatalogEvents catalogEvents, Validator validator,
+                                  @Qualifier("writeExecutor") ExecutorService writeExecutor,
+                                  BatchProperties properties) {
+        this.restTemplate = restTemplate;
+        this.cache = cache;
+        this.categoryNames = categoryNames;
+        this.categoryResolver = categoryResolver;
+        this.catalogEvents = catalogEvents;
+        this.validator = validator;
+        this.writeExecutor = writeExecutor;
+        this.properties = properties;
+    }
+
+    @PostMapping("/products/batch")
+    @RolesAllowed({"ADMIN"})
+    public ResponseEntity<List<BatchResult<Product>>> newProducts(@RequestBody List<ProductDTO> productDTOs,
+                                                                 OAuth2Authentication auth) {
+        if (productDTOs.size() > properties.getMaxItems()) {
+            return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE).build();
+        }
+        BatchResult<Product>[] results = newResults(productDTOs.size());
+        Set<String> categoryNames = new HashSet<>();
+        for (int i = 0; i < productDTOs.size(); i++) {
+            String violations = violationsOf(productDTOs.get(i));
+            if (violations != null) {
+                results[i] = new BatchResult<>(i, HttpStatus.BAD_REQUEST.value(), null, violations);
+            } else {
+                categoryNames.add(productDTOs.get(i).getCategory());
+            }
+        }
+
+        Map<String, Category> categories;
+        try {
+            categories = getOrCreateCategories(categoryNames, auth);
+        } catch (OAuth2Exception ex) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+
+        BoundedParallel.forEach(productDTOs.size(), properties.getConcurrency(), writeExecutor, index -> {
+            if (results[index] != null) {
+                return;
+            }
+            ProductDTO productDTO = productDTOs.get(index);
+            Category category = categories.get(productDTO.getCategory());
+            if (category == null) {
+                results[index] = new BatchResult<>(index, HttpStatus.SERVICE_UNAVAILABLE.value(), null,
+                        "Category " + productDTO.getCategory() + " could not be created");
+                return;
+            }
+            CoreProduct newCoreProduct = new CoreProduct(0, productDTO.getName(), productDTO.getPrice(),
+                    category.getId(), productDTO.getDetails());
+            results[index] = attempt(index, HttpStatus.CREATED, () -> {
+                CoreProduct coreProduct = requireBody(restTemplate.exchange(PRODUCT_SERVICE_URL, HttpMethod.POST,
+                        buildHttpEntity(auth, newCoreProduct), CoreProduct.class));
+                return remember(compose(coreProduct, category));
+            });
+        });
+        return ResponseEntity.status(HttpStatus.MULTI_STATUS).body(Arrays.asList(results));
+    }
+
+    @PutMapping("/products/batch")
+    @RolesAllowed({"ADMIN"})
+    public ResponseEntity<List<BatchResult<Product>>> updateProducts(@RequestBody List<Product> productsToUpdate,
+                                                                    OAuth2Authentication auth) {
+        if (productsToUpdate.size() > properties.getMaxItems()) {
+            return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE).build();
+        }
+        BatchResult<Product>[] results = newResults(productsToUpdate.size());
+        CoreProduct[] coreProducts = new CoreProduct[productsToUpdate.size()];
+        BoundedParallel.forEach(productsToUpdate.size(), properties.getConcurrency(), writeExecutor, index -> {
+            Product productToUpdate = productsToUpdate.get(index);
+            String violations = productToUpdate.getCategory() == null ? "category must not be null"
+                    : violationsOf(productToUpdate);
+            if (violations != null) {
+                results[index] = new BatchResult<>(index, HttpStatus.BAD_REQUEST.value(), null, violations);
+                return;
+            }
+            CoreProduct coreProductToUpdate = new CoreProduct(productToUpdate.getId(), productToUpdate.getName(),
+                    productToUpdate.getPrice(), productToUpdate.getCategory().getId(), productToUpdate.getDetails());
+            results[index] = attempt(index, HttpStatus.ACCEPTED, () -> {
+                coreProducts[index] = requireBody(restTemplate.exchange(
+                        PRODUCT_SERVICE_URL + "/" + productToUpdate.getId(), HttpMethod.PUT,
+                        buildHttpEntity(auth, coreProductToUpdate), CoreProduct.class));
+                return null;
+            });
+        });
+        composeResults(coreProducts, results, true, auth);
+        return ResponseEntity.status(HttpStatus.MULTI_STATUS).body(Arrays.asList(results));
+    }
+
+    @DeleteMapping("/products/batch")
+    @RolesAllowed({"ADMIN"})
+    public ResponseEntity<List<BatchResult<Product>>> deleteProducts(@RequestBody List<Integer> productIds,
+                                                                    OAuth2Authentication auth) {
+        if (productIds.size() > properties.getMaxItems()) {
+            return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE).build();
+        }
+        BatchResult<Product>[] results = newResults(productIds.size());
+        CoreProduct[] coreProducts = new CoreProduct[productIds.size()];
+        BoundedParallel.forEach(productIds.size(), properties.getConcurrency(), writeExecutor, index -> {
+            Integer productId = productIds.get(index);
+            results[index] = attempt(index, HttpStatus.ACCEPTED, () -> {
+                coreProducts[index] = requireBody(restTemplate.exchange(PRODUCT_SERVICE_URL + "/" + productId,
+                        HttpMethod.DELETE, buildHttpEntity(auth, null), CoreProduct.class));
+                catalogEvents.productDeleted(productId);
+                return null;
+            });
+        });
+        composeResults(coreProducts, results, false, auth);
+        return ResponseEntity.status(HttpStatus.MULTI_STATUS).body(Arrays.asList(results));
+    }
+
+    /**
+     * Resolves each distinct category name through the name index, creating the missing ones. The category list
+     * is fetched at most once, and only if the index is too old to trust a miss. Names whose creation failed, or
+     * that could not be checked because the list could not be fetched, are absent from the result.
+     */
+    private Map<String, Category> getOrCreateCategories(Set<String> names, OAuth2Authentication auth) {
+        Map<String, Category> byName = new HashMap<>();
+        Set<String> missing = new HashSet<>();
+        for (String name : names) {
+            categoryNames.find(name).ifPresentOrElse(category -> byName.put(name, category), () -> missing.add(name));
+        }
+        if (missing.isEmpty()) {
+            return byName;
+        }
+        if (!categoryNames.isServable()) {
+            List<Category> existing;
+            try {
+                existing = List.of(requireBody(restTemplate.exchange(CATEGORY_SERVICE_URL, HttpMethod.GET,
+                        buildHttpEntity(auth, null), Category[].class)));
+            } catch (OAuth2Exception ex) {
+                throw ex;
+            } catch (RuntimeException ex) {
+                // creating without knowing what exists could duplicate categories
+                LOGGER.warning("[ProductBatchController#getOrCreateCategories] Fetching the categories failed: "
+                        + ex.getMessage());
+                return byName;
+            }
+            existing.forEach(category -> cache.categories().put(category.getId(), category));
+            categoryNames.replaceAll(existing);
+        }
+        for (String name : missing) {
+            try {
+                byName.put(name, categoryNames.getOrCreate(name, newName -> {
+                    Category created = requireBody(restTemplate.exchange(CATEGORY_SERVICE_URL, HttpMethod.POST,
+                            buildHttpEntity(auth, new CategoryDTO(newName)), Category.class));
+                    catalogEvents.categoryChanged(created);
+                    return created;
+                }));
+            } catch (OAuth2Exception ex) {
+                throw ex;
+            } catch (RuntimeException ex) {
+                LOGGER.warning("[ProductBatchController#getOrCreateCategories] Creating category "
+                        + LogValues.quote(name) + " failed: " + ex.getMessage());
+            }
+        }
+        return byName;
+    }
+
+    /**
+     * Joins the successfully written core products with their categories, fetching each category once.
+     * With {@code cacheResults} the composed products are also recorded as changed, locally and on the other replicas.
+     */
+    private void composeResults(CoreProduct[] coreProducts, BatchResult<Product>[] results, boolean cacheResults,
+                                OAuth2Authentication auth) {
+        Map<Integer, Category> categories = categoryResolver.resolve(Arrays.stream(coreProducts)
+                .filter(Objects::nonNull)
+                .map(CoreProduct::getCategoryID)
+                .collect(Collectors.toSet()), buildHttpEntity(auth, null));
+        for (int index = 0; index < coreProducts.length; index++) {
+            CoreProduct coreProduct = coreProducts[index];
+            if (coreProduct != null && results[index].getError() == null) {
+                Category category = categories.getOrDefault(coreProduct.getCategoryID(),
+                        CategoryResolver.unresolved(coreProduct.getCategoryID()));
+                Product product = compose(coreProduct, category);
+                if (cacheResults) {
+                    remember(product);
+                }
+                results[index].setBody(product);
+            }
+        }
+    }
+
+    private BatchResult<Product> attempt(int index, HttpStatus success, Supplier<Product> write) {
+        try {
+            return new BatchResult<>(index, success.value(), write.get(), null);
+        } catch (HttpStatusCodeException ex) {
+            return new BatchResult<>(index, ex.getRawStatusCode(), null, ex.getStatusText());
+        } catch (OAuth2Exception ex) {
+            return new BatchResult<>(index, HttpStatus.FORBIDDEN.value(), null, ex.getMessage());
+        } catch (RuntimeException ex) {
+            return new BatchResult<>(index, HttpStatus.SERVICE_UNAVAILABLE.value(), null, ex.getMessage());
+        }
+    }
+
+    @Nullable
+    private String violationsOf(Object item) {
+        Set<ConstraintViolation<Object>> violations = validator.validate(item);
+        if (violations.isEmpty()) {
+            return null;
+        }
+        return violations.stream()
+                .map(violation -> violation.getPropertyPath() + " " + violation.getMessage())
+                .sorted()
+                .collect(Collectors.joining(", "));
+    }
+
+    /**
+     * Records the product as changed, unless its category did not resolve in time; then the copies already cached
+     * are left for the refresher to correct rather than replaced with a stand-in category.
+     */
+    private Product remember(Product product) {
+        if (CategoryResolver.isResolved(product)) {
+            catalogEvents.productChanged(product);
+        }
+        return product;
+    }
+
+    private static Product compose(CoreProduct coreProduct, Category category) {
+        return new Product(coreProduct.getId(), coreProduct.getName(), coreProduct.getPrice(), category,
+                coreProduct.getDetails());
+    }
+
+    private static <T> T requireBody(ResponseEntity<T> responseEntity) {
+        return Objects.requireNonNull(responseEntity.getBody());
+    }
+
+    @SuppressWarnings("unchecked")
+    private static BatchResult<Product>[] newResults(int size) {
+        return (BatchResult<Product>[]) new BatchResult[size];
+    }
+
+    private static <T> HttpEntity<T> buildHttpEntity(OAuth2Authentication auth, @Nullable T body) {
+        return new HttpEntity<>(body, BearerHeaders.of(auth));
+    }
+}
@@ -0,0 +1,52 @@
+package tech.bestwebshop.api.productcomposite;
+
+import tech.bestwebshop.api.productcomposite.model.Category;
+import tech.bestwebshop.api.productcomposite.model.CoreProduct;
+import tech.bestwebshop.api.productcomposite.model.Product;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * The filter and join steps of {@code GET /products}, kept apart from the controller so that they can be
+ * benchmarked on their own.
+ */
+final class ProductQueries {
+
+    private ProductQueries() {
+    }
+
+    static List<CoreProduct> filter(CoreProduct[] coreProducts, String text, double minPrice, double maxPrice) {
+        return Arrays.stream(coreProducts)
+                .filter(product -> (product.getName().contains(text) || product.getDetails().contains(text))
+                        && product.getPrice() <= maxPrice
+                        && product.getPrice() >= minPrice)
+                .collect(Collectors.toList());
+    }
+
+    static List<Product> filter(Collection<Product> products, String text, double minPrice, double maxPrice) {
+        return products.stream()
+                .filter(product -> (product.getName().contains(text) || product.getDetails().contains(text))
+                        && product.getPrice() <= maxPrice
+                        && product.getPrice() >= minPrice)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Composes the core products with their categories. Categories missing from the map are replaced by
+     * {@link CategoryResolver#unresolved}.
+     */
+    static List<Product> join(List<CoreProduct> coreProducts, Map<Integer, Category> categories) {
+        return coreProducts.stream()
+                .map((CoreProduct coreProduct) -> {
+                    Category coreCategory = categories.getOrDefault(coreProduct.getCategoryID(),
+                            CategoryResolver.unresolved(coreProduct.getCategoryID()));
+                    return new Product(coreProduct.getId(), coreProduct.getName(), coreProduct.getPrice(), coreCategory,
+                            coreProduct.getDetails());
+                })
+                .collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,463 @@
+package tech.bestwebshop.api.productcomposite;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.oauth2.provider.OAuth2Authentication;
+import org.springframework.security.oauth2.provider.authentication.OAuth2AuthenticationDetails;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import tech.bestwebshop.api.productcomposite.cache.CachedValue;
+import tech.bestwebshop.api.productcomposite.cache.InventoryCache;
+import tech.bestwebshop.api.productcomposite.events.CatalogEvents;
+import tech.bestwebshop.api.productcomposite.index.CategoryNameIndex;
+import tech.bestwebshop.api.productcomposite.index.ProductIndex;
+import tech.bestwebshop.api.productcomposite.model.*;
+
+import javax.annotation.security.RolesAllowed;
+import javax.validation.Valid;
+import java.util.*;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+
+/**
+ * Non-blocking variant of {@link InventoryController} with the same routes and responses.
+ * <p>
+ * Handlers return {@link Mono}s composed from load-balanced {@link WebClient} calls, so no thread is held while
+ * product-service and category-service answer. Read handlers fall back to the local cache on downstream errors
+ * and write handlers answer 503, as the blocking fallbacks do. NDJSON streaming is only offered by the blocking
+ * controller.
+ */
+@RestController
+@CrossOrigin(origins = "*", allowedHeaders = "*")
+@ConditionalOnProperty(prefix = "inventory.reactive", name = "enabled", havingValue = "true")
+public class ReactiveInventoryController {
+
+    private static final Logger LOGGER = Logger.getLogger(ReactiveInventoryController.class.getSimpleName());
+
+    private static final String PRODUCT_SERVICE_URL = "http://product-service/products";
+    private static final String CATEGORY_SERVICE_URL = "http://category-service/categories";
+    private static final String MAX_PRICE = "1e10";
+    private static final String MIN_PRICE = "-1e10";
+
+    private final WebClient webClient;
+    private final InventoryCache cache;
+    private final ProductIndex productIndex;
+    private final CategoryNameIndex categoryNames;
+    private final CatalogEvents catalogEvents;
+    private final HttpCaching httpCaching;
+    private final FanOutProperties fanOutProperties;
+    private final ReactiveProperties reactiveProperties;
+    private final MeterRegistry meterRegistry;
+
+    public ReactiveInventoryController(WebClient.Builder loadBalancedWebClientBuilder, InventoryCache cache,
+                                       ProductIndex productIndex, CategoryNameIndex categoryNames,
+                                       CatalogEvents catalogEvents, HttpCaching httpCaching,
+                                       FanOutProperties fanOutProperties,
+                                       ReactiveProperties reactiveProperties, MeterRegistry meterRegistry) {
+        this.webClient = loadBalancedWebClientBuilder.build();
+        this.cache = cache;
+        this.productIndex = productIndex;
+        this.categoryNames = categoryNames;
+        this.catalogEvents = catalogEvents;
+        this.httpCaching = httpCaching;
+        this.fanOutProperties = fanOutProperties;
+        this.reactiveProperties = reactiveProperties;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @GetMapping("/products/{id}")
+    @RolesAllowed({"USER"})
+    public Mono<ResponseEntity<Product>> getProduct(@PathVariable(value = "id") Long productId,
+                                                    OAuth2Authentication auth) {
+        if (cache.isProductReadThrough()) {
+            Optional<CachedValue<Product>> cached = cache.products().lookup(productId.intValue());
+            if (cached.isPresent()) {
+                if (cached.get().isStale()) {
+                    // a 404 drops the entry, other failures keep it
+                    cache.products().refresh(productId.intValue(), () -> loadProduct(productId.intValue(), auth)
+                            .onErrorResume(WebClientResponseException.NotFound.class, ex -> {
+                                productIndex.remove(productId.intValue());
+                                return Mono.empty();
+                            })
+                            .blockOptional(), cache.refreshExecutor());
+                }
+                return Mono.just(httpCaching.tagged(ResponseEntity.ok(cached.get().getValue())));
+            }
+        }
+        return loadProduct(productId.intValue(), auth)
+                .map(ResponseEntity::ok)
+                .onErrorResume(WebClientResponseException.NotFound.class,
+                        ex -> Mono.just(ResponseEntity.notFound().build()))
+                .onErrorResume(ReactiveInventoryController::isForbidden,
+                        ex -> Mono.just(ResponseEntity.status(HttpStatus.FORBIDDEN).build()))
+                .onErrorResume(ex -> {
+                    countFallback("getProduct");
+                    return Mono.just(cache.products().get(productId.intValue())
+                            .map(ResponseEntity::ok)
+                            .orElseGet(() -> ResponseEntity.notFound().build()));
+                })
+                .map(httpCaching::tagged);
+    }
+
+    @GetMapping("/products")
+    @RolesAllowed({"USER"})
+    public Mono<ResponseEntity<List<Product>>> getProducts(@RequestParam(defaultValue = "") String text,
+                                                           @RequestParam(defaultValue = MIN_PRICE) Double minPrice,
+                                                           @RequestParam(defaultValue = MAX_PRICE) Double maxPrice,
+                                                           @RequestParam(required = false) Integer page,
+                                                           @RequestParam(required = false) Integer size,
+                                                           @RequestParam(required = false) String sort,
+                                                           OAuth2Authentication auth) {
+        Comparator<Product> order;
+        try {
+            order = Paging.productOrder(sort, size);
+        } catch (IllegalArgumentException ex) {
+            return Mono.just(ResponseEntity.badRequest().build());
+        }
+        if (!Paging.isValid(page, size)) {
+            return Mono.just(ResponseEntity.badRequest().build());
+        }
+        if (productIndex.isServable()) {
+            return Mono.just(httpCaching.tagged(Paging.paginate(
+                    ResponseEntity.ok(productIndex.search(text, minPrice, maxPrice)), page, size, order)));
+        }
+
+        Mono<List<CoreProduct>> coreProducts = get(PRODUCT_SERVICE_URL, auth, CoreProduct.class)
+                .collectList()
+                .timeout(fanOutProperties.getProductTimeout());
+        Mono<Map<Integer, Category>> categories = loadCategories(auth)
+                .timeout(fanOutProperties.getCategoryTimeout())
+                .onErrorResume(ex -> !isForbidden(ex), ex -> Mono.just(cache.categories().values()))
+                .map(list -> list.stream()
+                        .collect(Collectors.toMap(Category::getId, category -> category, (a, b) -> b)));
+
+        return Mono.zip(coreProducts, categories)
+                .map(legs -> {
+                    List<Product> products = legs.getT1().stream()
+                            .map(coreProduct -> compose(coreProduct, legs.getT2().getOrDefault(
+                                    coreProduct.getCategoryID(), CategoryResolver.unresolved(coreProduct.getCategoryID()))))
+                            .collect(Collectors.toList());
+                    // the whole catalog was fetched, filtering happens locally; products whose category did not
+                    // resolve in time are answered, but not remembered with a stand-in
+                    if (products.stream().allMatch(CategoryResolver::isResolved)) {
+                        cache.products().replaceAll(products.stream()
+                                .collect(Collectors.toMap(Product::getId, product -> product, (a, b) -> b)));
+                        productIndex.replaceAll(products);
+                    } else {
+                        products.stream().filter(CategoryResolver::isResolved).forEach(product -> {
+                            cache.products().put(product.getId(), product);
+                            productIndex.put(product);
+                        });
+                    }
+                    return products.stream()
+                            .filter(product -> (product.getName().contains(text) || product.getDetails().contains(text))
+                                    && product.getPrice() <= maxPrice
+                                    && product.getPrice() >= minPrice)
+                            .collect(Collectors.toList());
+                })
+                .map(ResponseEntity::ok)
+                .onErrorResume(ReactiveInventoryController::isForbidden,
+                        ex -> Mono.just(ResponseEntity.status(HttpStatus.FORBIDDEN).build()))
+                .onErrorResume(ex -> {
+                    LOGGER.warning("[ReactiveInventoryService#getProducts] Serving cache: " + ex.getMessage());
+                    countFallback("getProducts");
+                    List<Product> cached = productIndex.isComplete()
+                            ? productIndex.search(text, minPrice, maxPrice)
+                            : cache.products().values().stream()
+                            .filter(product -> (product.getName().contains(text) || product.getDetails().contains(text))
+                                    && product.getPrice() <= maxPrice
+                                    && product.getPrice() >= minPrice)
+                            .collect(Collectors.toList());
+                    return Mono.just(ResponseEntity.ok(cached));
+                })
+                .map(listing -> httpCaching.tagged(Paging.paginate(listing, page, size, order)));
+    }
+
+    @PostMapping("/products")
+    @RolesAllowed({"ADMIN"})
+    public Mono<ResponseEntity<Product>> newProduct(@RequestBody @Valid ProductDTO productDTO,
+                                                    OAuth2Authentication auth) {
+        return getOrCreateCategory(productDTO.getCategory(), auth)
+                .flatMap(category -> webClient.post().uri(PRODUCT_SERVICE_URL)
+                        .headers(headers -> headers.setBearerAuth(tokenOf(auth)))
+                        .bodyValue(new CoreProduct(0, productDTO.getName(), productDTO.getPrice(), category.getId(),
+                                productDTO.getDetails()))
+                        .retrieve()
+                        .bodyToMono(CoreProduct.class)
+                        .map(coreProduct -> compose(coreProduct, category)))
+                .map(product -> {
+                    catalogEvents.productChanged(product);
+                    return ResponseEntity.status(HttpStatus.CREATED).body(product);
+                })
+                .onErrorResume(this::writeFailure);
+    }
+
+    @PutMapping("/products/{id}")
+    @RolesAllowed({"ADMIN"})
+    public Mono<ResponseEntity<Product>> updateProduct(@PathVariable(value = "id") Integer productId,
+                                                       @RequestBody @Valid Product productToUpdate,
+                                                       OAuth2Authentication auth) {
+        CoreProduct coreProductToUpdate = new CoreProduct(productToUpdate.getId(), productToUpdate.getName(),
+                productToUpdate.getPrice(), productToUpdate.getCategory().getId(), productToUpdate.getDetails());
+        return webClient.put().uri(PRODUCT_SERVICE_URL + "/" + productId)
+                .headers(headers -> headers.setBearerAuth(tokenOf(auth)))
+                .bodyValue(coreProductToUpdate)
+                .retrieve()
+                .bodyToMono(CoreProduct.class)
+                .flatMap(coreProduct -> resolveCategory(coreProduct.getCategoryID(), auth)
+                        .map(category -> compose(coreProduct, category)))
+                .map(product -> {
+                    catalogEvents.productChanged(product);
+                    return ResponseEntity.status(HttpStatus.ACCEPTED).body(product);
+                })
+                .onErrorResume(this::writeFailure);
+    }
+
+    @DeleteMapping("/products/{id}")
+    @RolesAllowed({"ADMIN"})
+    public Mono<ResponseEntity<Product>> deleteProduct(@PathVariable(value = "id") Integer productId,
+                                                       OAuth2Authentication auth) {
+        return removeProduct(productId, auth)
+                .map(product -> ResponseEntity.accepted().body(product))
+                .onErrorResume(this::writeFailure);
+    }
+
+    @PostMapping("/categories")
+    @RolesAllowed({"ADMIN"})
+    public Mono<ResponseEntity<Category>> createCategory(@RequestBody @Valid CategoryDTO categoryDTO,
+                                                         OAuth2Authentication auth) {
+        return postCategory(categoryDTO, auth)
+                .map(ResponseEntity::ok)
+                .onErrorResume(this::writeFailure);
+    }
+
+    @GetMapping("/categories")
+    @RolesAllowed({"USER"})
+    public Mono<ResponseEntity<List<Category>>> getCategories(@RequestParam(required = false) Integer page,
+                                                              @RequestParam(required = false) Integer size,
+                                                              @RequestParam(required = false) String sort,
+                                                              OAuth2Authentication auth) {
+        Comparator<Category> order;
+        try {
+            order = Paging.categoryOrder(sort, size);
+        } catch (IllegalArgumentException ex) {
+            return Mono.just(ResponseEntity.badRequest().build());
+        }
+        if (!Paging.isValid(page, size)) {
+            return Mono.just(ResponseEntity.badRequest().build());
+        }
+        return loadCategories(auth)
+                .map(ResponseEntity::ok)
+                .onErrorResume(ReactiveInventoryController::isForbidden,
+                        ex -> Mono.just(ResponseEntity.status(HttpStatus.FORBIDDEN).build()))
+                .onErrorResume(ex -> {
+                    countFallback("getCategories");
+                    return Mono.just(ResponseEntity.ok(cache.categories().values()));
+                })
+                .map(listing -> httpCaching.tagged(Paging.paginate(listing, page, size, order)));
+    }
+
+    @GetMapping("categories/{id}")
+    @RolesAllowed({"USER"})
+    public Mono<ResponseEntity<Category>> getCategory(@PathVariable(value = "id") Integer categoryId,
+                                                      OAuth2Authentication auth) {
+        return resolveCategory(categoryId, auth)
+                .map(ResponseEntity::ok)
+                .onErrorResume(WebClientResponseException.NotFound.class,
+                        ex -> Mono.just(ResponseEntity.notFound().build()))
+                .onErrorResume(ReactiveInventoryController::isForbidden,
+                        ex -> Mono.just(ResponseEntity.status(HttpStatus.FORBIDDEN).build()))
+                .onErrorResume(ex -> {
+                    countFallback("getCategory");
+                    return Mono.just(cache.categories().get(categoryId)
+                            .map(ResponseEntity::ok)
+                            .orElseGet(() -> ResponseEntity.notFound().build()));
+                })
+                .map(httpCaching::tagged);
+    }
+
+    @PutMapping("/categories/{id}")
+    @RolesAllowed({"ADMIN"})
+    public Mono<ResponseEntity<Category>> updateCategory(@PathVariable(value = "id") Long categoryId,
+                                                         @RequestBody @Valid Category categoryToUpdate,
+                                                         OAuth2Authentication auth) {
+        return webClient.put().uri(CATEGORY_SERVICE_URL + "/" + categoryId)
+                .headers(headers -> headers.setBearerAuth(tokenOf(auth)))
+                .bodyValue(categoryToUpdate)
+                .retrieve()
+                .bodyToMono(Category.class)
+                .map(category -> {
+                    catalogEvents.categoryChanged(category);
+                    return ResponseEntity.status(HttpStatus.ACCEPTED).body(category);
+                })
+                .onErrorResume(this::writeFailure);
+    }
+
+    @DeleteMapping("/categories/{id}")
+    @RolesAllowed({"ADMIN"})
+    public Mono<ResponseEntity<Category>> deleteCategory(@PathVariable(value = "id") Long categoryId,
+                                                         OAuth2Authentication auth) {
+        // the products are looked up before anything is deleted, see the blocking controller
+        return get(PRODUCT_SERVICE_URL, auth, CoreProduct.class)
+                .filter(coreProduct -> coreProduct.getCategoryID() == categoryId.intValue())
+                .map(CoreProduct::getId)
+                .collectList()
+                .flatMap(productIds -> webClient.delete().uri(CATEGORY_SERVICE_URL + "/" + categoryId)
+                        .headers(headers -> headers.setBearerAuth(tokenOf(auth)))
+                        .retrieve()
+                        .bodyToMono(Category.class)
+                        .flatMap(category -> {
+                            catalogEvents.categoryDeleted(category.getId());
+                            return removeProducts(productIds, auth).map(undeleted -> ResponseEntity
+                                    .status(undeleted == 0 ? HttpStatus.ACCEPTED : HttpStatus.BAD_GATEWAY)
+                                    .header(InventoryController.UNDELETED_PRODUCTS_HEADER, String.valueOf(undeleted))
+                                    .body(category));
+                        })
+                        .onErrorResume(WebClientResponseException.NotFound.class, ex -> removeProducts(productIds, auth)
+                                .map(undeleted -> ResponseEntity
+                                        .status(undeleted == 0 ? HttpStatus.NOT_FOUND : HttpStatus.BAD_GATEWAY)
+                                        .header(InventoryController.UNDELETED_PRODUCTS_HEADER,
+                                                String.valueOf(undeleted))
+                                        .<Category>build())))
+                .onErrorResume(this::writeFailure);
+    }
+
+    /**
+     * @return the number of products that could not be deleted; products that are already gone count as deleted
+     */
+    private Mono<Integer> removeProducts(List<Integer> productIds, OAuth2Authentication auth) {
+        return Flux.fromIterable(productIds)
+                .flatMap(productId -> webClient.delete().uri(PRODUCT_SERVICE_URL + "/" + productId)
+                        .headers(headers -> headers.setBearerAuth(tokenOf(auth)))
+                        .retrieve()
+                        .bodyToMono(CoreProduct.class)
+                        .then(Mono.fromRunnable(() -> catalogEvents.productDeleted(productId)))
+                        .thenReturn(0)
+                        .onErrorResume(WebClientResponseException.NotFound.class, ex -> Mono.just(0))
+                        .onErrorResume(ex -> {
+                            LOGGER.warning("[ReactiveInventoryService#deleteCategory] Deleting product " + productId
+                                    + " failed: " + ex.getMessage());
+                            return Mono.just(1);
+                        }), reactiveProperties.getConcurrency())
+                .reduce(0, Integer::sum);
+    }
+
+    private Mono<Product> loadProduct(int productId, OAuth2Authentication auth) {
+        return webClient.get().uri(PRODUCT_SERVICE_URL + "/" + productId)
+                .headers(headers -> headers.setBearerAuth(tokenOf(auth)))
+                .retrieve()
+                .bodyToMono(CoreProduct.class)
+                .flatMap(coreProduct -> resolveCategory(coreProduct.getCategoryID(), auth)
+                        .map(category -> compose(coreProduct, category)))
+                .doOnNext(product -> {
+                    cache.products().put(product.getId(), product);
+                    productIndex.put(product);
+                });
+    }
+
+    private Mono<Product> removeProduct(int productId, OAuth2Authentication auth) {
+        return webClient.delete().uri(PRODUCT_SERVICE_URL + "/" + productId)
+                .headers(headers -> headers.setBearerAuth(tokenOf(auth)))
+                .retrieve()
+                .bodyToMono(CoreProduct.class)
+                .doOnNext(coreProduct -> catalogEvents.productDeleted(productId))
+                .flatMap(coreProduct -> resolveCategory(coreProduct.getCategoryID(), auth)
+                        .map(category -> compose(coreProduct, category)));
+    }
+
+    private Mono<Category> resolveCategory(int categoryId, OAuth2Authentication auth) {
+        if (cache.isCategoryReadThrough()) {
+            Optional<Category> cached = cache.categories().get(categoryId);
+            if (cached.isPresent()) {
+                return Mono.just(cached.get());
+            }
+        }
+        return webClient.get().uri(CATEGORY_SERVICE_URL + "/" + categoryId)
+                .headers(headers -> headers.setBearerAuth(tokenOf(auth)))
+                .retrieve()
+                .bodyToMono(Category.class)
+                .doOnNext(category -> cache.categories().put(category.getId(), category));
+    }
+
+    private Mono<List<Category>> loadCategories(OAuth2Authentication auth) {
+        return get(CATEGORY_SERVICE_URL, auth, Category.class)
+                .collectList()
+                .doOnNext(categories -> {
+                    cache.categories().replaceAll(categories.stream()
+                            .collect(Collectors.toMap(Category::getId, category -> category, (a, b) -> b)));
+                    categoryNames.replaceAll(categories);
+                });
+    }
+
+    private Mono<Category> getOrCreateCategory(String categoryName, OAuth2Authentication auth) {
+        Optional<Category> known = categoryNames.find(categoryName);
+        if (known.isPresent()) {
+            return Mono.just(known.get());
+        }
+        if (categoryNames.isServable()) {
+            return postCategory(new CategoryDTO(categoryName), auth);
+        }
+        return loadCategories(auth)
+                .flatMap(categories -> categories.stream()
+                        .filter(category -> category.getName().equals(categoryName))
+                        .findFirst()
+                        .map(Mono::just)
+                        .orElseGet(() -> postCategory(new CategoryDTO(categoryName), auth)));
+    }
+
+    private Mono<Category> postCategory(CategoryDTO categoryDTO, OAuth2Authentication auth) {
+        return webClient.post().uri(CATEGORY_SERVICE_URL)
+                .headers(headers -> headers.setBearerAuth(tokenOf(auth)))
+                .bodyValue(categoryDTO)
+                .retrieve()
+                .bodyToMono(Category.class)
+                .doOnNext(catalogEvents::categoryChanged);
+    }
+
+    private void countFallback(String handler) {
+        meterRegistry.counter("inventory.fallbacks", "handler", handler).increment();
+    }
+
+    private <T> Flux<T> get(String url, OAuth2Authentication auth, Class<T> elementType) {
+        return webClient.get().uri(url)
+                .headers(headers -> headers.setBearerAuth(tokenOf(auth)))
+                .retrieve()
+                .bodyToFlux(elementType);
+    }
+
+    /**
+     * Maps a failed mutation to the status the blocking controller would answer with.
+     */
+    private <T> Mono<ResponseEntity<T>> writeFailure(Throwable ex) {
+        if (ex instanceof WebClientResponseException.NotFound) {
+            return Mono.just(ResponseEntity.notFound().build());
+        }
+        if (ex instanceof WebClientResponseException.BadRequest) {
+            return Mono.just(ResponseEntity.badRequest().build());
+        }
+        if (isForbidden(ex)) {
+            return Mono.just(ResponseEntity.status(HttpStatus.FORBIDDEN).build());
+        }
+        LOGGER.warning("[ReactiveInventoryService] Downstream call failed: " + ex.getMessage());
+        return Mono.just(ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build());
+    }
+
+    private static boolean isForbidden(Throwable ex) {
+        return ex instanceof WebClientResponseException.Unauthorized
+                || ex instanceof WebClientResponseException.Forbidden;
+    }
+
+    private static Product compose(CoreProduct coreProduct, Category category) {
+        return new Product(coreProduct.getId(), coreProduct.getName(), coreProduct.getPrice(), category,
+                coreProduct.getDetails());
+    }
+
+    private static String tokenOf(OAuth2Authentication auth) {
+        return ((OAuth2AuthenticationDetails) auth.getDetails()).getTokenValue();
+    }
+}
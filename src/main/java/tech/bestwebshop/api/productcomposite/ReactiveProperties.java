@@ -0,0 +1,19 @@
+package tech.bestwebshop.api.productcomposite;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Switches the inventory API from the blocking {@link InventoryController} to the non-blocking
+ * {@link ReactiveInventoryController}. Both serve the same routes, so exactly one of them is active.
+ */
+@Data
+@ConfigurationProperties(prefix = "inventory.reactive")
+public class ReactiveProperties {
+
+    private boolean enabled = false;
+    /**
+     * Maximum number of concurrent downstream calls issued by one request, e.g. for cascading deletes.
+     */
+    private int concurrency = 8;
+}
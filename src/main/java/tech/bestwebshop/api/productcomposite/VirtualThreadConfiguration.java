@@ -0,0 +1,49 @@
+package tech.bestwebshop.api.productcomposite;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ConcurrentTaskExecutor;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.util.logging.Logger;
+
+/**
+ * Moves Tomcat's request processing and Spring MVC's async handling onto virtual threads, so a request blocked on
+ * {@code restTemplate.exchange} no longer occupies a platform thread. On a runtime without virtual threads a
+ * warning is logged and everything, the fan-out and hedge executors included, stays on platform threads.
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "inventory.virtual-threads", name = "enabled", havingValue = "true")
+public class VirtualThreadConfiguration implements WebMvcConfigurer {
+
+    private static final Logger LOGGER = Logger.getLogger(VirtualThreadConfiguration.class.getSimpleName());
+
+    private final boolean supported = VirtualThreads.isSupported();
+
+    public VirtualThreadConfiguration() {
+        if (!supported) {
+            LOGGER.warning("[VirtualThreadConfiguration] inventory.virtual-threads.enabled is set, but Java "
+                    + System.getProperty("java.version") + " has no virtual threads; using platform threads.");
+        }
+    }
+
+    @Bean
+    public TomcatProtocolHandlerCustomizer<?> virtualThreadProtocolHandlerCustomizer() {
+        return protocolHandler -> {
+            if (supported) {
+                protocolHandler.setExecutor(VirtualThreads.newThreadPerTaskExecutor("tomcat-"));
+            }
+        };
+    }
+
+    @Override
+    public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+        if (supported) {
+            configurer.setTaskExecutor(new ConcurrentTaskExecutor(
+                    VirtualThreads.newThreadPerTaskExecutor("inventory-async-")));
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package tech.bestwebshop.api.productcomposite;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Runs servlet requests, MVC async work and the downstream fan-out on virtual threads. Needs a Java 21 runtime,
+ * older ones log a warning and keep platform threads; the {@code virtual-threads} profile enables it.
+ */
+@Data
+@ConfigurationProperties(prefix = "inventory.virtual-threads")
+public class VirtualThreadProperties {
+
+    private boolean enabled = false;
+}
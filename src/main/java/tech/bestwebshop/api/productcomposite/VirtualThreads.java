@@ -0,0 +1,43 @@
+package tech.bestwebshop.api.productcomposite;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Access to Java 21 virtual threads from code compiled for Java 11. The calls are made reflectively so the same
+ * artifact still runs, with virtual threads unavailable, on older runtimes.
+ */
+final class VirtualThreads {
+
+    private VirtualThreads() {
+    }
+
+    static boolean isSupported() {
+        try {
+            Thread.class.getMethod("ofVirtual");
+            return true;
+        } catch (NoSuchMethodException ex) {
+            return false;
+        }
+    }
+
+    /**
+     * @return an executor that starts a new virtual thread named {@code namePrefix<n>} for every task
+     * @throws IllegalStateException if the runtime has no virtual threads
+     */
+    static ExecutorService newThreadPerTaskExecutor(String namePrefix) {
+        try {
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            Class<?> builderType = Class.forName("java.lang.Thread$Builder");
+            builder = builderType.getMethod("name", String.class, long.class).invoke(builder, namePrefix, 0L);
+            ThreadFactory factory = (ThreadFactory) builderType.getMethod("factory").invoke(builder);
+            Method newExecutor = Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class);
+            return (ExecutorService) newExecutor.invoke(null, factory);
+        } catch (ReflectiveOperationException ex) {
+            throw new IllegalStateException("Virtual threads require a Java 21 or newer runtime, running on "
+                    + System.getProperty("java.version"), ex);
+        }
+    }
+}
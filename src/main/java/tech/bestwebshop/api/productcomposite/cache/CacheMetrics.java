@@ -0,0 +1,49 @@
+package tech.bestwebshop.api.productcomposite.cache;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.lang.NonNull;
+import org.springframework.stereotype.Component;
+
+/**
+ * Publishes the statistics of the product and category caches, tagged {@code cache=productCache} and
+ * {@code cache=categoryCache}. Other {@link LocalCache}s are published through {@link #bind}.
+ */
+@Component
+public class CacheMetrics implements MeterBinder {
+
+    private final InventoryCache cache;
+
+    public CacheMetrics(InventoryCache cache) {
+        this.cache = cache;
+    }
+
+    @Override
+    public void bindTo(@NonNull MeterRegistry registry) {
+        bind(registry, "productCache", cache.products());
+        bind(registry, "categoryCache", cache.categories());
+    }
+
+    public static void bind(MeterRegistry registry, String name, LocalCache<?, ?> cache) {
+        Gauge.builder("inventory.cache.hit.ratio", cache, c -> c.stats().hitRatio())
+                .tag("cache", name)
+                .description("Share of lookups answered from the cache")
+                .register(registry);
+        Gauge.builder("inventory.cache.size", cache, LocalCache::size)
+                .tag("cache", name)
+                .register(registry);
+        FunctionCounter.builder("inventory.cache.requests", cache, c -> c.stats().getHitCount())
+                .tag("cache", name)
+                .tag("result", "hit")
+                .register(registry);
+        FunctionCounter.builder("inventory.cache.requests", cache, c -> c.stats().getMissCount())
+                .tag("cache", name)
+                .tag("result", "miss")
+                .register(registry);
+        FunctionCounter.builder("inventory.cache.evictions", cache, c -> c.stats().getEvictionCount())
+                .tag("cache", name)
+                .register(registry);
+    }
+}
@@ -0,0 +1,48 @@
+package tech.bestwebshop.api.productcomposite.cache;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "inventory.cache")
+public class CacheProperties {
+
+    private Spec products = new Spec();
+    private Spec categories = new Spec();
+    /**
+     * Number of threads that reload stale entries in the background.
+     */
+    private int refreshThreads = 4;
+    private Snapshot snapshot = new Snapshot();
+
+    @Data
+    public static class Spec {
+        private long maximumSize = 100_000;
+        private Duration expireAfterWrite = Duration.ofHours(1);
+        /**
+         * Age after which a cached entry is still served but reloaded asynchronously.
+         */
+        private Duration refreshAfterWrite = Duration.ofSeconds(30);
+        /**
+         * Serve single-entity reads from the cache before calling the backing service.
+         */
+        private boolean readThrough = false;
+    }
+
+    @Data
+    public static class Snapshot {
+        /**
+         * Write both caches to {@code path} every {@code interval} and on shutdown, and load them at startup.
+         */
+        private boolean enabled = false;
+        /**
+         * File of this instance alone; instances sharing a file overwrite each other's snapshots. Required when
+         * enabled.
+         */
+        private Path path;
+        private Duration interval = Duration.ofMinutes(1);
+    }
+}
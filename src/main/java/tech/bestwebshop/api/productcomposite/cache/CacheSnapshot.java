@@ -0,0 +1,270 @@
+package tech.bestwebshop.api.productcomposite.cache;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import tech.bestwebshop.api.productcomposite.model.Category;
+import tech.bestwebshop.api.productcomposite.model.Product;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+/**
+ * Keeps a copy of the product and category caches on local disk so that a restarted instance can answer cache
+ * hits and fallbacks before product-service and category-service have been asked for anything.
+ * <p>
+ * The snapshot is written every {@code inventory.cache.snapshot.interval} and on shutdown, sequentially through a
+ * {@link FileChannel} into a temporary file that then replaces the previous snapshot, so a crash mid-write never
+ * leaves a truncated file behind. It is read back memory-mapped while the application context starts, i.e.
+ * before the instance registers with Eureka. The header records when the snapshot was written, and loaded entries
+ * are aged by that much: they turn stale and expire as if they had stayed in memory, and a snapshot older than
+ * {@code expire-after-write} restores nothing. A missing, foreign or damaged file is ignored.
+ * <p>
+ * Off by default; enabling it requires a {@code path} that no other instance writes to.
+ */
+@Component
+public class CacheSnapshot {
+
+    private static final Logger LOGGER = Logger.getLogger(CacheSnapshot.class.getSimpleName());
+
+    private static final int MAGIC = 0x494E5643; // "INVC"
+    private static final int VERSION = 2;
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final InventoryCache cache;
+    private final CacheProperties.Snapshot properties;
+    private final Clock clock;
+    private ScheduledExecutorService scheduler;
+
+    @Autowired
+    public CacheSnapshot(InventoryCache cache, CacheProperties properties) {
+        this(cache, properties, Clock.systemUTC());
+    }
+
+    CacheSnapshot(InventoryCache cache, CacheProperties properties, Clock clock) {
+        this.cache = cache;
+        this.properties = properties.getSnapshot();
+        this.clock = clock;
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        if (properties.getPath() == null) {
+            LOGGER.warning("[CacheSnapshot#start] inventory.cache.snapshot.path is not set, snapshots stay off.");
+            return;
+        }
+        load();
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "inventory-cache-snapshot");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long interval = properties.getInterval().toMillis();
+        scheduler.scheduleWithFixedDelay(this::save, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            save();
+        }
+    }
+
+    void load() {
+        try {
+            Contents contents = read(properties.getPath());
+            // the clock may have been set back since, a snapshot is never younger than zero
+            Duration age = Duration.ofMillis(Math.max(0, clock.millis() - contents.savedAt));
+            long categories = contents.categories.stream()
+                    .filter(category -> cache.categories().putIfAbsent(category.getId(), category, age))
+                    .count();
+            long products = contents.products.stream()
+                    .filter(product -> cache.products().putIfAbsent(product.getId(), product, age))
+                    .count();
+            LOGGER.info("[CacheSnapshot#load] Loaded " + products + " products and " + categories
+                    + " categories from " + properties.getPath() + ", written " + age.toSeconds() + " s ago.");
+        } catch (NoSuchFileException ex) {
+            LOGGER.info("[CacheSnapshot#load] No snapshot at " + properties.getPath() + ", starting cold.");
+        } catch (IOException | RuntimeException ex) {
+            LOGGER.warning("[CacheSnapshot#load] Ignoring unreadable snapshot " + properties.getPath() + ": " + ex);
+        }
+    }
+
+    void save() {
+        List<Product> products = cache.products().values();
+        List<Category> categories = cache.categories().values();
+        // an instance that could not load anything must not replace a good snapshot with an empty one
+        if (products.isEmpty() && categories.isEmpty()) {
+            return;
+        }
+        try {
+            write(properties.getPath(), new Contents(products, categories, clock.millis()));
+        } catch (IOException | RuntimeException ex) {
+            LOGGER.warning("[CacheSnapshot#save] Writing " + properties.getPath() + " failed: " + ex);
+        }
+    }
+
+    static void write(Path path, Contents contents) throws IOException {
+        Path directory = path.toAbsolutePath().getParent();
+        Files.createDirectories(directory);
+        Path temporary = Files.createTempFile(directory, path.getFileName().toString(), ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING)) {
+                Writer writer = new Writer(channel);
+                writer.putInt(MAGIC);
+                writer.putInt(VERSION);
+                writer.putLong(contents.savedAt);
+                writer.putInt(contents.categories.size());
+                for (Category category : contents.categories) {
+                    writer.putInt(category.getId());
+                    writer.putString(category.getName());
+                }
+                writer.putInt(contents.products.size());
+                for (Product product : contents.products) {
+                    writer.putInt(product.getId());
+                    writer.putString(product.getName());
+                    writer.putDouble(product.getPrice());
+                    writer.putInt(product.getCategory().getId());
+                    writer.putString(product.getCategory().getName());
+                    writer.putString(product.getDetails());
+                }
+                writer.flush();
+                channel.force(false);
+            }
+            Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    static Contents read(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+                throw new IOException("not a version " + VERSION + " cache snapshot");
+            }
+            long savedAt = buffer.getLong();
+            int categoryCount = buffer.getInt();
+            List<Category> categories = new ArrayList<>(Math.min(categoryCount, buffer.remaining()));
+            for (int i = 0; i < categoryCount; i++) {
+                categories.add(new Category(buffer.getInt(), getString(buffer)));
+            }
+            int productCount = buffer.getInt();
+            List<Product> products = new ArrayList<>(Math.min(productCount, buffer.remaining()));
+            for (int i = 0; i < productCount; i++) {
+                int id = buffer.getInt();
+                String name = getString(buffer);
+                double price = buffer.getDouble();
+                Category category = new Category(buffer.getInt(), getString(buffer));
+                products.add(new Product(id, name, price, category, getString(buffer)));
+            }
+            return new Contents(products, categories, savedAt);
+        } catch (BufferUnderflowException ex) {
+            throw new IOException("truncated cache snapshot", ex);
+        }
+    }
+
+    private static String getString(ByteBuffer buffer) throws IOException {
+        int length = buffer.getInt();
+        if (length < 0 || length > buffer.remaining()) {
+            throw new IOException("damaged cache snapshot, string of " + length + " bytes at " + buffer.position());
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    static final class Contents {
+        final List<Product> products;
+        final List<Category> categories;
+        /**
+         * Wall-clock time the snapshot was taken, in epoch milliseconds.
+         */
+        final long savedAt;
+
+        Contents(List<Product> products, List<Category> categories, long savedAt) {
+            this.products = products;
+            this.categories = categories;
+            this.savedAt = savedAt;
+        }
+    }
+
+    /**
+     * Sequential writer over a reused direct buffer that is drained to the channel whenever it fills up.
+     */
+    private static final class Writer {
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+
+        private Writer(FileChannel channel) {
+            this.channel = channel;
+        }
+
+        void putInt(int value) throws IOException {
+            ensure(Integer.BYTES);
+            buffer.putInt(value);
+        }
+
+        void putLong(long value) throws IOException {
+            ensure(Long.BYTES);
+            buffer.putLong(value);
+        }
+
+        void putDouble(double value) throws IOException {
+            ensure(Double.BYTES);
+            buffer.putDouble(value);
+        }
+
+        void putString(String value) throws IOException {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            putInt(bytes.length);
+            if (bytes.length > buffer.capacity()) {
+                flush();
+                ByteBuffer large = ByteBuffer.wrap(bytes);
+                while (large.hasRemaining()) {
+                    channel.write(large);
+                }
+                return;
+            }
+            ensure(bytes.length);
+            buffer.put(bytes);
+        }
+
+        void flush() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            buffer.clear();
+        }
+
+        private void ensure(int bytes) throws IOException {
+            if (buffer.remaining() < bytes) {
+                flush();
+            }
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package tech.bestwebshop.api.productcomposite.cache;
+
+import lombok.Value;
+
+@Value
+public class CacheStats {
+
+    long hitCount;
+    long missCount;
+    long evictionCount;
+    long size;
+
+    public double hitRatio() {
+        long requests = hitCount + missCount;
+        return requests == 0 ? 1.0 : (double) hitCount / requests;
+    }
+}
@@ -0,0 +1,10 @@
+package tech.bestwebshop.api.productcomposite.cache;
+
+import lombok.Value;
+
+@Value
+public class CachedValue<V> {
+
+    V value;
+    boolean stale;
+}
@@ -0,0 +1,77 @@
+package tech.bestwebshop.api.productcomposite.cache;
+
+import org.springframework.lang.Nullable;
+import tech.bestwebshop.api.productcomposite.model.Category;
+import tech.bestwebshop.api.productcomposite.model.Product;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+
+/**
+ * SHA-256 digest, truncated to 128 bits, over every field of a product or category. The product and category caches
+ * compute it once per written value; any other object is digested from its {@code toString}.
+ */
+public final class ContentDigest {
+
+    public static final int LENGTH = 16;
+
+    private ContentDigest() {
+    }
+
+    public static byte[] of(@Nullable Object entity) {
+        MessageDigest digest = sha256();
+        try (DataOutputStream out = new DataOutputStream(new DigestOutputStream(OutputStream.nullOutputStream(),
+                digest))) {
+            write(out, entity);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        return Arrays.copyOf(digest.digest(), LENGTH);
+    }
+
+    public static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    private static void write(DataOutputStream out, @Nullable Object entity) throws IOException {
+        if (entity instanceof Product) {
+            Product product = (Product) entity;
+            out.writeByte('P');
+            out.writeInt(product.getId());
+            writeString(out, product.getName());
+            out.writeDouble(product.getPrice());
+            write(out, product.getCategory());
+            writeString(out, product.getDetails());
+        } else if (entity instanceof Category) {
+            Category category = (Category) entity;
+            out.writeByte('C');
+            out.writeInt(category.getId());
+            writeString(out, category.getName());
+        } else {
+            // any other body is a Lombok value whose toString lists all of its fields
+            out.writeByte('O');
+            writeString(out, String.valueOf(entity));
+        }
+    }
+
+    private static void writeString(DataOutputStream out, @Nullable String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+}
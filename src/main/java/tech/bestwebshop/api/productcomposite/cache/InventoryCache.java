@@ -0,0 +1,73 @@
+package tech.bestwebshop.api.productcomposite.cache;
+
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.stereotype.Component;
+import tech.bestwebshop.api.productcomposite.model.Category;
+import tech.bestwebshop.api.productcomposite.model.Product;
+
+import javax.annotation.PreDestroy;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Local copies of the composed products and their categories, shared by the request handlers and their
+ * fallbacks. Both caches keep the {@link ContentDigest} of every value they hold, which the entity tags are built
+ * from.
+ */
+@Component
+@EnableConfigurationProperties(CacheProperties.class)
+public class InventoryCache {
+
+    private final CacheProperties properties;
+    private final LocalCache<Integer, Product> products;
+    private final LocalCache<Integer, Category> categories;
+    private final ExecutorService refreshExecutor;
+
+    public InventoryCache(CacheProperties properties) {
+        this.properties = properties;
+        this.products = create(properties.getProducts());
+        this.categories = create(properties.getCategories());
+        this.refreshExecutor = Executors.newFixedThreadPool(properties.getRefreshThreads(), daemonThreads());
+    }
+
+    public LocalCache<Integer, Product> products() {
+        return products;
+    }
+
+    public LocalCache<Integer, Category> categories() {
+        return categories;
+    }
+
+    public boolean isProductReadThrough() {
+        return properties.getProducts().isReadThrough();
+    }
+
+    public boolean isCategoryReadThrough() {
+        return properties.getCategories().isReadThrough();
+    }
+
+    public ExecutorService refreshExecutor() {
+        return refreshExecutor;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        refreshExecutor.shutdownNow();
+    }
+
+    private static <V> LocalCache<Integer, V> create(CacheProperties.Spec spec) {
+        return new LocalCache<>(spec.getMaximumSize(), spec.getExpireAfterWrite(), spec.getRefreshAfterWrite(),
+                ContentDigest::of);
+    }
+
+    private static ThreadFactory daemonThreads() {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, "inventory-cache-refresh-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
@@ -0,0 +1,330 @@
+package tech.bestwebshop.api.productcomposite.cache;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Bounded, thread-safe key/value cache with expire-after-write semantics.
+ * <p>
+ * Entries live in a {@link ConcurrentHashMap} (lock striping is done by the map itself). Size eviction is FIFO
+ * in insertion order. {@link #replaceAll(Map)} builds a complete new generation off to the side and publishes it
+ * with a single volatile write, so readers see either the old or the new contents but never a half-built map.
+ * Writes and invalidations that race with the swap are repeated on the new generation, so none of them is lost.
+ * <p>
+ * Entries older than {@code refreshAfterWrite} are still served by {@link #lookup(Object)} but flagged as stale,
+ * which lets callers return them immediately and reload them through {@link #refresh(Object, Supplier, Executor)}.
+ * <p>
+ * A cache created with a digester computes each value's digest once, when the value is written, and hands it out
+ * through {@link #digest(Object, Object)} for as long as that value is cached.
+ */
+public class LocalCache<K, V> {
+
+    private final long maximumSize;
+    private final long expireAfterWriteNanos;
+    private final long refreshAfterWriteNanos;
+    private final LongSupplier ticker;
+    private final Function<? super V, byte[]> digester;
+
+    private final Set<K> refreshing = ConcurrentHashMap.newKeySet();
+
+    private final AtomicLong sequence = new AtomicLong();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    private volatile Generation<K, V> generation = new Generation<>();
+
+    public LocalCache(long maximumSize, Duration expireAfterWrite) {
+        this(maximumSize, expireAfterWrite, Duration.ZERO);
+    }
+
+    public LocalCache(long maximumSize, Duration expireAfterWrite, Duration refreshAfterWrite) {
+        this(maximumSize, expireAfterWrite, refreshAfterWrite, System::nanoTime, null);
+    }
+
+    public LocalCache(long maximumSize, Duration expireAfterWrite, Duration refreshAfterWrite,
+                      Function<? super V, byte[]> digester) {
+        this(maximumSize, expireAfterWrite, refreshAfterWrite, System::nanoTime, digester);
+    }
+
+    LocalCache(long maximumSize, Duration expireAfterWrite, Duration refreshAfterWrite, LongSupplier ticker) {
+        this(maximumSize, expireAfterWrite, refreshAfterWrite, ticker, null);
+    }
+
+    LocalCache(long maximumSize, Duration expireAfterWrite, Duration refreshAfterWrite, LongSupplier ticker,
+               Function<? super V, byte[]> digester) {
+        if (maximumSize <= 0) {
+            throw new IllegalArgumentException("maximumSize must be positive");
+        }
+        this.maximumSize = maximumSize;
+        this.expireAfterWriteNanos = expireAfterWrite.toNanos();
+        this.refreshAfterWriteNanos = refreshAfterWrite.toNanos();
+        this.ticker = ticker;
+        this.digester = digester;
+    }
+
+    public Optional<V> get(K key) {
+        return lookup(key).map(CachedValue::getValue);
+    }
+
+    /**
+     * Like {@link #get(Object)}, but also reports whether the entry is due for a refresh.
+     */
+    public Optional<CachedValue<V>> lookup(K key) {
+        Generation<K, V> current = generation;
+        Entry<K, V> entry = current.entries.get(key);
+        if (entry == null) {
+            misses.increment();
+            return Optional.empty();
+        }
+        long now = ticker.getAsLong();
+        if (isExpired(entry, now)) {
+            if (current.entries.remove(key, entry)) {
+                evictions.increment();
+            }
+            misses.increment();
+            return Optional.empty();
+        }
+        hits.increment();
+        boolean stale = refreshAfterWriteNanos > 0 && now - entry.writeTime >= refreshAfterWriteNanos;
+        return Optional.of(new CachedValue<>(entry.value, stale));
+    }
+
+    /**
+     * Returns the digest computed when {@code value} was written for {@code key}, or {@code null} if the cache has
+     * no digester or currently holds a different instance for the key.
+     */
+    public byte[] digest(K key, V value) {
+        Entry<K, V> entry = generation.entries.get(key);
+        return entry != null && entry.value == value ? entry.digest : null;
+    }
+
+    /**
+     * Reloads the entry for {@code key} on the given executor unless a refresh for it is already running.
+     * If the loader returns {@link Optional#empty()}, the value no longer exists and the entry is removed. If the
+     * loader fails, the old entry is kept until it expires. The result only replaces the entry the refresh started
+     * from: an entry written, invalidated or replaced in the meantime wins over it.
+     *
+     * @return {@code true} if a refresh was scheduled by this call
+     */
+    public boolean refresh(K key, Supplier<Optional<V>> loader, Executor executor) {
+        Generation<K, V> current = generation;
+        Entry<K, V> before = current.entries.get(key);
+        if (before == null || !refreshing.add(key)) {
+            return false;
+        }
+        try {
+            executor.execute(() -> {
+                try {
+                    Optional<V> value = loader.get();
+                    if (value.isPresent()) {
+                        current.entries.replace(key, before,
+                                entry(key, value.get(), ticker.getAsLong(), before.sequence));
+                    } else {
+                        current.entries.remove(key, before);
+                    }
+                } catch (RuntimeException ex) {
+                    // transient failure, keep serving the old entry
+                } finally {
+                    refreshing.remove(key);
+                }
+            });
+        } catch (RejectedExecutionException ex) {
+            refreshing.remove(key);
+            return false;
+        }
+        return true;
+    }
+
+    public void put(K key, V value) {
+        Generation<K, V> current;
+        do {
+            current = generation;
+            write(current, key, value, ticker.getAsLong());
+            // a generation published by replaceAll meanwhile would lose the write, repeat it there
+        } while (generation != current);
+    }
+
+    private void write(Generation<K, V> target, K key, V value, long writeTime) {
+        while (true) {
+            Entry<K, V> previous = target.entries.get(key);
+            if (previous == null) {
+                Entry<K, V> entry = entry(key, value, writeTime, sequence.incrementAndGet());
+                if (target.entries.putIfAbsent(key, entry) == null) {
+                    target.enqueue(entry);
+                    evictIfNecessary(target);
+                    return;
+                }
+            } else if (target.entries.replace(key, previous, entry(key, value, writeTime, previous.sequence))) {
+                // an overwrite keeps the original insertion slot in the eviction queue
+                return;
+            }
+        }
+    }
+
+    public void putIfAbsent(K key, V value) {
+        putIfAbsent(key, value, Duration.ZERO);
+    }
+
+    /**
+     * Like {@link #putIfAbsent(Object, Object)} for a value that was written {@code age} ago elsewhere, e.g. to
+     * disk. It expires and turns stale that much earlier; a value older than {@code expireAfterWrite} is dropped.
+     *
+     * @return {@code true} if the value was added
+     */
+    public boolean putIfAbsent(K key, V value, Duration age) {
+        while (true) {
+            Generation<K, V> current = generation;
+            long now = ticker.getAsLong();
+            Entry<K, V> entry = entry(key, value, now - age.toNanos(), sequence.incrementAndGet());
+            if (isExpired(entry, now)) {
+                return false;
+            }
+            Entry<K, V> previous = current.entries.putIfAbsent(key, entry);
+            if (previous != null && isExpired(previous, now)
+                    && current.entries.replace(key, previous, entry)) {
+                previous = null;
+            }
+            if (previous == null) {
+                current.enqueue(entry);
+                evictIfNecessary(current);
+            }
+            if (generation == current) {
+                return previous == null;
+            }
+        }
+    }
+
+    public void invalidate(K key) {
+        Generation<K, V> current;
+        do {
+            current = generation;
+            current.entries.remove(key);
+        } while (generation != current);
+    }
+
+    /**
+     * Atomically replaces the whole content of the cache with the given snapshot.
+     */
+    public void replaceAll(Map<K, V> snapshot) {
+        Generation<K, V> next = new Generation<>();
+        long now = ticker.getAsLong();
+        for (Map.Entry<K, V> mapping : snapshot.entrySet()) {
+            Entry<K, V> entry = entry(mapping.getKey(), mapping.getValue(), now, sequence.incrementAndGet());
+            if (next.entries.put(entry.key, entry) == null) {
+                next.enqueue(entry);
+            }
+        }
+        evictIfNecessary(next);
+        generation = next;
+    }
+
+    public void clear() {
+        generation = new Generation<>();
+    }
+
+    /**
+     * Returns the non-expired values of the current generation. The returned list is a copy and is never
+     * affected by concurrent modifications.
+     */
+    public List<V> values() {
+        long now = ticker.getAsLong();
+        Collection<Entry<K, V>> entries = generation.entries.values();
+        List<V> values = new ArrayList<>(entries.size());
+        for (Entry<K, V> entry : entries) {
+            if (!isExpired(entry, now)) {
+                values.add(entry.value);
+            }
+        }
+        return values;
+    }
+
+    public long size() {
+        return generation.entries.size();
+    }
+
+    public CacheStats stats() {
+        return new CacheStats(hits.sum(), misses.sum(), evictions.sum(), size());
+    }
+
+    private Entry<K, V> entry(K key, V value, long writeTime, long sequence) {
+        return new Entry<>(key, value, writeTime, sequence, digester != null ? digester.apply(value) : null);
+    }
+
+    private boolean isExpired(Entry<K, V> entry, long now) {
+        return expireAfterWriteNanos > 0 && now - entry.writeTime >= expireAfterWriteNanos;
+    }
+
+    private void evictIfNecessary(Generation<K, V> target) {
+        if (target.queued.get() > 2 * maximumSize) {
+            purgeDeadQueueNodes(target);
+        }
+        while (target.entries.size() > maximumSize) {
+            Entry<K, V> candidate = target.insertionOrder.poll();
+            if (candidate == null) {
+                return;
+            }
+            target.queued.decrementAndGet();
+            // queue nodes of invalidated or replaced entries are skipped, overwrites keep the node's sequence
+            Entry<K, V> live;
+            while ((live = target.entries.get(candidate.key)) != null && live.sequence == candidate.sequence) {
+                if (target.entries.remove(candidate.key, live)) {
+                    evictions.increment();
+                    break;
+                }
+            }
+        }
+    }
+
+    private void purgeDeadQueueNodes(Generation<K, V> target) {
+        target.insertionOrder.removeIf(node -> {
+            Entry<K, V> live = target.entries.get(node.key);
+            boolean dead = live == null || live.sequence != node.sequence;
+            if (dead) {
+                target.queued.decrementAndGet();
+            }
+            return dead;
+        });
+    }
+
+    private static final class Generation<K, V> {
+        private final ConcurrentHashMap<K, Entry<K, V>> entries = new ConcurrentHashMap<>();
+        private final ConcurrentLinkedQueue<Entry<K, V>> insertionOrder = new ConcurrentLinkedQueue<>();
+        private final AtomicLong queued = new AtomicLong();
+
+        private void enqueue(Entry<K, V> entry) {
+            insertionOrder.add(entry);
+            queued.incrementAndGet();
+        }
+    }
+
+    private static final class Entry<K, V> {
+        private final K key;
+        private final V value;
+        private final long writeTime;
+        private final long sequence;
+        private final byte[] digest;
+
+        private Entry(K key, V value, long writeTime, long sequence, byte[] digest) {
+            this.key = key;
+            this.value = value;
+            this.writeTime = writeTime;
+            this.sequence = sequence;
+            this.digest = digest;
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package tech.bestwebshop.api.productcomposite.client;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Settings for the calls this service makes to product-service and category-service.
+ */
+@Data
+@ConfigurationProperties(prefix = "inventory.client")
+public class ClientProperties {
+
+    /**
+     * Let concurrent identical GET requests share one downstream call.
+     */
+    private boolean singleFlight = true;
+    private Pool pool = new Pool();
+    private Hedging hedging = new Hedging();
+
+    @Data
+    public static class Pool {
+        private int maxConnections = 200;
+        /**
+         * Connections per backing service instance (host and port).
+         */
+        private int maxConnectionsPerRoute = 50;
+        private Duration connectTimeout = Duration.ofMillis(500);
+        private Duration readTimeout = Duration.ofSeconds(2);
+        /**
+         * How long a request waits for a free pooled connection.
+         */
+        private Duration connectionRequestTimeout = Duration.ofMillis(200);
+        /**
+         * Keep-alive used when a response carries no {@code Keep-Alive} header.
+         */
+        private Duration keepAlive = Duration.ofSeconds(30);
+        private Duration idleTimeout = Duration.ofSeconds(60);
+        /**
+         * Request gzip/deflate response bodies and decompress them transparently.
+         */
+        private boolean compression = true;
+    }
+
+    /**
+     * Hedged GETs: if a call has not answered within the usual latency of its service, the same request is sent a
+     * second time, normally to another instance, and whichever answers first is used.
+     */
+    @Data
+    public static class Hedging {
+        private boolean enabled = false;
+        /**
+         * Services whose GETs are hedged.
+         */
+        private Set<String> services = new HashSet<>(List.of("product-service", "category-service"));
+        /**
+         * The second request is sent once the first has taken longer than this percentile of recent calls.
+         */
+        private double percentile = 95;
+        /**
+         * Bounds for the hedge delay; {@code max-delay} is used until enough calls have been seen.
+         */
+        private Duration minDelay = Duration.ofMillis(5);
+        private Duration maxDelay = Duration.ofMillis(500);
+        /**
+         * Number of recent calls per service the percentile is taken over.
+         */
+        private int window = 1000;
+        /**
+         * Hedges allowed per call, e.g. 0.1 for at most 10 % extra load on a service.
+         */
+        private double budget = 0.1;
+        /**
+         * Hedges that may be sent in a row when the budget has been saved up.
+         */
+        private int burst = 10;
+    }
+}
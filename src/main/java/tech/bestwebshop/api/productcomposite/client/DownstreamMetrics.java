@@ -0,0 +1,80 @@
+package tech.bestwebshop.api.productcomposite.client;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.http.HttpRequest;
+import org.springframework.http.client.ClientHttpRequestExecution;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.lang.NonNull;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeFilterFunction;
+import org.springframework.web.reactive.function.client.ExchangeFunction;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * Times every call to a backing service as {@value #METRIC}, for the {@code RestTemplate} as an interceptor and for
+ * the {@code WebClient} as a filter.
+ * <p>
+ * The call site is identified by the service, the method and the path with ids replaced by {@code {id}}, e.g.
+ * {@code product-service GET /products/{id}}. The logical service name is used, not the instance Ribbon picked.
+ * Calls served by {@link SingleFlight} from another caller's request are not counted.
+ */
+@Component
+public class DownstreamMetrics implements ClientHttpRequestInterceptor, ExchangeFilterFunction {
+
+    static final String METRIC = "inventory.downstream.requests";
+
+    private static final Pattern ID_SEGMENT = Pattern.compile("/\\d+(?=/|$)");
+
+    private final MeterRegistry meterRegistry;
+
+    public DownstreamMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    @NonNull
+    public ClientHttpResponse intercept(@NonNull HttpRequest request, @NonNull byte[] body,
+                                        @NonNull ClientHttpRequestExecution execution) throws IOException {
+        long start = System.nanoTime();
+        String status = "IO_ERROR";
+        try {
+            ClientHttpResponse response = execution.execute(request, body);
+            status = String.valueOf(response.getRawStatusCode());
+            return response;
+        } finally {
+            record(request.getURI(), request.getMethodValue(), status, System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    @NonNull
+    public Mono<ClientResponse> filter(@NonNull ClientRequest request, @NonNull ExchangeFunction next) {
+        return Mono.defer(() -> {
+            long start = System.nanoTime();
+            return next.exchange(request)
+                    .doOnNext(response -> record(request.url(), request.method().name(),
+                            String.valueOf(response.rawStatusCode()), System.nanoTime() - start))
+                    .doOnError(ex -> record(request.url(), request.method().name(), "IO_ERROR",
+                            System.nanoTime() - start));
+        });
+    }
+
+    private void record(URI uri, String method, String status, long nanos) {
+        Timer.builder(METRIC)
+                .tag("service", String.valueOf(uri.getHost()))
+                .tag("method", method)
+                .tag("uri", ID_SEGMENT.matcher(uri.getPath()).replaceAll("/{id}"))
+                .tag("status", status)
+                .register(meterRegistry)
+                .record(nanos, TimeUnit.NANOSECONDS);
+    }
+}
@@ -0,0 +1,237 @@
+package tech.bestwebshop.api.productcomposite.client;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.net.URI;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Supplier;
+
+/**
+ * Hedges idempotent GETs to the services listed in {@code inventory.client.hedging.services}.
+ * <p>
+ * The call runs on the hedge executor while the caller waits for it. If it has not answered within the hedge
+ * delay, the configured percentile of the service's recent call latencies, and the service's budget allows, the
+ * same call is started a second time; the load balancer's round robin sends it to another instance. The first
+ * successful answer is returned, an error only once both calls have failed. The slower call cannot be cancelled
+ * while it blocks on I/O, so it is left to finish and its answer is dropped.
+ * <p>
+ * Every hedgeable call adds {@code budget} to its service's balance, capped at {@code burst}, and every hedge takes
+ * one, so hedges stay a bounded fraction of the calls even while a service is slow throughout.
+ * <p>
+ * Published as {@value #METRIC} counters tagged by service and event: {@code call} for every hedgeable call,
+ * {@code hedge} for second requests, {@code win} when the second request answered first and {@code denied} when the
+ * budget was exhausted. The current delay is the gauge {@value #DELAY_METRIC}.
+ */
+@Component
+@EnableConfigurationProperties(ClientProperties.class)
+public class HedgedRequests {
+
+    static final String METRIC = "inventory.hedging";
+    static final String DELAY_METRIC = "inventory.hedging.delay";
+
+    private final ClientProperties.Hedging properties;
+    private final ExecutorService executor;
+    private final MeterRegistry meterRegistry;
+    private final Map<String, Route> routes = new ConcurrentHashMap<>();
+
+    public HedgedRequests(ClientProperties properties, @Qualifier("hedgeExecutor") ExecutorService executor,
+                          MeterRegistry meterRegistry) {
+        this.properties = properties.getHedging();
+        this.executor = executor;
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * Performs a GET of the given URL, hedged if its service is configured for it.
+     */
+    public <T> T execute(String url, Supplier<T> call) {
+        String service = URI.create(url).getHost();
+        if (!properties.isEnabled() || !properties.getServices().contains(service)) {
+            return call.get();
+        }
+        Route route = routes.computeIfAbsent(service, this::createRoute);
+        route.calls.increment();
+        route.budget.deposit();
+
+        long start = System.nanoTime();
+        CompletableFuture<T> primary = CompletableFuture.supplyAsync(call, executor);
+        primary.thenRun(() -> route.latencies.record(System.nanoTime() - start));
+        try {
+            return primary.get(route.latencies.delayNanos(), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException ex) {
+            // still waiting, hedge below
+        } catch (ExecutionException ex) {
+            throw rethrow(ex.getCause());
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(ex);
+        }
+
+        if (!route.budget.tryWithdraw()) {
+            route.denied.increment();
+            return await(primary);
+        }
+        route.hedges.increment();
+        CompletableFuture<T> hedge = CompletableFuture.supplyAsync(call, executor);
+        CompletableFuture<T> first = new CompletableFuture<>();
+        AtomicInteger failures = new AtomicInteger();
+        primary.whenComplete((result, ex) -> settle(first, result, ex, failures));
+        hedge.whenComplete((result, ex) -> {
+            if (settle(first, result, ex, failures)) {
+                route.wins.increment();
+            }
+        });
+        return await(first);
+    }
+
+    /**
+     * @return whether this outcome decided the race
+     */
+    private static <T> boolean settle(CompletableFuture<T> first, T result, Throwable ex, AtomicInteger failures) {
+        if (ex == null) {
+            return first.complete(result);
+        }
+        if (failures.incrementAndGet() == 2) {
+            first.completeExceptionally(ex instanceof CompletionException ? ex.getCause() : ex);
+        }
+        return false;
+    }
+
+    private static <T> T await(CompletableFuture<T> future) {
+        try {
+            return future.get();
+        } catch (ExecutionException ex) {
+            throw rethrow(ex.getCause());
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    private static RuntimeException rethrow(Throwable cause) {
+        if (cause instanceof RuntimeException) {
+            return (RuntimeException) cause;
+        }
+        if (cause instanceof Error) {
+            throw (Error) cause;
+        }
+        return new IllegalStateException(cause);
+    }
+
+    private Route createRoute(String service) {
+        Route route = new Route(service);
+        TimeGauge.builder(DELAY_METRIC, route.latencies, TimeUnit.NANOSECONDS, Latencies::delayNanos)
+                .tag("service", service)
+                .register(meterRegistry);
+        return route;
+    }
+
+    private final class Route {
+        private final Latencies latencies = new Latencies(properties);
+        private final Budget budget = new Budget(properties.getBudget(), properties.getBurst());
+        private final Counter calls;
+        private final Counter hedges;
+        private final Counter wins;
+        private final Counter denied;
+
+        private Route(String service) {
+            calls = meterRegistry.counter(METRIC, "service", service, "event", "call");
+            hedges = meterRegistry.counter(METRIC, "service", service, "event", "hedge");
+            wins = meterRegistry.counter(METRIC, "service", service, "event", "win");
+            denied = meterRegistry.counter(METRIC, "service", service, "event", "denied");
+        }
+    }
+
+    /**
+     * Recent call latencies in a ring buffer. The hedge delay is recomputed from them every tenth of the window.
+     */
+    static final class Latencies {
+        private final AtomicLongArray samples;
+        private final AtomicLong count = new AtomicLong();
+        private final double percentile;
+        private final long minDelay;
+        private final long maxDelay;
+        private final int recomputeEvery;
+        private volatile long delayNanos;
+
+        Latencies(ClientProperties.Hedging properties) {
+            this.samples = new AtomicLongArray(properties.getWindow());
+            this.percentile = properties.getPercentile();
+            this.minDelay = properties.getMinDelay().toNanos();
+            this.maxDelay = properties.getMaxDelay().toNanos();
+            this.recomputeEvery = Math.max(1, properties.getWindow() / 10);
+            this.delayNanos = maxDelay;
+        }
+
+        void record(long nanos) {
+            long n = count.getAndIncrement() + 1;
+            samples.set((int) ((n - 1) % samples.length()), nanos);
+            if (n % recomputeEvery == 0) {
+                recompute((int) Math.min(n, samples.length()));
+            }
+        }
+
+        long delayNanos() {
+            return delayNanos;
+        }
+
+        private void recompute(int filled) {
+            long[] sorted = new long[filled];
+            for (int i = 0; i < filled; i++) {
+                sorted[i] = samples.get(i);
+            }
+            Arrays.sort(sorted);
+            int rank = (int) Math.ceil(percentile / 100 * filled) - 1;
+            long value = sorted[Math.max(0, Math.min(filled - 1, rank))];
+            delayNanos = Math.max(minDelay, Math.min(maxDelay, value));
+        }
+    }
+
+    /**
+     * Hedge allowance in thousandths of a hedge, so that fractional budgets need no floating point state.
+     */
+    static final class Budget {
+        private static final long HEDGE = 1000;
+
+        private final long deposit;
+        private final long max;
+        private final AtomicLong balance = new AtomicLong();
+
+        Budget(double budget, int burst) {
+            this.deposit = Math.round(budget * HEDGE);
+            this.max = burst * HEDGE;
+        }
+
+        void deposit() {
+            balance.accumulateAndGet(deposit, (current, amount) -> Math.min(max, current + amount));
+        }
+
+        boolean tryWithdraw() {
+            while (true) {
+                long current = balance.get();
+                if (current < HEDGE) {
+                    return false;
+                }
+                if (balance.compareAndSet(current, current - HEDGE)) {
+                    return true;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package tech.bestwebshop.api.productcomposite.client;
+
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.httpcomponents.PoolingHttpClientConnectionManagerMetricsBinder;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.protocol.HttpClientContext;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.protocol.HttpContext;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.lang.NonNull;
+
+import java.net.URI;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Pooled, keep-alive Apache HttpClient behind the load-balanced {@code RestTemplate}. Pool usage is published as
+ * {@code httpcomponents.httpclient.pool.*} meters under the {@code metrics} actuator endpoint.
+ */
+@Configuration
+@EnableConfigurationProperties(ClientProperties.class)
+public class HttpClientConfiguration {
+
+    private static final String POOL_NAME = "downstream";
+
+    @Bean(destroyMethod = "shutdown")
+    public PoolingHttpClientConnectionManager connectionManager(ClientProperties properties) {
+        ClientProperties.Pool pool = properties.getPool();
+        PoolingHttpClientConnectionManager connectionManager = new PoolingHttpClientConnectionManager();
+        connectionManager.setMaxTotal(pool.getMaxConnections());
+        connectionManager.setDefaultMaxPerRoute(pool.getMaxConnectionsPerRoute());
+        connectionManager.setValidateAfterInactivity(1000);
+        return connectionManager;
+    }
+
+    @Bean(destroyMethod = "close")
+    public CloseableHttpClient httpClient(PoolingHttpClientConnectionManager connectionManager,
+                                          ClientProperties properties) {
+        ClientProperties.Pool pool = properties.getPool();
+        long defaultKeepAlive = pool.getKeepAlive().toMillis();
+        return HttpClients.custom()
+                .setConnectionManager(connectionManager)
+                .setDefaultRequestConfig(requestConfig(pool))
+                .setKeepAliveStrategy((response, context) -> {
+                    long keepAlive = DefaultConnectionKeepAliveStrategy.INSTANCE.getKeepAliveDuration(response, context);
+                    return keepAlive > 0 ? keepAlive : defaultKeepAlive;
+                })
+                .evictExpiredConnections()
+                .evictIdleConnections(pool.getIdleTimeout().toMillis(), TimeUnit.MILLISECONDS)
+                .build();
+    }
+
+    /**
+     * Request factory that applies a {@link ReadTimeout} set by the caller to the requests it creates.
+     */
+    @Bean
+    public HttpComponentsClientHttpRequestFactory clientHttpRequestFactory(CloseableHttpClient httpClient,
+                                                                           ClientProperties properties) {
+        RequestConfig defaults = requestConfig(properties.getPool());
+        return new HttpComponentsClientHttpRequestFactory(httpClient) {
+            @Override
+            protected HttpContext createHttpContext(@NonNull HttpMethod httpMethod, @NonNull URI uri) {
+                return ReadTimeout.current().map(timeout -> {
+                    HttpClientContext context = HttpClientContext.create();
+                    context.setRequestConfig(RequestConfig.copy(defaults)
+                            .setSocketTimeout((int) timeout.toMillis())
+                            .build());
+                    return context;
+                }).orElse(null);
+            }
+        };
+    }
+
+    @Bean
+    public MeterBinder connectionPoolMetrics(PoolingHttpClientConnectionManager connectionManager) {
+        return new PoolingHttpClientConnectionManagerMetricsBinder(connectionManager, POOL_NAME);
+    }
+
+    private static RequestConfig requestConfig(ClientProperties.Pool pool) {
+        return RequestConfig.custom()
+                .setConnectTimeout((int) pool.getConnectTimeout().toMillis())
+                .setSocketTimeout((int) pool.getReadTimeout().toMillis())
+                .setConnectionRequestTimeout((int) pool.getConnectionRequestTimeout().toMillis())
+                .setContentCompressionEnabled(pool.isCompression())
+                .build();
+    }
+}
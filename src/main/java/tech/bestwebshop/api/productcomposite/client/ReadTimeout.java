@@ -0,0 +1,35 @@
+package tech.bestwebshop.api.productcomposite.client;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.function.Supplier;
+
+/**
+ * Read timeout for the downstream calls the current thread makes, in place of
+ * {@code inventory.client.pool.read-timeout}. The pooled HttpClient picks it up when the request is created.
+ */
+public final class ReadTimeout {
+
+    private static final ThreadLocal<Duration> CURRENT = new ThreadLocal<>();
+
+    private ReadTimeout() {
+    }
+
+    public static <T> T with(Duration timeout, Supplier<T> call) {
+        Duration previous = CURRENT.get();
+        CURRENT.set(timeout);
+        try {
+            return call.get();
+        } finally {
+            if (previous == null) {
+                CURRENT.remove();
+            } else {
+                CURRENT.set(previous);
+            }
+        }
+    }
+
+    static Optional<Duration> current() {
+        return Optional.ofNullable(CURRENT.get());
+    }
+}
@@ -0,0 +1,85 @@
+package tech.bestwebshop.api.productcomposite.client;
+
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Coalesces concurrent identical downstream calls.
+ * <p>
+ * The first caller for a key performs the call, every caller arriving while it is in flight waits for and receives
+ * the same result, or the same exception. Nothing is remembered once the call has finished, so this is not a cache.
+ * Keys are shared across callers regardless of their token: every caller has already been authenticated by this
+ * service, and only read-only GETs go through here.
+ */
+@Component
+@EnableConfigurationProperties(ClientProperties.class)
+public class SingleFlight {
+
+    private final ClientProperties properties;
+    private final ConcurrentHashMap<String, CompletableFuture<Object>> inFlight = new ConcurrentHashMap<>();
+    private final LongAdder calls = new LongAdder();
+    private final LongAdder shared = new LongAdder();
+
+    public SingleFlight(ClientProperties properties) {
+        this.properties = properties;
+    }
+
+    @SuppressWarnings("unchecked")
+    public <T> T execute(String key, Supplier<T> call) {
+        if (!properties.isSingleFlight()) {
+            return call.get();
+        }
+        CompletableFuture<Object> mine = new CompletableFuture<>();
+        CompletableFuture<Object> leader = inFlight.putIfAbsent(key, mine);
+        if (leader != null) {
+            shared.increment();
+            return (T) await(leader);
+        }
+        calls.increment();
+        try {
+            T result = call.get();
+            mine.complete(result);
+            return result;
+        } catch (RuntimeException | Error ex) {
+            mine.completeExceptionally(ex);
+            throw ex;
+        } finally {
+            inFlight.remove(key, mine);
+        }
+    }
+
+    /**
+     * Number of calls that were actually made downstream.
+     */
+    public long callCount() {
+        return calls.sum();
+    }
+
+    /**
+     * Number of callers that were served by another caller's in-flight call.
+     */
+    public long sharedCount() {
+        return shared.sum();
+    }
+
+    private static Object await(CompletableFuture<Object> leader) {
+        try {
+            return leader.join();
+        } catch (CompletionException ex) {
+            Throwable cause = ex.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw ex;
+        }
+    }
+}
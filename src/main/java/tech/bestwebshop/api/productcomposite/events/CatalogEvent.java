@@ -0,0 +1,46 @@
+package tech.bestwebshop.api.productcomposite.events;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import tech.bestwebshop.api.productcomposite.model.Category;
+import tech.bestwebshop.api.productcomposite.model.Product;
+
+/**
+ * A product or category written through one inventory-service replica. Change events carry the new state, so
+ * receivers can apply them without calling the backing services; delete events only carry the id.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CatalogEvent {
+
+    public enum Type {
+        PRODUCT_CHANGED, PRODUCT_DELETED, CATEGORY_CHANGED, CATEGORY_DELETED
+    }
+
+    /**
+     * Instance id of the publishing replica.
+     */
+    private String origin;
+    private Type type;
+    private int id;
+    private Product product;
+    private Category category;
+
+    static CatalogEvent productChanged(String origin, Product product) {
+        return new CatalogEvent(origin, Type.PRODUCT_CHANGED, product.getId(), product, null);
+    }
+
+    static CatalogEvent productDeleted(String origin, int productId) {
+        return new CatalogEvent(origin, Type.PRODUCT_DELETED, productId, null, null);
+    }
+
+    static CatalogEvent categoryChanged(String origin, Category category) {
+        return new CatalogEvent(origin, Type.CATEGORY_CHANGED, category.getId(), null, category);
+    }
+
+    static CatalogEvent categoryDeleted(String origin, int categoryId) {
+        return new CatalogEvent(origin, Type.CATEGORY_DELETED, categoryId, null, null);
+    }
+}
@@ -0,0 +1,126 @@
+package tech.bestwebshop.api.productcomposite.events;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+import tech.bestwebshop.api.productcomposite.cache.InventoryCache;
+import tech.bestwebshop.api.productcomposite.index.CategoryNameIndex;
+import tech.bestwebshop.api.productcomposite.index.ProductIndex;
+import tech.bestwebshop.api.productcomposite.model.Category;
+import tech.bestwebshop.api.productcomposite.model.Product;
+
+import javax.annotation.PostConstruct;
+import java.util.UUID;
+import java.util.logging.Logger;
+
+/**
+ * Single place where writes made through this service reach the local caches and indexes and the other replicas.
+ * <p>
+ * Each write is applied locally first and then published on the {@link InvalidationChannel}. Events from other
+ * replicas are applied the same way, entry by entry, so their writes become visible here without a full reload of
+ * the product or category list. Renaming a category also updates the cached products of that category. Applied
+ * and published events are counted as {@code inventory.events}. Without a channel, writes are only applied
+ * locally, which is logged at startup.
+ */
+@Component
+public class CatalogEvents {
+
+    private static final Logger LOGGER = Logger.getLogger(CatalogEvents.class.getSimpleName());
+
+    private final String instanceId = UUID.randomUUID().toString();
+
+    @Nullable
+    private final InvalidationChannel channel;
+    private final EventProperties properties;
+    private final InventoryCache cache;
+    private final ProductIndex productIndex;
+    private final CategoryNameIndex categoryNames;
+    private final MeterRegistry meterRegistry;
+
+    public CatalogEvents(@Nullable InvalidationChannel channel, EventProperties properties, InventoryCache cache,
+                         ProductIndex productIndex, CategoryNameIndex categoryNames, MeterRegistry meterRegistry) {
+        this.channel = channel;
+        this.properties = properties;
+        this.cache = cache;
+        this.productIndex = productIndex;
+        this.categoryNames = categoryNames;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @PostConstruct
+    public void subscribe() {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        if (channel == null) {
+            LOGGER.warning("[CatalogEvents#subscribe] No invalidation channel is configured, other replicas will "
+                    + "only see the writes of this one after their next catalog refresh.");
+            return;
+        }
+        channel.subscribe(this::onEvent);
+    }
+
+    public void productChanged(Product product) {
+        publish(CatalogEvent.productChanged(instanceId, product));
+    }
+
+    public void productDeleted(int productId) {
+        publish(CatalogEvent.productDeleted(instanceId, productId));
+    }
+
+    public void categoryChanged(Category category) {
+        publish(CatalogEvent.categoryChanged(instanceId, category));
+    }
+
+    public void categoryDeleted(int categoryId) {
+        publish(CatalogEvent.categoryDeleted(instanceId, categoryId));
+    }
+
+    void onEvent(CatalogEvent event) {
+        // own events were applied before they were published
+        if (!instanceId.equals(event.getOrigin())) {
+            apply(event);
+            meterRegistry.counter("inventory.events", "type", event.getType().name(), "direction", "applied")
+                    .increment();
+        }
+    }
+
+    private void publish(CatalogEvent event) {
+        apply(event);
+        if (properties.isEnabled() && channel != null) {
+            channel.publish(event);
+            meterRegistry.counter("inventory.events", "type", event.getType().name(), "direction", "published")
+                    .increment();
+        }
+    }
+
+    private void apply(CatalogEvent event) {
+        switch (event.getType()) {
+            case PRODUCT_CHANGED:
+                cache.products().put(event.getId(), event.getProduct());
+                productIndex.put(event.getProduct());
+                break;
+            case PRODUCT_DELETED:
+                cache.products().invalidate(event.getId());
+                productIndex.remove(event.getId());
+                break;
+            case CATEGORY_CHANGED:
+                Category category = event.getCategory();
+                cache.categories().put(category.getId(), category);
+                categoryNames.put(category);
+                for (Product product : productIndex.productsInCategory(category.getId())) {
+                    if (!category.equals(product.getCategory())) {
+                        Product moved = new Product(product.getId(), product.getName(), product.getPrice(), category,
+                                product.getDetails());
+                        cache.products().put(moved.getId(), moved);
+                        productIndex.put(moved);
+                    }
+                }
+                break;
+            case CATEGORY_DELETED:
+                cache.categories().invalidate(event.getId());
+                categoryNames.remove(event.getId());
+                break;
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package tech.bestwebshop.api.productcomposite.events;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@EnableConfigurationProperties(EventProperties.class)
+public class EventConfiguration {
+
+    @Bean
+    @ConditionalOnMissingBean(InvalidationChannel.class)
+    @ConditionalOnProperty(prefix = "inventory.events", name = "channel", havingValue = "in-memory")
+    public InvalidationChannel inMemoryInvalidationChannel() {
+        return new InMemoryInvalidationChannel();
+    }
+}
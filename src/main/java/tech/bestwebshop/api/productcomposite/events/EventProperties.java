@@ -0,0 +1,29 @@
+package tech.bestwebshop.api.productcomposite.events;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Data
+@ConfigurationProperties(prefix = "inventory.events")
+public class EventProperties {
+
+    /**
+     * Publish the writes of this replica and apply those of other replicas to the local caches and indexes.
+     */
+    private boolean enabled = true;
+    /**
+     * Built-in channel to use when no {@link InvalidationChannel} bean is defined.
+     */
+    private Channel channel = Channel.NONE;
+
+    public enum Channel {
+        /**
+         * Writes reach this replica only; the others catch up when their catalog refresher next runs.
+         */
+        NONE,
+        /**
+         * {@link InMemoryInvalidationChannel}, for tests running several replicas in one JVM.
+         */
+        IN_MEMORY
+    }
+}
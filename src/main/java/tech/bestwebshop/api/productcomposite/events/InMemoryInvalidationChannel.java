@@ -0,0 +1,35 @@
+package tech.bestwebshop.api.productcomposite.events;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+import java.util.logging.Logger;
+
+/**
+ * Delivers events to the listeners registered in this JVM, on the publishing thread and in publishing order.
+ * Enough for a single replica and for tests that run several replicas against one channel.
+ */
+public class InMemoryInvalidationChannel implements InvalidationChannel {
+
+    private static final Logger LOGGER = Logger.getLogger(InMemoryInvalidationChannel.class.getSimpleName());
+
+    private final List<Consumer<CatalogEvent>> listeners = new CopyOnWriteArrayList<>();
+
+    @Override
+    public void publish(CatalogEvent event) {
+        for (Consumer<CatalogEvent> listener : listeners) {
+            try {
+                listener.accept(event);
+            } catch (RuntimeException ex) {
+                // one failing replica must neither fail the write that published the event nor starve the others
+                LOGGER.warning(() -> "[InMemoryInvalidationChannel#publish] Listener failed on " + event.getType()
+                        + " " + event.getId() + ": " + ex.getMessage());
+            }
+        }
+    }
+
+    @Override
+    public void subscribe(Consumer<CatalogEvent> listener) {
+        listeners.add(listener);
+    }
+}
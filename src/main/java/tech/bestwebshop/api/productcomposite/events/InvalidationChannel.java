@@ -0,0 +1,18 @@
+package tech.bestwebshop.api.productcomposite.events;
+
+import java.util.function.Consumer;
+
+/**
+ * Transport for {@link CatalogEvent}s between inventory-service replicas. Every event published by any replica
+ * is delivered to the listeners of every replica, including the publisher's own.
+ * <p>
+ * Other replicas only see the writes of this one if an implementation backed by a message broker is defined as a
+ * bean. {@link InMemoryInvalidationChannel} reaches the replicas of one JVM and has to be chosen explicitly with
+ * {@code inventory.events.channel=in-memory}; without any channel writes are applied to this replica only.
+ */
+public interface InvalidationChannel {
+
+    void publish(CatalogEvent event);
+
+    void subscribe(Consumer<CatalogEvent> listener);
+}
@@ -0,0 +1,141 @@
+package tech.bestwebshop.api.productcomposite.index;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.stereotype.Component;
+import tech.bestwebshop.api.productcomposite.model.Category;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+
+/**
+ * Categories by name, for resolving the category name of a new product without downloading the category list.
+ * <p>
+ * The index is complete after a full category listing and stays trusted for {@code inventory.index.max-age};
+ * creates, updates and deletes made through this service keep it current in between. Concurrent
+ * {@link #getOrCreate} calls for the same missing name share a single create.
+ */
+@Component
+@EnableConfigurationProperties(IndexProperties.class)
+public class CategoryNameIndex {
+
+    private final IndexProperties properties;
+    private final LongSupplier ticker;
+
+    private final Map<String, Category> byName = new ConcurrentHashMap<>();
+    private final Map<Integer, String> names = new ConcurrentHashMap<>();
+    private final Map<String, CompletableFuture<Category>> creating = new ConcurrentHashMap<>();
+
+    private volatile long loadedAt;
+    private volatile boolean complete;
+
+    @Autowired
+    public CategoryNameIndex(IndexProperties properties) {
+        this(properties, System::nanoTime);
+    }
+
+    CategoryNameIndex(IndexProperties properties, LongSupplier ticker) {
+        this.properties = properties;
+        this.ticker = ticker;
+    }
+
+    /**
+     * Whether a miss can be trusted to mean that no category of that name exists.
+     */
+    public boolean isServable() {
+        return complete && ticker.getAsLong() - loadedAt < properties.getMaxAge().toNanos();
+    }
+
+    public Optional<Category> find(String name) {
+        return Optional.ofNullable(byName.get(name));
+    }
+
+    public synchronized void replaceAll(Collection<Category> categories) {
+        byName.clear();
+        names.clear();
+        // the first of several categories with the same name wins, as with the list lookup this replaces
+        for (Category category : categories) {
+            byName.putIfAbsent(category.getName(), category);
+            names.put(category.getId(), category.getName());
+        }
+        loadedAt = ticker.getAsLong();
+        complete = true;
+    }
+
+    public synchronized void put(Category category) {
+        removeById(category.getId());
+        add(category);
+    }
+
+    public synchronized void remove(int categoryId) {
+        removeById(categoryId);
+    }
+
+    /**
+     * Returns the category with the given name, calling {@code create} if there is none. Callers arriving while
+     * a create for the same name is in flight wait for it and get its result or its exception.
+     */
+    public Category getOrCreate(String name, Function<String, Category> create) {
+        Category existing = byName.get(name);
+        if (existing != null) {
+            return existing;
+        }
+        CompletableFuture<Category> mine = new CompletableFuture<>();
+        CompletableFuture<Category> leader = creating.putIfAbsent(name, mine);
+        if (leader != null) {
+            return await(leader);
+        }
+        try {
+            // a create that finished between the lookup above and claiming the name has already filled the index
+            Category category = byName.get(name);
+            if (category == null) {
+                category = create.apply(name);
+                put(category);
+            }
+            mine.complete(category);
+            return category;
+        } catch (RuntimeException | Error ex) {
+            mine.completeExceptionally(ex);
+            throw ex;
+        } finally {
+            creating.remove(name, mine);
+        }
+    }
+
+    public int size() {
+        return byName.size();
+    }
+
+    private void add(Category category) {
+        byName.put(category.getName(), category);
+        names.put(category.getId(), category.getName());
+    }
+
+    private void removeById(int categoryId) {
+        String name = names.remove(categoryId);
+        if (name != null) {
+            byName.computeIfPresent(name, (key, category) -> category.getId() == categoryId ? null : category);
+        }
+    }
+
+    private static Category await(CompletableFuture<Category> leader) {
+        try {
+            return leader.join();
+        } catch (CompletionException ex) {
+            Throwable cause = ex.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw ex;
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package tech.bestwebshop.api.productcomposite.index;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "inventory.index")
+public class IndexProperties {
+
+    /**
+     * Answer {@code GET /products} searches from the local index instead of fetching the whole catalog.
+     */
+    private boolean enabled = true;
+    /**
+     * How long after the last full load the index is trusted to answer searches on its own.
+     */
+    private Duration maxAge = Duration.ofMinutes(1);
+}
@@ -0,0 +1,273 @@
+package tech.bestwebshop.api.productcomposite.index;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.stereotype.Component;
+import tech.bestwebshop.api.productcomposite.model.Product;
+
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.LongSupplier;
+
+/**
+ * Search index over the composed products.
+ * <p>
+ * Name and details are split into character trigrams which are kept in an inverted index, prices are kept in a
+ * sorted tree. A search intersects the posting lists of the query's trigrams, narrows by price range and then
+ * verifies the candidates with the same {@code contains} check the controller always used, so results are
+ * identical to a full scan. Queries shorter than a trigram fall back to the price range alone. Product ids are
+ * also grouped by category so that category cascades do not need a catalog scan.
+ */
+@Component
+@EnableConfigurationProperties(IndexProperties.class)
+public class ProductIndex {
+
+    private static final int GRAM = 3;
+
+    private final IndexProperties properties;
+    private final LongSupplier ticker;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final Map<Integer, Product> products = new HashMap<>();
+    private final Map<String, Set<Integer>> postings = new HashMap<>();
+    private final NavigableMap<Double, Set<Integer>> prices = new TreeMap<>();
+    private final Map<Integer, Set<Integer>> categories = new HashMap<>();
+
+    private volatile long loadedAt;
+    private volatile boolean complete;
+
+    @Autowired
+    public ProductIndex(IndexProperties properties) {
+        this(properties, System::nanoTime);
+    }
+
+    ProductIndex(IndexProperties properties, LongSupplier ticker) {
+        this.properties = properties;
+        this.ticker = ticker;
+    }
+
+    /**
+     * Whether the index holds a recent, complete copy of the catalog and may answer searches on its own.
+     */
+    public boolean isServable() {
+        return properties.isEnabled() && complete
+                && ticker.getAsLong() - loadedAt < properties.getMaxAge().toNanos();
+    }
+
+    /**
+     * Whether the index holds a complete copy of the catalog, regardless of its age.
+     */
+    public boolean isComplete() {
+        return complete;
+    }
+
+    public void replaceAll(Collection<Product> catalog) {
+        lock.writeLock().lock();
+        try {
+            products.clear();
+            postings.clear();
+            prices.clear();
+            categories.clear();
+            catalog.forEach(this::add);
+            loadedAt = ticker.getAsLong();
+            complete = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Records that the index was just compared with, and brought in line with, the full catalog.
+     */
+    public void markComplete() {
+        lock.writeLock().lock();
+        try {
+            loadedAt = ticker.getAsLong();
+            complete = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void put(Product product) {
+        lock.writeLock().lock();
+        try {
+            removeById(product.getId());
+            add(product);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(int productId) {
+        lock.writeLock().lock();
+        try {
+            removeById(productId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public List<Product> search(String text, double minPrice, double maxPrice) {
+        // inverted or NaN bounds match nothing, like the filter over the fetched catalog; subMap would throw
+        if (!(minPrice <= maxPrice)) {
+            return List.of();
+        }
+        lock.readLock().lock();
+        try {
+            Collection<Set<Integer>> priceBuckets = prices.subMap(minPrice, true, maxPrice, true).values();
+            Set<Integer> textCandidates = text.length() >= GRAM ? textCandidates(text) : null;
+
+            List<Product> result = new ArrayList<>();
+            if (textCandidates != null && textCandidates.size() < countOf(priceBuckets)) {
+                for (Integer id : textCandidates) {
+                    collectIfMatching(products.get(id), text, minPrice, maxPrice, result);
+                }
+            } else {
+                for (Set<Integer> bucket : priceBuckets) {
+                    for (Integer id : bucket) {
+                        if (textCandidates == null || textCandidates.contains(id)) {
+                            collectIfMatching(products.get(id), text, minPrice, maxPrice, result);
+                        }
+                    }
+                }
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public List<Integer> productIdsInCategory(int categoryId) {
+        lock.readLock().lock();
+        try {
+            return List.copyOf(categories.getOrDefault(categoryId, Set.of()));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public Optional<Product> get(int productId) {
+        lock.readLock().lock();
+        try {
+            return Optional.ofNullable(products.get(productId));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public List<Integer> ids() {
+        lock.readLock().lock();
+        try {
+            return List.copyOf(products.keySet());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public List<Product> productsInCategory(int categoryId) {
+        lock.readLock().lock();
+        try {
+            List<Product> members = new ArrayList<>();
+            for (Integer id : categories.getOrDefault(categoryId, Set.of())) {
+                members.add(products.get(id));
+            }
+            return members;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return products.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private Set<Integer> textCandidates(String text) {
+        List<Set<Integer>> lists = new ArrayList<>();
+        for (String gram : grams(text)) {
+            Set<Integer> posting = postings.get(gram);
+            if (posting == null) {
+                return Set.of();
+            }
+            lists.add(posting);
+        }
+        lists.sort(Comparator.comparingInt(Set::size));
+        Set<Integer> candidates = new HashSet<>(lists.get(0));
+        for (int i = 1; i < lists.size() && !candidates.isEmpty(); i++) {
+            candidates.retainAll(lists.get(i));
+        }
+        return candidates;
+    }
+
+    private static void collectIfMatching(Product product, String text, double minPrice, double maxPrice,
+                                          List<Product> result) {
+        if (product != null
+                && (product.getName().contains(text) || product.getDetails().contains(text))
+                && product.getPrice() <= maxPrice
+                && product.getPrice() >= minPrice) {
+            result.add(product);
+        }
+    }
+
+    private static long countOf(Collection<Set<Integer>> buckets) {
+        long count = 0;
+        for (Set<Integer> bucket : buckets) {
+            count += bucket.size();
+        }
+        return count;
+    }
+
+    private void add(Product product) {
+        int id = product.getId();
+        products.put(id, product);
+        for (String gram : grams(product)) {
+            postings.computeIfAbsent(gram, key -> new HashSet<>()).add(id);
+        }
+        prices.computeIfAbsent(product.getPrice(), key -> new HashSet<>()).add(id);
+        categories.computeIfAbsent(product.getCategory().getId(), key -> new HashSet<>()).add(id);
+    }
+
+    private void removeById(int id) {
+        Product previous = products.remove(id);
+        if (previous == null) {
+            return;
+        }
+        for (String gram : grams(previous)) {
+            Set<Integer> posting = postings.get(gram);
+            if (posting != null && posting.remove(id) && posting.isEmpty()) {
+                postings.remove(gram);
+            }
+        }
+        Set<Integer> bucket = prices.get(previous.getPrice());
+        if (bucket != null && bucket.remove(id) && bucket.isEmpty()) {
+            prices.remove(previous.getPrice());
+        }
+        Set<Integer> members = categories.get(previous.getCategory().getId());
+        if (members != null && members.remove(id) && members.isEmpty()) {
+            categories.remove(previous.getCategory().getId());
+        }
+    }
+
+    private static Set<String> grams(Product product) {
+        Set<String> grams = grams(product.getName());
+        grams.addAll(grams(product.getDetails()));
+        return grams;
+    }
+
+    private static Set<String> grams(String value) {
+        Set<String> grams = new HashSet<>();
+        if (value == null) {
+            return grams;
+        }
+        for (int i = 0; i + GRAM <= value.length(); i++) {
+            grams.add(value.substring(i, i + GRAM));
+        }
+        return grams;
+    }
+}
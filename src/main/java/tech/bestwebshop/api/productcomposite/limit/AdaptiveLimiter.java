@@ -0,0 +1,110 @@
+package tech.bestwebshop.api.productcomposite.limit;
+
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Admits at most {@link #getLimit()} concurrent requests and adapts that limit from the latency and outcome of
+ * every completed request. A rejected request should fail immediately instead of queueing.
+ */
+public class AdaptiveLimiter {
+
+    private final LimitAlgorithm algorithm;
+    private final int minLimit;
+    private final int maxLimit;
+    private final long timeoutNanos;
+    private final LongSupplier ticker;
+
+    private final AtomicInteger inflight = new AtomicInteger();
+    private final LongAdder rejected = new LongAdder();
+    private double estimate;
+    private volatile int limit;
+
+    AdaptiveLimiter(LimitProperties.Spec spec) {
+        this(LimitAlgorithm.of(spec), spec, System::nanoTime);
+    }
+
+    AdaptiveLimiter(LimitAlgorithm algorithm, LimitProperties.Spec spec, LongSupplier ticker) {
+        this.algorithm = algorithm;
+        this.minLimit = spec.getMinLimit();
+        this.maxLimit = spec.getMaxLimit();
+        this.timeoutNanos = spec.getTimeout().toNanos();
+        this.ticker = ticker;
+        this.estimate = spec.getInitialLimit();
+        this.limit = spec.getInitialLimit();
+    }
+
+    /**
+     * @return a token that must be completed exactly once, or empty if the limit is reached
+     */
+    public Optional<Token> tryAcquire() {
+        while (true) {
+            int current = inflight.get();
+            if (current >= limit) {
+                rejected.increment();
+                return Optional.empty();
+            }
+            if (inflight.compareAndSet(current, current + 1)) {
+                return Optional.of(new Token(current + 1, ticker.getAsLong()));
+            }
+        }
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+
+    public int getInflight() {
+        return inflight.get();
+    }
+
+    public long getRejected() {
+        return rejected.sum();
+    }
+
+    private synchronized void update(long rttNanos, int inflightAtStart, boolean dropped) {
+        estimate = Math.max(minLimit, Math.min(maxLimit,
+                algorithm.update(estimate, rttNanos, inflightAtStart, dropped || rttNanos > timeoutNanos)));
+        limit = (int) estimate;
+    }
+
+    public final class Token {
+        private final int inflightAtStart;
+        private final long start;
+        private final AtomicInteger completed = new AtomicInteger();
+
+        private Token(int inflightAtStart, long start) {
+            this.inflightAtStart = inflightAtStart;
+            this.start = start;
+        }
+
+        public void onSuccess() {
+            complete(false, true);
+        }
+
+        /**
+         * The request failed in a way that indicates overload.
+         */
+        public void onDropped() {
+            complete(true, true);
+        }
+
+        /**
+         * The request ended without telling anything about capacity, e.g. it was cancelled or failed on its input.
+         */
+        public void onIgnore() {
+            complete(false, false);
+        }
+
+        private void complete(boolean dropped, boolean sample) {
+            if (completed.getAndIncrement() == 0) {
+                inflight.decrementAndGet();
+                if (sample) {
+                    update(ticker.getAsLong() - start, inflightAtStart, dropped);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package tech.bestwebshop.api.productcomposite.limit;
+
+final class AimdLimit implements LimitAlgorithm {
+
+    private final double backoffRatio;
+
+    AimdLimit(double backoffRatio) {
+        this.backoffRatio = backoffRatio;
+    }
+
+    @Override
+    public double update(double limit, long rttNanos, int inflight, boolean dropped) {
+        if (dropped) {
+            return limit * backoffRatio;
+        }
+        // only grow while the limit is actually what holds requests back
+        return inflight * 2 >= limit ? limit + 1 : limit;
+    }
+}
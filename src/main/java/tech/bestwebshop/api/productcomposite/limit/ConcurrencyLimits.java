@@ -0,0 +1,57 @@
+package tech.bestwebshop.api.productcomposite.limit;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The adaptive limiters of this service, one per handler and one per backing service, created on first use.
+ * Each publishes {@code inventory.limit}, {@code inventory.limit.inflight} and {@code inventory.limit.rejected},
+ * tagged with {@code scope} ({@code endpoint} or {@code downstream}) and {@code name}.
+ */
+@Component
+@EnableConfigurationProperties(LimitProperties.class)
+public class ConcurrencyLimits {
+
+    private final LimitProperties properties;
+    private final MeterRegistry meterRegistry;
+    private final Map<String, AdaptiveLimiter> endpoints = new ConcurrentHashMap<>();
+    private final Map<String, AdaptiveLimiter> downstream = new ConcurrentHashMap<>();
+
+    public ConcurrencyLimits(LimitProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.meterRegistry = meterRegistry;
+    }
+
+    public boolean isEnabled() {
+        return properties.isEnabled();
+    }
+
+    public AdaptiveLimiter endpoint(String handler) {
+        return endpoints.computeIfAbsent(handler, name -> create("endpoint", name, properties.getEndpoints()));
+    }
+
+    public AdaptiveLimiter downstream(String service) {
+        return downstream.computeIfAbsent(service, name -> create("downstream", name, properties.getDownstream()));
+    }
+
+    private AdaptiveLimiter create(String scope, String name, LimitProperties.Spec spec) {
+        AdaptiveLimiter limiter = new AdaptiveLimiter(spec);
+        Gauge.builder("inventory.limit", limiter, AdaptiveLimiter::getLimit)
+                .tag("scope", scope).tag("name", name)
+                .description("Current adaptive concurrency limit")
+                .register(meterRegistry);
+        Gauge.builder("inventory.limit.inflight", limiter, AdaptiveLimiter::getInflight)
+                .tag("scope", scope).tag("name", name)
+                .register(meterRegistry);
+        FunctionCounter.builder("inventory.limit.rejected", limiter, AdaptiveLimiter::getRejected)
+                .tag("scope", scope).tag("name", name)
+                .register(meterRegistry);
+        return limiter;
+    }
+}
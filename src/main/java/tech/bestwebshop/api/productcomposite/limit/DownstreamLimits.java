@@ -0,0 +1,83 @@
+package tech.bestwebshop.api.productcomposite.limit;
+
+import org.springframework.http.HttpRequest;
+import org.springframework.http.client.ClientHttpRequestExecution;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.lang.NonNull;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeFilterFunction;
+import org.springframework.web.reactive.function.client.ExchangeFunction;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.net.URI;
+
+/**
+ * Keeps the calls to each backing service within its adaptive concurrency limit, for the {@code RestTemplate} as
+ * an interceptor and for the {@code WebClient} as a filter. Calls over the limit fail with
+ * {@link LimitExceededException} without touching the network, so read handlers answer from the cache and write
+ * handlers with 503 through their usual fallbacks. 5xx answers and I/O errors count as drops.
+ */
+@Component
+public class DownstreamLimits implements ClientHttpRequestInterceptor, ExchangeFilterFunction {
+
+    private final ConcurrencyLimits limits;
+
+    public DownstreamLimits(ConcurrencyLimits limits) {
+        this.limits = limits;
+    }
+
+    @Override
+    @NonNull
+    public ClientHttpResponse intercept(@NonNull HttpRequest request, @NonNull byte[] body,
+                                        @NonNull ClientHttpRequestExecution execution) throws IOException {
+        if (!limits.isEnabled()) {
+            return execution.execute(request, body);
+        }
+        String service = serviceOf(request.getURI());
+        AdaptiveLimiter.Token token = limits.downstream(service).tryAcquire()
+                .orElseThrow(() -> new LimitExceededException(service));
+        try {
+            ClientHttpResponse response = execution.execute(request, body);
+            if (response.getRawStatusCode() >= 500) {
+                token.onDropped();
+            } else {
+                token.onSuccess();
+            }
+            return response;
+        } catch (IOException | RuntimeException ex) {
+            token.onDropped();
+            throw ex;
+        }
+    }
+
+    @Override
+    @NonNull
+    public Mono<ClientResponse> filter(@NonNull ClientRequest request, @NonNull ExchangeFunction next) {
+        if (!limits.isEnabled()) {
+            return next.exchange(request);
+        }
+        return Mono.defer(() -> {
+            String service = serviceOf(request.url());
+            return limits.downstream(service).tryAcquire()
+                    .map(token -> next.exchange(request)
+                            .doOnNext(response -> {
+                                if (response.rawStatusCode() >= 500) {
+                                    token.onDropped();
+                                } else {
+                                    token.onSuccess();
+                                }
+                            })
+                            .doOnError(ex -> token.onDropped())
+                            .doOnCancel(token::onIgnore))
+                    .orElseGet(() -> Mono.error(new LimitExceededException(service)));
+        });
+    }
+
+    private static String serviceOf(URI uri) {
+        return String.valueOf(uri.getHost());
+    }
+}
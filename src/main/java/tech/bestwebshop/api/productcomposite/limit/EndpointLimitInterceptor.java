@@ -0,0 +1,69 @@
+package tech.bestwebshop.api.productcomposite.limit;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.lang.NonNull;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+
+import javax.servlet.DispatcherType;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Admits requests to a handler method only within its adaptive concurrency limit and sheds the rest with
+ * {@code 503 Service Unavailable} before any work or queueing is spent on them.
+ * <p>
+ * The limiter is held until the request completes, including asynchronous handlers, and learns from the full
+ * handler latency. 5xx responses and exceptions count as drops.
+ */
+@Component
+public class EndpointLimitInterceptor implements AsyncHandlerInterceptor {
+
+    private static final String TOKEN = EndpointLimitInterceptor.class.getName() + ".token";
+
+    private final ConcurrencyLimits limits;
+
+    public EndpointLimitInterceptor(ConcurrencyLimits limits) {
+        this.limits = limits;
+    }
+
+    @Override
+    public boolean preHandle(@NonNull HttpServletRequest request, @NonNull HttpServletResponse response,
+                             @NonNull Object handler) {
+        // the asynchronous re-dispatch of a request keeps the token taken on its first dispatch
+        if (!limits.isEnabled() || !(handler instanceof HandlerMethod)
+                || request.getDispatcherType() != DispatcherType.REQUEST) {
+            return true;
+        }
+        // handler names are only unique within their controller
+        HandlerMethod method = (HandlerMethod) handler;
+        String name = method.getBeanType().getSimpleName() + "#" + method.getMethod().getName();
+        return limits.endpoint(name).tryAcquire()
+                .map(token -> {
+                    request.setAttribute(TOKEN, token);
+                    return true;
+                })
+                .orElseGet(() -> {
+                    response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+                    response.setHeader(HttpHeaders.RETRY_AFTER, "1");
+                    return false;
+                });
+    }
+
+    @Override
+    public void afterCompletion(@NonNull HttpServletRequest request, @NonNull HttpServletResponse response,
+                                @NonNull Object handler, @Nullable Exception ex) {
+        Object token = request.getAttribute(TOKEN);
+        if (token instanceof AdaptiveLimiter.Token) {
+            request.removeAttribute(TOKEN);
+            if (ex != null || response.getStatus() >= 500) {
+                ((AdaptiveLimiter.Token) token).onDropped();
+            } else {
+                ((AdaptiveLimiter.Token) token).onSuccess();
+            }
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package tech.bestwebshop.api.productcomposite.limit;
+
+/**
+ * Gradient limit after Netflix' concurrency-limits {@code Gradient2Limit}: the ratio of the long-term average
+ * latency to the latest one, capped at 1, scales the limit down as queues build up, and a queue allowance of
+ * {@code sqrt(limit)} lets it probe upwards while latency is stable. Samples are averaged over a window of about
+ * one limit's worth of requests before the limit moves, as with the library's {@code WindowedLimit}; updating on
+ * every sample would let the long-term average catch up within a single burst and never see a queue.
+ */
+final class GradientLimit implements LimitAlgorithm {
+
+    private static final int MIN_WINDOW = 10;
+
+    private final double backoffRatio;
+    private final double rttTolerance;
+    private final double smoothing;
+    private final int longWindow;
+
+    private double longRtt;
+    private long samples;
+
+    private long windowRttSum;
+    private int windowCount;
+    private int windowInflight;
+
+    GradientLimit(double backoffRatio, double rttTolerance, double smoothing, int longWindow) {
+        this.backoffRatio = backoffRatio;
+        this.rttTolerance = rttTolerance;
+        this.smoothing = smoothing;
+        this.longWindow = longWindow;
+    }
+
+    @Override
+    public double update(double limit, long rttNanos, int inflight, boolean dropped) {
+        if (dropped) {
+            resetWindow();
+            return limit * backoffRatio;
+        }
+        windowRttSum += rttNanos;
+        windowCount++;
+        windowInflight = Math.max(windowInflight, inflight);
+        if (windowCount < Math.max(MIN_WINDOW, (int) limit)) {
+            return limit;
+        }
+        double shortRtt = (double) windowRttSum / windowCount;
+        int maxInflight = windowInflight;
+        resetWindow();
+
+        samples++;
+        if (samples == 1) {
+            longRtt = shortRtt;
+        } else {
+            double weight = 1.0 / Math.min(samples, longWindow);
+            longRtt = longRtt * (1 - weight) + shortRtt * weight;
+        }
+        // after a sustained slowdown the average catches up quickly, otherwise the limit would stay pinned low
+        if (longRtt / shortRtt > 2) {
+            longRtt *= 0.95;
+        }
+        if (maxInflight * 2 < limit) {
+            return limit;
+        }
+        double gradient = Math.max(0.5, Math.min(1.0, rttTolerance * longRtt / shortRtt));
+        double estimate = limit * gradient + Math.sqrt(limit);
+        return limit * (1 - smoothing) + estimate * smoothing;
+    }
+
+    private void resetWindow() {
+        windowRttSum = 0;
+        windowCount = 0;
+        windowInflight = 0;
+    }
+}
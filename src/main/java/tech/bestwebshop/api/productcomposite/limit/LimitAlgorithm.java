@@ -0,0 +1,29 @@
+package tech.bestwebshop.api.productcomposite.limit;
+
+/**
+ * Computes the next concurrency limit from one completed request. Implementations are called under the
+ * limiter's lock and need no synchronization of their own.
+ */
+interface LimitAlgorithm {
+
+    /**
+     * @param limit    the current limit
+     * @param rttNanos latency of the request
+     * @param inflight requests in flight when it was admitted, itself included
+     * @param dropped  whether it failed in a way that indicates overload
+     * @return the new limit, not yet clamped to the configured bounds
+     */
+    double update(double limit, long rttNanos, int inflight, boolean dropped);
+
+    static LimitAlgorithm of(LimitProperties.Spec spec) {
+        switch (spec.getAlgorithm()) {
+            case AIMD:
+                return new AimdLimit(spec.getBackoffRatio());
+            case GRADIENT:
+                return new GradientLimit(spec.getBackoffRatio(), spec.getRttTolerance(), spec.getSmoothing(),
+                        spec.getLongWindow());
+            default:
+                throw new IllegalArgumentException("Unknown algorithm " + spec.getAlgorithm());
+        }
+    }
+}
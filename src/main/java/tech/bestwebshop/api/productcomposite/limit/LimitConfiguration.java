@@ -0,0 +1,20 @@
+package tech.bestwebshop.api.productcomposite.limit;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+@Configuration
+public class LimitConfiguration implements WebMvcConfigurer {
+
+    private final EndpointLimitInterceptor endpointLimitInterceptor;
+
+    public LimitConfiguration(EndpointLimitInterceptor endpointLimitInterceptor) {
+        this.endpointLimitInterceptor = endpointLimitInterceptor;
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(endpointLimitInterceptor);
+    }
+}
@@ -0,0 +1,12 @@
+package tech.bestwebshop.api.productcomposite.limit;
+
+/**
+ * A call to a backing service was not made because its concurrency limit is reached. Inside a handler this
+ * leads to the handler's fallback.
+ */
+public class LimitExceededException extends RuntimeException {
+
+    public LimitExceededException(String service) {
+        super("Concurrency limit of " + service + " reached");
+    }
+}
@@ -0,0 +1,60 @@
+package tech.bestwebshop.api.productcomposite.limit;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "inventory.limit")
+public class LimitProperties {
+
+    private boolean enabled = false;
+    /**
+     * One limiter per handler method, e.g. {@code InventoryController#getProduct}.
+     */
+    private Spec endpoints = new Spec();
+    /**
+     * One limiter per backing service, e.g. {@code product-service}.
+     */
+    private Spec downstream = new Spec();
+
+    @Data
+    public static class Spec {
+        private Algorithm algorithm = Algorithm.GRADIENT;
+        private int initialLimit = 20;
+        private int minLimit = 2;
+        private int maxLimit = 200;
+        /**
+         * Factor the limit is multiplied with after a dropped request (a 5xx answer, an error or a timeout).
+         */
+        private double backoffRatio = 0.9;
+        /**
+         * Gradient: how much the current latency may exceed the long-term average before the limit shrinks.
+         */
+        private double rttTolerance = 1.5;
+        /**
+         * Gradient: weight of a new estimate, between 0 and 1.
+         */
+        private double smoothing = 0.2;
+        /**
+         * Gradient: number of samples the long-term latency average spans.
+         */
+        private int longWindow = 600;
+        /**
+         * Requests slower than this count as dropped.
+         */
+        private Duration timeout = Duration.ofSeconds(5);
+    }
+
+    public enum Algorithm {
+        /**
+         * Additive increase while the limit is in use, multiplicative decrease on drops.
+         */
+        AIMD,
+        /**
+         * Shrinks the limit as latency rises above its long-term average, grows it by a queue allowance otherwise.
+         */
+        GRADIENT
+    }
+}
@@ -0,0 +1,47 @@
+package tech.bestwebshop.api.productcomposite.logging;
+
+/**
+ * Renders caller-supplied values for log messages: quoted, with line breaks and other control characters escaped,
+ * so a value cannot forge log lines, and cut to {@link #MAX_LENGTH} characters.
+ */
+public final class LogValues {
+
+    static final int MAX_LENGTH = 100;
+
+    private LogValues() {
+    }
+
+    public static String quote(String value) {
+        if (value == null) {
+            return "null";
+        }
+        int length = Math.min(value.length(), MAX_LENGTH);
+        StringBuilder quoted = new StringBuilder(length + 8).append('"');
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"':
+                case '\\':
+                    quoted.append('\\').append(c);
+                    break;
+                case '\n':
+                    quoted.append("\\n");
+                    break;
+                case '\r':
+                    quoted.append("\\r");
+                    break;
+                case '\t':
+                    quoted.append("\\t");
+                    break;
+                default:
+                    if (Character.isISOControl(c) || c == '\u2028' || c == '\u2029') {
+                        quoted.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        quoted.append(c);
+                    }
+            }
+        }
+        quoted.append('"');
+        return value.length() > MAX_LENGTH ? quoted.append("...").toString() : quoted.toString();
+    }
+}
@@ -0,0 +1,33 @@
+package tech.bestwebshop.api.productcomposite.logging;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * INFO logging for hot request paths. On average one in {@code every} messages is logged at INFO, the others at
+ * FINE, so per-request lines stay visible without a line for every request. Messages are built lazily and only if
+ * they are actually logged.
+ */
+public final class SampledLogger {
+
+    private final Logger logger;
+    private final int every;
+
+    public SampledLogger(Logger logger, int every) {
+        if (every < 1) {
+            throw new IllegalArgumentException("every must be positive");
+        }
+        this.logger = logger;
+        this.every = every;
+    }
+
+    public void info(Supplier<String> message) {
+        if (logger.isLoggable(Level.INFO) && (every == 1 || ThreadLocalRandom.current().nextInt(every) == 0)) {
+            logger.info(message);
+        } else {
+            logger.fine(message);
+        }
+    }
+}
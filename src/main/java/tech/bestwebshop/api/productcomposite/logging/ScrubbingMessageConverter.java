@@ -0,0 +1,16 @@
+package tech.bestwebshop.api.productcomposite.logging;
+
+import ch.qos.logback.classic.pattern.MessageConverter;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+
+/**
+ * Logback {@code %msg} replacement that passes the message through {@link Secrets#scrub}. Registered as
+ * {@code %scrubbedMsg} in {@code logback-spring.xml}.
+ */
+public class ScrubbingMessageConverter extends MessageConverter {
+
+    @Override
+    public String convert(ILoggingEvent event) {
+        return Secrets.scrub(super.convert(event));
+    }
+}
@@ -0,0 +1,28 @@
+package tech.bestwebshop.api.productcomposite.logging;
+
+import java.util.regex.Pattern;
+
+/**
+ * Masks credentials in log output: bearer tokens, JWTs and {@code client-secret}/{@code password} values.
+ */
+public final class Secrets {
+
+    static final String MASK = "****";
+
+    private static final Pattern BEARER = Pattern.compile("(?i)(bearer\\s+)[A-Za-z0-9._~+/=-]+");
+    private static final Pattern JWT = Pattern.compile("eyJ[A-Za-z0-9_-]*\\.[A-Za-z0-9_-]+\\.[A-Za-z0-9_-]*");
+    private static final Pattern KEY_VALUE =
+            Pattern.compile("(?i)((?:client[-_]?secret|password|access_token)\"?\\s*[=:]\\s*\"?)[^\\s\",&]+");
+
+    private Secrets() {
+    }
+
+    public static String scrub(String message) {
+        if (message == null || message.isEmpty()) {
+            return message;
+        }
+        String scrubbed = BEARER.matcher(message).replaceAll("$1" + MASK);
+        scrubbed = JWT.matcher(scrubbed).replaceAll(MASK);
+        return KEY_VALUE.matcher(scrubbed).replaceAll("$1" + MASK);
+    }
+}
@@ -0,0 +1,19 @@
+package tech.bestwebshop.api.productcomposite.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Outcome of one item of a batch request. {@code index} refers to the position of the item in the request.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchResult<T> {
+
+    private int index;
+    private int status;
+    private T body;
+    private String error;
+}
@@ -0,0 +1,254 @@
+package tech.bestwebshop.api.productcomposite.refresh;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpMethod;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestTemplate;
+import tech.bestwebshop.api.productcomposite.cache.InventoryCache;
+import tech.bestwebshop.api.productcomposite.index.CategoryNameIndex;
+import tech.bestwebshop.api.productcomposite.index.IndexProperties;
+import tech.bestwebshop.api.productcomposite.index.ProductIndex;
+import tech.bestwebshop.api.productcomposite.model.Category;
+import tech.bestwebshop.api.productcomposite.model.CoreProduct;
+import tech.bestwebshop.api.productcomposite.model.Product;
+
+import javax.annotation.PreDestroy;
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+import java.util.logging.Logger;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Loads the catalog into the caches and indexes once the application is ready and keeps it synchronized, so that
+ * product searches are answered from the index instead of a full fetch and join per request.
+ * <p>
+ * Each cycle fetches the category and product lists with the service's own token and compares them with the
+ * local copies: every entry is re-put into the caches to renew it, but only products that actually changed are
+ * re-indexed and only vanished ids are removed. A successful cycle marks the indexes as complete and current.
+ * The age of the last successful cycle is published as {@code inventory.refresh.lag}, the number of changes
+ * found as {@code inventory.refresh.changes}.
+ * <p>
+ * The backing services offer neither paging nor change feeds, so every cycle transfers both full lists; it is off
+ * by default and needs a client registered for the {@code client_credentials} grant in
+ * {@code inventory.service-client}, without one it stays off.
+ */
+@Component
+@EnableConfigurationProperties({RefreshProperties.class, ServiceCredentials.class})
+public class CatalogRefresher {
+
+    private static final Logger LOGGER = Logger.getLogger(CatalogRefresher.class.getSimpleName());
+
+    private static final String PRODUCT_SERVICE_URL = "http://product-service/products";
+    private static final String CATEGORY_SERVICE_URL = "http://category-service/categories";
+
+    private final RestTemplate restTemplate;
+    private final ServiceToken serviceToken;
+    private final InventoryCache cache;
+    private final ProductIndex productIndex;
+    private final CategoryNameIndex categoryNames;
+    private final RefreshProperties properties;
+    private final IndexProperties indexProperties;
+    private final MeterRegistry meterRegistry;
+    private final LongSupplier ticker = System::nanoTime;
+
+    private volatile long lastSuccess = ticker.getAsLong();
+    private long nextPermit = ticker.getAsLong();
+    private ScheduledExecutorService scheduler;
+
+    public CatalogRefresher(RestTemplate restTemplate, ServiceToken serviceToken, InventoryCache cache,
+                            ProductIndex productIndex, CategoryNameIndex categoryNames, RefreshProperties properties,
+                            IndexProperties indexProperties, MeterRegistry meterRegistry) {
+        this.restTemplate = restTemplate;
+        this.serviceToken = serviceToken;
+        this.cache = cache;
+        this.productIndex = productIndex;
+        this.categoryNames = categoryNames;
+        this.properties = properties;
+        this.indexProperties = indexProperties;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        if (!serviceToken.isConfigured()) {
+            LOGGER.warning("[CatalogRefresher#start] inventory.service-client is not configured, the catalog is not "
+                    + "refreshed in the background.");
+            return;
+        }
+        if (properties.getInterval().compareTo(indexProperties.getMaxAge()) >= 0) {
+            LOGGER.warning("[CatalogRefresher#start] inventory.refresh.interval " + properties.getInterval()
+                    + " is not below inventory.index.max-age " + indexProperties.getMaxAge()
+                    + ", searches will fall back to full fetches between cycles.");
+        }
+        TimeGauge.builder("inventory.refresh.lag", this, TimeUnit.NANOSECONDS,
+                refresher -> refresher.ticker.getAsLong() - refresher.lastSuccess)
+                .description("Time since the catalog was last synchronized")
+                .register(meterRegistry);
+        // cycles never overlap, further threads only fetch the lists of one cycle in parallel
+        scheduler = Executors.newScheduledThreadPool(Math.max(1, properties.getConcurrency()), runnable -> {
+            Thread thread = new Thread(runnable, "inventory-catalog-refresh");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::refreshQuietly, properties.getInitialDelay().toMillis(),
+                properties.getInterval().toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    private void refreshQuietly() {
+        try {
+            refresh();
+        } catch (RuntimeException ex) {
+            // the next cycle tries again; until then the indexes age out and requests fetch for themselves
+            LOGGER.warning("[CatalogRefresher#refresh] Refresh failed: " + ex.getMessage());
+        }
+    }
+
+    void refresh() {
+        HttpEntity<?> request = serviceToken.httpEntity();
+        // ids known before the fetch: anything written locally after it is not mistaken for removed upstream
+        List<Category> knownCategories = cache.categories().values();
+        Set<Integer> knownProducts = new HashSet<>(productIndex.ids());
+        Future<CoreProduct[]> productFetch = properties.getConcurrency() > 1 && scheduler != null
+                ? scheduler.submit(() -> fetch(PRODUCT_SERVICE_URL, request, CoreProduct[].class))
+                : null;
+        Map<Integer, Category> categoryMap = new HashMap<>();
+        try {
+            for (Category category : fetch(CATEGORY_SERVICE_URL, request, Category[].class)) {
+                categoryMap.put(category.getId(), category);
+            }
+        } catch (RuntimeException ex) {
+            if (productFetch != null) {
+                productFetch.cancel(true);
+            }
+            throw ex;
+        }
+        syncCategories(knownCategories, categoryMap);
+
+        CoreProduct[] coreProducts = productFetch != null
+                ? join(productFetch)
+                : fetch(PRODUCT_SERVICE_URL, request, CoreProduct[].class);
+        syncProducts(knownProducts, coreProducts, categoryMap);
+        lastSuccess = ticker.getAsLong();
+    }
+
+    private <T> T fetch(String url, HttpEntity<?> request, Class<T> type) {
+        awaitPermit();
+        return requireNonNull(restTemplate.exchange(url, HttpMethod.GET, request, type).getBody());
+    }
+
+    private void awaitPermit() {
+        if (properties.getRequestsPerSecond() <= 0) {
+            return;
+        }
+        long spacing = (long) (TimeUnit.SECONDS.toNanos(1) / properties.getRequestsPerSecond());
+        long wait;
+        synchronized (this) {
+            long now = ticker.getAsLong();
+            long permit = Math.max(now, nextPermit);
+            nextPermit = permit + spacing;
+            wait = permit - now;
+        }
+        try {
+            TimeUnit.NANOSECONDS.sleep(wait);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Refresh interrupted", ex);
+        }
+    }
+
+    private static <T> T join(Future<T> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException ex) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Refresh interrupted", ex);
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) ex.getCause();
+            }
+            throw new IllegalStateException(ex.getCause());
+        }
+    }
+
+    private void syncCategories(List<Category> knownCategories, Map<Integer, Category> categoryMap) {
+        int removed = 0;
+        for (Category cached : knownCategories) {
+            if (!categoryMap.containsKey(cached.getId())) {
+                cache.categories().invalidate(cached.getId());
+                removed++;
+            }
+        }
+        categoryMap.values().forEach(category -> cache.categories().put(category.getId(), category));
+        categoryNames.replaceAll(categoryMap.values());
+        countChanges("category", "removed", removed);
+    }
+
+    private void syncProducts(Set<Integer> vanished, CoreProduct[] coreProducts, Map<Integer, Category> categoryMap) {
+        int upserted = 0;
+        int missing = 0;
+        for (CoreProduct coreProduct : coreProducts) {
+            vanished.remove(coreProduct.getId());
+            Category category = categoryMap.get(coreProduct.getCategoryID());
+            if (category == null) {
+                // e.g. created with a category added after the list was read; the next pass picks it up, until
+                // then it is neither cached nor indexed with a stand-in category
+                if (productIndex.get(coreProduct.getId()).isEmpty()) {
+                    missing++;
+                }
+                continue;
+            }
+            Product fetched = new Product(coreProduct.getId(), coreProduct.getName(), coreProduct.getPrice(),
+                    category, coreProduct.getDetails());
+            Optional<Product> indexed = productIndex.get(fetched.getId()).filter(fetched::equals);
+            // an unchanged product is re-cached as the indexed instance, whose content digest the cache keeps
+            Product product = indexed.orElse(fetched);
+            cache.products().put(product.getId(), product);
+            if (indexed.isEmpty()) {
+                productIndex.put(product);
+                upserted++;
+            }
+        }
+        for (Integer productId : vanished) {
+            cache.products().invalidate(productId);
+            productIndex.remove(productId);
+        }
+        if (missing == 0) {
+            productIndex.markComplete();
+        } else {
+            LOGGER.warning("[CatalogRefresher#refresh] " + missing + " products refer to unknown categories, "
+                    + "the index stays incomplete.");
+        }
+        countChanges("product", "upserted", upserted);
+        countChanges("product", "removed", vanished.size());
+        if (upserted > 0 || !vanished.isEmpty()) {
+            LOGGER.fine("[CatalogRefresher#refresh] " + upserted + " products changed, " + vanished.size()
+                    + " removed.");
+        }
+    }
+
+    private void countChanges(String entity, String change, int count) {
+        meterRegistry.counter("inventory.refresh.changes", "entity", entity, "change", change).increment(count);
+    }
+}
@@ -0,0 +1,35 @@
+package tech.bestwebshop.api.productcomposite.refresh;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Background synchronization of the caches and indexes with product-service and category-service. A cycle makes
+ * two list requests and cycles never overlap, so {@code interval} and {@code requests-per-second} bound the load
+ * put on the backing services. The interval has to stay below {@code inventory.index.max-age}, the staleness bound
+ * up to which product searches are answered locally. Requires {@code inventory.service-client}.
+ */
+@Data
+@ConfigurationProperties(prefix = "inventory.refresh")
+public class RefreshProperties {
+
+    private boolean enabled = false;
+    /**
+     * Delay between the application being ready and the first, warming, cycle.
+     */
+    private Duration initialDelay = Duration.ZERO;
+    /**
+     * Delay between the end of a cycle and the start of the next.
+     */
+    private Duration interval = Duration.ofSeconds(30);
+    /**
+     * List requests of a cycle in flight at once: 1 fetches categories, then products; 2 fetches both together.
+     */
+    private int concurrency = 1;
+    /**
+     * Most requests started per second, over all cycles; 0 for no limit.
+     */
+    private double requestsPerSecond = 0;
+}
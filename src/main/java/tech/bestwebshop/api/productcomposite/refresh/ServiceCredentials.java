@@ -0,0 +1,28 @@
+package tech.bestwebshop.api.productcomposite.refresh;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.StringUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The OAuth2 client this service uses for work not triggered by a user request. It has to be registered with the
+ * authorization server for the {@code client_credentials} grant; the {@code security.oauth2.client} registration
+ * of the web client is not.
+ */
+@Data
+@ConfigurationProperties(prefix = "inventory.service-client")
+public class ServiceCredentials {
+
+    private String clientId;
+    private String clientSecret;
+    private String accessTokenUri;
+    private List<String> scope = new ArrayList<>();
+
+    public boolean isComplete() {
+        return StringUtils.hasText(clientId) && StringUtils.hasText(clientSecret)
+                && StringUtils.hasText(accessTokenUri);
+    }
+}
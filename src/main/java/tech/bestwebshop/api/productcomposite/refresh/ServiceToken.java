@@ -0,0 +1,54 @@
+package tech.bestwebshop.api.productcomposite.refresh;
+
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.security.oauth2.client.token.DefaultAccessTokenRequest;
+import org.springframework.security.oauth2.client.token.grant.client.ClientCredentialsAccessTokenProvider;
+import org.springframework.security.oauth2.client.token.grant.client.ClientCredentialsResourceDetails;
+import org.springframework.security.oauth2.common.OAuth2AccessToken;
+import org.springframework.stereotype.Component;
+
+/**
+ * Client-credentials access token of this service, fetched on first use and renewed shortly before it expires.
+ */
+@Component
+public class ServiceToken {
+
+    private static final int RENEW_BEFORE_SECONDS = 30;
+
+    private final ClientCredentialsAccessTokenProvider provider = new ClientCredentialsAccessTokenProvider();
+    private final ClientCredentialsResourceDetails details = new ClientCredentialsResourceDetails();
+    private final boolean configured;
+    private volatile OAuth2AccessToken token;
+
+    public ServiceToken(ServiceCredentials credentials) {
+        configured = credentials.isComplete();
+        details.setClientId(credentials.getClientId());
+        details.setClientSecret(credentials.getClientSecret());
+        details.setAccessTokenUri(credentials.getAccessTokenUri());
+        details.setScope(credentials.getScope());
+    }
+
+    /**
+     * @return whether {@code inventory.service-client} names a client to request tokens for
+     */
+    public boolean isConfigured() {
+        return configured;
+    }
+
+    public HttpEntity<?> httpEntity() {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setBearerAuth(value());
+        return new HttpEntity<>(headers);
+    }
+
+    private synchronized String value() {
+        OAuth2AccessToken current = token;
+        if (current == null || current.getExpiration() != null
+                && current.getExpiresIn() < RENEW_BEFORE_SECONDS) {
+            current = provider.obtainAccessToken(details, new DefaultAccessTokenRequest());
+            token = current;
+        }
+        return current.getValue();
+    }
+}
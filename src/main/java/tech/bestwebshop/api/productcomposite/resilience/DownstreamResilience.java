@@ -0,0 +1,202 @@
+package tech.bestwebshop.api.productcomposite.resilience;
+
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.bulkhead.BulkheadConfig;
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerConfig;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.github.resilience4j.core.IntervalFunction;
+import io.github.resilience4j.micrometer.tagged.TaggedBulkheadMetrics;
+import io.github.resilience4j.micrometer.tagged.TaggedCircuitBreakerMetrics;
+import io.github.resilience4j.micrometer.tagged.TaggedRetryMetrics;
+import io.github.resilience4j.reactor.bulkhead.operator.BulkheadOperator;
+import io.github.resilience4j.reactor.circuitbreaker.operator.CircuitBreakerOperator;
+import io.github.resilience4j.reactor.retry.RetryOperator;
+import io.github.resilience4j.retry.Retry;
+import io.github.resilience4j.retry.RetryConfig;
+import io.github.resilience4j.retry.RetryRegistry;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.http.HttpMethod;
+import org.springframework.lang.NonNull;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestClientResponseException;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeFilterFunction;
+import org.springframework.web.reactive.function.client.ExchangeFunction;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Mono;
+import tech.bestwebshop.api.productcomposite.client.ReadTimeout;
+import tech.bestwebshop.api.productcomposite.limit.LimitExceededException;
+
+import java.io.IOException;
+import java.net.URI;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Guards the calls to each backing service with the policy configured for it under {@code inventory.resilience}:
+ * a retry with jittered exponential backoff for idempotent methods, around a bulkhead, around a circuit breaker,
+ * around a time limit on the single attempt. Everything runs on the calling thread; the bulkhead is a semaphore.
+ * <p>
+ * Blocking calls enter through {@link ResilientRestTemplate}, where the time limit is the read timeout of the pooled
+ * HttpClient. {@code WebClient} calls pass this class as a filter and time out on the response. Neither is a
+ * deadline for the whole call: retries wait again, so callers with a deadline of their own, like the fan-out legs,
+ * need it to cover {@link ResilienceProperties.Policy#longestGet()}; a call they abandon keeps its thread and its
+ * bulkhead slot until it ends. Only 5xx answers,
+ * I/O errors and timeouts count as failures and are retried; calls shed by the adaptive limits and failures to pass
+ * a streamed response on are neither. When a call is refused, {@code CallNotPermittedException} or
+ * {@code BulkheadFullException} reaches the handler, which answers from its fallback like for any other failed call.
+ * <p>
+ * State, calls and retries are published as the library's {@code resilience4j.*} meters, tagged by service.
+ */
+@Component
+@EnableConfigurationProperties(ResilienceProperties.class)
+public class DownstreamResilience implements ExchangeFilterFunction {
+
+    private final ResilienceProperties properties;
+    private final BulkheadRegistry bulkheads = BulkheadRegistry.ofDefaults();
+    private final CircuitBreakerRegistry circuitBreakers = CircuitBreakerRegistry.ofDefaults();
+    private final RetryRegistry retries = RetryRegistry.ofDefaults();
+    private final Map<String, Route> routes = new ConcurrentHashMap<>();
+
+    public DownstreamResilience(ResilienceProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        TaggedBulkheadMetrics.ofBulkheadRegistry(bulkheads).bindTo(meterRegistry);
+        TaggedCircuitBreakerMetrics.ofCircuitBreakerRegistry(circuitBreakers).bindTo(meterRegistry);
+        TaggedRetryMetrics.ofRetryRegistry(retries).bindTo(meterRegistry);
+    }
+
+    /**
+     * Runs a blocking call to the service named by the URI's host under that service's policy.
+     */
+    public <T> T execute(URI uri, @Nullable HttpMethod method, Supplier<T> call) {
+        if (!properties.isEnabled()) {
+            return call.get();
+        }
+        Route route = route(serviceOf(uri));
+        Supplier<T> guarded = guard(route, call);
+        return route.retries(method) ? Retry.decorateSupplier(route.retry, guarded).get() : guarded.get();
+    }
+
+    /**
+     * Like {@link #execute}, but never retries, for calls whose effects cannot be repeated.
+     */
+    public <T> T executeOnce(URI uri, Supplier<T> call) {
+        if (!properties.isEnabled()) {
+            return call.get();
+        }
+        return guard(route(serviceOf(uri)), call).get();
+    }
+
+    private static <T> Supplier<T> guard(Route route, Supplier<T> call) {
+        return Bulkhead.decorateSupplier(route.bulkhead,
+                CircuitBreaker.decorateSupplier(route.circuitBreaker,
+                        () -> ReadTimeout.with(route.timeout, call)));
+    }
+
+    @Override
+    @NonNull
+    public Mono<ClientResponse> filter(@NonNull ClientRequest request, @NonNull ExchangeFunction next) {
+        if (!properties.isEnabled()) {
+            return next.exchange(request);
+        }
+        Route route = route(serviceOf(request.url()));
+        // deferred, so that every attempt lets the load balancer choose an instance again
+        Mono<ClientResponse> guarded = Mono.defer(() -> next.exchange(request))
+                .flatMap(DownstreamResilience::failOnServerError)
+                .timeout(route.timeout)
+                .transform(CircuitBreakerOperator.of(route.circuitBreaker))
+                .transform(BulkheadOperator.of(route.bulkhead));
+        return route.retries(request.method()) ? guarded.transform(RetryOperator.of(route.retry)) : guarded;
+    }
+
+    /**
+     * Whether a failed call says something about the health of the service and might succeed when repeated.
+     */
+    static boolean isTransient(Throwable ex) {
+        if (ex instanceof RestClientResponseException) {
+            return ((RestClientResponseException) ex).getRawStatusCode() >= 500;
+        }
+        if (ex instanceof WebClientResponseException) {
+            return ((WebClientResponseException) ex).getRawStatusCode() >= 500;
+        }
+        return ex instanceof ResourceAccessException || ex instanceof IOException || ex instanceof TimeoutException;
+    }
+
+    private static Mono<ClientResponse> failOnServerError(ClientResponse response) {
+        if (response.rawStatusCode() >= 500) {
+            return response.createException().flatMap(Mono::error);
+        }
+        return Mono.just(response);
+    }
+
+    private Route route(String service) {
+        return routes.computeIfAbsent(service, this::createRoute);
+    }
+
+    private Route createRoute(String service) {
+        ResilienceProperties.Policy policy = properties.policyFor(service);
+        ResilienceProperties.Bulkhead bulkhead = policy.getBulkhead();
+        ResilienceProperties.CircuitBreaker circuitBreaker = policy.getCircuitBreaker();
+        ResilienceProperties.Retry retry = policy.getRetry();
+        return new Route(
+                bulkheads.bulkhead(service, BulkheadConfig.custom()
+                        .maxConcurrentCalls(bulkhead.getMaxConcurrentCalls())
+                        .maxWaitDuration(bulkhead.getMaxWait())
+                        .build()),
+                circuitBreakers.circuitBreaker(service, CircuitBreakerConfig.custom()
+                        .failureRateThreshold(circuitBreaker.getFailureRateThreshold())
+                        .slowCallRateThreshold(circuitBreaker.getSlowCallRateThreshold())
+                        .slowCallDurationThreshold(circuitBreaker.getSlowCallDuration())
+                        .slidingWindowSize(circuitBreaker.getSlidingWindowSize())
+                        .minimumNumberOfCalls(circuitBreaker.getMinimumNumberOfCalls())
+                        .waitDurationInOpenState(circuitBreaker.getWaitInOpenState())
+                        .permittedNumberOfCallsInHalfOpenState(circuitBreaker.getPermittedCallsInHalfOpenState())
+                        .recordException(DownstreamResilience::isTransient)
+                        .ignoreException(ex -> ex instanceof LimitExceededException
+                                || ex instanceof StreamConsumerException)
+                        .build()),
+                retries.retry(service, RetryConfig.custom()
+                        .maxAttempts(retry.getMaxAttempts())
+                        .intervalFunction(IntervalFunction.ofExponentialRandomBackoff(retry.getInitialBackoff(),
+                                retry.getMultiplier(), retry.getJitter()))
+                        .retryOnException(DownstreamResilience::isTransient)
+                        .build()),
+                retry.getMethods(),
+                policy.getTimeout());
+    }
+
+    private static String serviceOf(URI uri) {
+        return String.valueOf(uri.getHost());
+    }
+
+    private static final class Route {
+        private final Bulkhead bulkhead;
+        private final CircuitBreaker circuitBreaker;
+        private final Retry retry;
+        private final Set<HttpMethod> retryMethods;
+        private final Duration timeout;
+
+        private Route(Bulkhead bulkhead, CircuitBreaker circuitBreaker, Retry retry, Set<HttpMethod> retryMethods,
+                      Duration timeout) {
+            this.bulkhead = bulkhead;
+            this.circuitBreaker = circuitBreaker;
+            this.retry = retry;
+            this.retryMethods = retryMethods;
+            this.timeout = timeout;
+        }
+
+        private boolean retries(@Nullable HttpMethod method) {
+            return method != null && retry.getRetryConfig().getMaxAttempts() > 1 && retryMethods.contains(method);
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package tech.bestwebshop.api.productcomposite.resilience;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.http.HttpMethod;
+
+import java.time.Duration;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Isolation, circuit breaking, time limiting and retries for the calls to each backing service.
+ */
+@Data
+@ConfigurationProperties(prefix = "inventory.resilience")
+public class ResilienceProperties {
+
+    private boolean enabled = true;
+    /**
+     * Policy for backing services without an entry under {@code routes}.
+     */
+    private Policy defaults = new Policy();
+    /**
+     * Policies by service id as the load balancer knows it, e.g. {@code product-service}. A route replaces the
+     * defaults as a whole; settings it leaves out take the built-in values below.
+     */
+    private Map<String, Policy> routes = new HashMap<>();
+
+    public Policy policyFor(String service) {
+        return routes.getOrDefault(service, defaults);
+    }
+
+    @Data
+    public static class Policy {
+        private Bulkhead bulkhead = new Bulkhead();
+        private CircuitBreaker circuitBreaker = new CircuitBreaker();
+        /**
+         * Longest wait for data from the service within a single attempt. It is a read timeout, not a deadline: a
+         * response that keeps arriving in time may take longer as a whole, and every retry waits again.
+         */
+        private Duration timeout = Duration.ofSeconds(2);
+        private Retry retry = new Retry();
+
+        /**
+         * @return how long a GET can take when every attempt times out and every backoff is at its longest
+         */
+        public Duration longestGet() {
+            int attempts = retry.getMethods().contains(HttpMethod.GET) ? Math.max(1, retry.getMaxAttempts()) : 1;
+            double backoff = 0;
+            double wait = retry.getInitialBackoff().toMillis();
+            for (int attempt = 1; attempt < attempts; attempt++) {
+                backoff += wait * (1 + retry.getJitter());
+                wait *= retry.getMultiplier();
+            }
+            return timeout.multipliedBy(attempts).plusMillis((long) Math.ceil(backoff));
+        }
+    }
+
+    @Data
+    public static class Bulkhead {
+        /**
+         * Calls to the service in flight at once; further calls fail immediately after {@code max-wait}.
+         */
+        private int maxConcurrentCalls = 100;
+        private Duration maxWait = Duration.ZERO;
+    }
+
+    @Data
+    public static class CircuitBreaker {
+        /**
+         * Percentage of failed calls in the sliding window that opens the circuit.
+         */
+        private float failureRateThreshold = 50;
+        /**
+         * Percentage of calls slower than {@code slow-call-duration} that opens the circuit.
+         */
+        private float slowCallRateThreshold = 100;
+        private Duration slowCallDuration = Duration.ofSeconds(2);
+        /**
+         * Number of most recent calls the rates are computed over.
+         */
+        private int slidingWindowSize = 20;
+        private int minimumNumberOfCalls = 20;
+        private Duration waitInOpenState = Duration.ofSeconds(5);
+        private int permittedCallsInHalfOpenState = 5;
+    }
+
+    @Data
+    public static class Retry {
+        /**
+         * Attempts including the first one; 1 disables retries.
+         */
+        private int maxAttempts = 3;
+        /**
+         * Wait before the first retry, at least 10 ms; each further wait is {@code multiplier} times longer.
+         */
+        private Duration initialBackoff = Duration.ofMillis(50);
+        private double multiplier = 2;
+        /**
+         * Each backoff is randomized by up to this fraction, so that callers do not retry in lockstep.
+         */
+        private double jitter = 0.5;
+        /**
+         * Only idempotent methods should be listed.
+         */
+        private Set<HttpMethod> methods = EnumSet.of(HttpMethod.GET);
+    }
+}
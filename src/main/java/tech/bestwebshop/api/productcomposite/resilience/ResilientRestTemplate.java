@@ -0,0 +1,36 @@
+package tech.bestwebshop.api.productcomposite.resilience;
+
+import org.springframework.http.HttpMethod;
+import org.springframework.http.client.ClientHttpRequestFactory;
+import org.springframework.lang.Nullable;
+import org.springframework.web.client.RequestCallback;
+import org.springframework.web.client.ResponseExtractor;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.client.RestTemplate;
+
+import java.net.URI;
+
+/**
+ * {@link RestTemplate} whose calls each pass {@link DownstreamResilience} as a whole, keyed by the service name in
+ * the URI. Wrapping {@code doExecute} instead of adding an interceptor lets a retry run the complete interceptor
+ * chain again, including the load balancer's choice of instance; an interceptor can only proceed once. Calls with a
+ * {@link StreamingResponseExtractor} are guarded but never retried.
+ */
+public class ResilientRestTemplate extends RestTemplate {
+
+    private final DownstreamResilience resilience;
+
+    public ResilientRestTemplate(ClientHttpRequestFactory requestFactory, DownstreamResilience resilience) {
+        super(requestFactory);
+        this.resilience = resilience;
+    }
+
+    @Override
+    protected <T> T doExecute(URI url, @Nullable HttpMethod method, @Nullable RequestCallback requestCallback,
+                              @Nullable ResponseExtractor<T> responseExtractor) throws RestClientException {
+        if (responseExtractor instanceof StreamingResponseExtractor) {
+            return resilience.executeOnce(url, () -> super.doExecute(url, method, requestCallback, responseExtractor));
+        }
+        return resilience.execute(url, method, () -> super.doExecute(url, method, requestCallback, responseExtractor));
+    }
+}
@@ -0,0 +1,19 @@
+package tech.bestwebshop.api.productcomposite.resilience;
+
+import java.io.IOException;
+
+/**
+ * Thrown by a {@link StreamingResponseExtractor} when passing the response on failed, e.g. because the client
+ * went away, as opposed to reading it from the backing service. It does not count against the service's circuit.
+ */
+public class StreamConsumerException extends RuntimeException {
+
+    public StreamConsumerException(IOException cause) {
+        super(cause);
+    }
+
+    @Override
+    public synchronized IOException getCause() {
+        return (IOException) super.getCause();
+    }
+}
@@ -0,0 +1,12 @@
+package tech.bestwebshop.api.productcomposite.resilience;
+
+import org.springframework.web.client.ResponseExtractor;
+
+/**
+ * A {@link ResponseExtractor} that hands the response on while reading it, e.g. to a streamed client response.
+ * What it has handed on cannot be taken back, so {@link ResilientRestTemplate} never retries calls using it.
+ * Failures of its consumer are reported as {@link StreamConsumerException}.
+ */
+@FunctionalInterface
+public interface StreamingResponseExtractor<T> extends ResponseExtractor<T> {
+}
@@ -0,0 +1,32 @@
+package tech.bestwebshop.api.productcomposite.security;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.security.oauth2.provider.OAuth2Authentication;
+import org.springframework.security.oauth2.provider.authentication.OAuth2AuthenticationDetails;
+
+/**
+ * Headers that pass the caller's token on to the backing services.
+ */
+public final class BearerHeaders {
+
+    private BearerHeaders() {
+    }
+
+    /**
+     * Builds the headers on the first call for a request and returns the same read-only instance to every further
+     * downstream call it makes. They are kept in the slot the authentication details reserve for decoded token data.
+     */
+    public static HttpHeaders of(OAuth2Authentication auth) {
+        OAuth2AuthenticationDetails details = (OAuth2AuthenticationDetails) auth.getDetails();
+        Object decoded = details.getDecodedDetails();
+        if (decoded instanceof HttpHeaders) {
+            return (HttpHeaders) decoded;
+        }
+        HttpHeaders headers = new HttpHeaders();
+        headers.setBearerAuth(details.getTokenValue());
+        // concurrent fan-out calls may each build them once; read-only headers are safe to publish this way
+        HttpHeaders readOnly = HttpHeaders.readOnlyHttpHeaders(headers);
+        details.setDecodedDetails(readOnly);
+        return readOnly;
+    }
+}
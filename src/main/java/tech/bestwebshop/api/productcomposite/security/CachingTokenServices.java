@@ -0,0 +1,113 @@
+package tech.bestwebshop.api.productcomposite.security;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.lang.NonNull;
+import org.springframework.security.oauth2.common.OAuth2AccessToken;
+import org.springframework.security.oauth2.common.exceptions.InvalidTokenException;
+import org.springframework.security.oauth2.provider.OAuth2Authentication;
+import org.springframework.security.oauth2.provider.token.ResourceServerTokenServices;
+import org.springframework.stereotype.Component;
+import tech.bestwebshop.api.productcomposite.cache.CacheMetrics;
+import tech.bestwebshop.api.productcomposite.cache.LocalCache;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.Map;
+
+/**
+ * Validates the bearer tokens of incoming requests and remembers the outcome, so that a client sending the same
+ * token again is authenticated without verifying its RSA signature and parsing its claims once more.
+ * <p>
+ * Tokens are cached by their SHA-256 hash, never by value, until they expire but at most for
+ * {@code inventory.tokens.cache.maximum-age}. Invalid tokens are not cached. A miss verifies the token once, where
+ * the default token services verify it twice. The cache is published like the inventory caches, tagged
+ * {@code cache=tokenCache}.
+ */
+@Component
+@ConditionalOnProperty(prefix = "inventory.tokens", name = "enabled", havingValue = "true", matchIfMissing = true)
+@EnableConfigurationProperties(TokenProperties.class)
+public class CachingTokenServices implements ResourceServerTokenServices, MeterBinder {
+
+    private final KeySetTokenConverter converter;
+    private final TokenProperties.Cache properties;
+    private final LocalCache<String, ValidatedToken> cache;
+
+    public CachingTokenServices(JwkKeySet keySet, TokenProperties properties) {
+        this.converter = new KeySetTokenConverter(keySet);
+        this.properties = properties.getCache();
+        this.cache = new LocalCache<>(this.properties.getMaximumSize(), this.properties.getMaximumAge());
+    }
+
+    @Override
+    public OAuth2Authentication loadAuthentication(String accessToken) {
+        if (!properties.isEnabled()) {
+            return validate(accessToken).authentication();
+        }
+        String key = hash(accessToken);
+        ValidatedToken validated = cache.get(key).orElse(null);
+        if (validated == null || validated.isExpired()) {
+            if (validated != null) {
+                cache.invalidate(key);
+            }
+            validated = validate(accessToken);
+            cache.put(key, validated);
+        }
+        return validated.authentication();
+    }
+
+    @Override
+    public OAuth2AccessToken readAccessToken(String accessToken) {
+        return converter.extractAccessToken(accessToken, converter.verify(accessToken));
+    }
+
+    @Override
+    public void bindTo(@NonNull MeterRegistry registry) {
+        CacheMetrics.bind(registry, "tokenCache", cache);
+    }
+
+    private ValidatedToken validate(String accessToken) {
+        Map<String, Object> claims = converter.verify(accessToken);
+        OAuth2AccessToken token = converter.extractAccessToken(accessToken, claims);
+        if (token.isExpired()) {
+            throw new InvalidTokenException("Access token expired");
+        }
+        long expiresAt = token.getExpiration() != null ? token.getExpiration().getTime() : Long.MAX_VALUE;
+        return new ValidatedToken(converter.extractAuthentication(claims), expiresAt);
+    }
+
+    private static String hash(String accessToken) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256")
+                    .digest(accessToken.getBytes(StandardCharsets.US_ASCII));
+            return Base64.getEncoder().encodeToString(digest);
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    private static final class ValidatedToken {
+        private final OAuth2Authentication authentication;
+        private final long expiresAt;
+
+        private ValidatedToken(OAuth2Authentication authentication, long expiresAt) {
+            this.authentication = authentication;
+            this.expiresAt = expiresAt;
+        }
+
+        private boolean isExpired() {
+            return System.currentTimeMillis() >= expiresAt;
+        }
+
+        /**
+         * A copy per request: the authentication manager stores the request's details in what it is given.
+         */
+        private OAuth2Authentication authentication() {
+            return new OAuth2Authentication(authentication.getOAuth2Request(), authentication.getUserAuthentication());
+        }
+    }
+}
@@ -0,0 +1,180 @@
+package tech.bestwebshop.api.productcomposite.security;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.security.oauth2.resource.ResourceServerProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.lang.Nullable;
+import org.springframework.security.jwt.crypto.sign.RsaVerifier;
+import org.springframework.security.jwt.crypto.sign.SignatureVerifier;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigInteger;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.net.URLConnection;
+import java.security.GeneralSecurityException;
+import java.security.KeyFactory;
+import java.security.interfaces.RSAPublicKey;
+import java.security.spec.RSAPublicKeySpec;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+import java.util.logging.Logger;
+
+/**
+ * The authorization server's signing keys, loaded from {@code security.oauth2.resource.jwk.key-set-uri} in the
+ * background right after startup and every {@code inventory.tokens.key-set.refresh-interval}, so that requests find
+ * them in memory. A token naming a key that is not known yet, e.g. right after the issuer rotated its keys, reloads
+ * the set on the request thread, at most once per {@code minimum-refresh-interval}.
+ * <p>
+ * A reload replaces the whole set, dropping withdrawn keys; a failed one keeps the previous set. Only RSA signing
+ * keys are supported, as issued by the authorization server. The age of the set is published as
+ * {@code inventory.tokens.key-set.age}.
+ */
+@Component
+@ConditionalOnProperty(prefix = "inventory.tokens", name = "enabled", havingValue = "true", matchIfMissing = true)
+@EnableConfigurationProperties(TokenProperties.class)
+public class JwkKeySet {
+
+    private static final Logger LOGGER = Logger.getLogger(JwkKeySet.class.getSimpleName());
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+    private static final Map<String, String> ALGORITHMS = Map.of(
+            "RS256", "SHA256withRSA",
+            "RS384", "SHA384withRSA",
+            "RS512", "SHA512withRSA");
+
+    private final URL keySetUrl;
+    private final TokenProperties.KeySet properties;
+    private final MeterRegistry meterRegistry;
+    private final LongSupplier ticker = System::nanoTime;
+
+    private volatile Map<String, Key> keys = Map.of();
+    private volatile long lastLoad;
+    private volatile long lastAttempt;
+    private ScheduledExecutorService scheduler;
+
+    public JwkKeySet(ResourceServerProperties resourceServer, TokenProperties properties,
+                     MeterRegistry meterRegistry) {
+        try {
+            this.keySetUrl = new URL(resourceServer.getJwk().getKeySetUri());
+        } catch (MalformedURLException ex) {
+            throw new IllegalArgumentException("Invalid security.oauth2.resource.jwk.key-set-uri", ex);
+        }
+        this.properties = properties.getKeySet();
+        this.meterRegistry = meterRegistry;
+        this.lastLoad = ticker.getAsLong();
+        this.lastAttempt = lastLoad - this.properties.getMinimumRefreshInterval().toNanos();
+    }
+
+    @PostConstruct
+    public void start() {
+        TimeGauge.builder("inventory.tokens.key-set.age", this, TimeUnit.NANOSECONDS,
+                keySet -> keySet.ticker.getAsLong() - keySet.lastLoad)
+                .description("Time since the signing keys were last loaded")
+                .register(meterRegistry);
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "inventory-key-set-refresh");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::reload, 0, properties.getRefreshInterval().toMillis(),
+                TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    /**
+     * @return the verifier for the given key, or {@code null} if the key is unknown or meant for another algorithm
+     */
+    @Nullable
+    public SignatureVerifier verifier(@Nullable String keyId, @Nullable String algorithm) {
+        if (keyId == null) {
+            return null;
+        }
+        Key key = keys.get(keyId);
+        if (key == null && reloadAllowed()) {
+            reload();
+            key = keys.get(keyId);
+        }
+        return key != null && key.algorithm.equals(algorithm) ? key.verifier : null;
+    }
+
+    private synchronized boolean reloadAllowed() {
+        long now = ticker.getAsLong();
+        if (now - lastAttempt < properties.getMinimumRefreshInterval().toNanos()) {
+            return false;
+        }
+        lastAttempt = now;
+        return true;
+    }
+
+    synchronized void reload() {
+        try {
+            URLConnection connection = keySetUrl.openConnection();
+            connection.setConnectTimeout((int) properties.getTimeout().toMillis());
+            connection.setReadTimeout((int) properties.getTimeout().toMillis());
+            connection.setRequestProperty("Accept", "application/json");
+            try (InputStream in = connection.getInputStream()) {
+                keys = parse(in);
+            }
+            lastLoad = ticker.getAsLong();
+        } catch (IOException | RuntimeException ex) {
+            // keep the keys we have, the issuer rarely rotates them
+            LOGGER.warning("[JwkKeySet#reload] Loading the key set from " + keySetUrl + " failed: " + ex);
+        }
+    }
+
+    static Map<String, Key> parse(InputStream in) throws IOException {
+        Map<String, Key> keys = new HashMap<>();
+        for (JsonNode jwk : OBJECT_MAPPER.readTree(in).path("keys")) {
+            String keyId = jwk.path("kid").asText(null);
+            String algorithm = jwk.path("alg").asText("RS256");
+            if (keyId == null || !"RSA".equals(jwk.path("kty").asText()) || !"sig".equals(jwk.path("use").asText("sig"))
+                    || !ALGORITHMS.containsKey(algorithm)) {
+                LOGGER.fine("[JwkKeySet#parse] Skipping key " + keyId + ", not an RSA signing key.");
+                continue;
+            }
+            try {
+                RSAPublicKeySpec spec = new RSAPublicKeySpec(unsigned(jwk.path("n").asText()),
+                        unsigned(jwk.path("e").asText()));
+                RSAPublicKey publicKey = (RSAPublicKey) KeyFactory.getInstance("RSA").generatePublic(spec);
+                keys.put(keyId, new Key(algorithm, new RsaVerifier(publicKey, ALGORITHMS.get(algorithm))));
+            } catch (GeneralSecurityException | IllegalArgumentException ex) {
+                LOGGER.warning("[JwkKeySet#parse] Skipping key " + keyId + ": " + ex);
+            }
+        }
+        return keys;
+    }
+
+    private static BigInteger unsigned(String base64Url) {
+        return new BigInteger(1, Base64.getUrlDecoder().decode(base64Url));
+    }
+
+    static final class Key {
+        private final String algorithm;
+        private final SignatureVerifier verifier;
+
+        private Key(String algorithm, SignatureVerifier verifier) {
+            this.algorithm = algorithm;
+            this.verifier = verifier;
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package tech.bestwebshop.api.productcomposite.security;
+
+import org.springframework.security.jwt.Jwt;
+import org.springframework.security.jwt.JwtHelper;
+import org.springframework.security.jwt.crypto.sign.SignatureVerifier;
+import org.springframework.security.oauth2.common.OAuth2AccessToken;
+import org.springframework.security.oauth2.common.exceptions.InvalidTokenException;
+import org.springframework.security.oauth2.common.util.JsonParser;
+import org.springframework.security.oauth2.common.util.JsonParserFactory;
+import org.springframework.security.oauth2.provider.OAuth2Authentication;
+import org.springframework.security.oauth2.provider.token.store.JwtAccessTokenConverter;
+
+import java.util.Map;
+
+/**
+ * Reads access tokens signed with a key of the {@link JwkKeySet}, the way the JWK token store of the OAuth2
+ * auto-configuration does, but with the keys held in memory.
+ */
+class KeySetTokenConverter extends JwtAccessTokenConverter {
+
+    private final JwkKeySet keySet;
+    private final JsonParser jsonParser = JsonParserFactory.create();
+
+    KeySetTokenConverter(JwkKeySet keySet) {
+        this.keySet = keySet;
+    }
+
+    /**
+     * Verifies the signature of the token and returns its claims.
+     */
+    Map<String, Object> verify(String token) {
+        return decode(token);
+    }
+
+    @Override
+    protected Map<String, Object> decode(String token) {
+        Map<String, String> headers;
+        try {
+            headers = JwtHelper.headers(token);
+        } catch (RuntimeException ex) {
+            throw new InvalidTokenException("Cannot read the token header", ex);
+        }
+        SignatureVerifier verifier = keySet.verifier(headers.get("kid"), headers.get("alg"));
+        if (verifier == null) {
+            throw new InvalidTokenException("Token is not signed with a known key");
+        }
+        try {
+            Jwt jwt = JwtHelper.decodeAndVerify(token, verifier);
+            Map<String, Object> claims = jsonParser.parseMap(jwt.getClaims());
+            if (claims.get(EXP) instanceof Integer) {
+                claims.put(EXP, ((Integer) claims.get(EXP)).longValue());
+            }
+            getJwtClaimsSetVerifier().verify(claims);
+            return claims;
+        } catch (InvalidTokenException ex) {
+            throw ex;
+        } catch (RuntimeException ex) {
+            throw new InvalidTokenException("Cannot convert access token to JSON", ex);
+        }
+    }
+
+    @Override
+    protected String encode(OAuth2AccessToken accessToken, OAuth2Authentication authentication) {
+        throw new UnsupportedOperationException("Tokens are only verified here, not signed");
+    }
+}
@@ -0,0 +1,48 @@
+package tech.bestwebshop.api.productcomposite.security;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Validation of incoming access tokens against the key set at {@code security.oauth2.resource.jwk.key-set-uri}.
+ * Disabling it falls back to the token services of the OAuth2 auto-configuration, which verify every token twice
+ * and load keys only when a token names an unknown one.
+ */
+@Data
+@ConfigurationProperties(prefix = "inventory.tokens")
+public class TokenProperties {
+
+    private boolean enabled = true;
+    private Cache cache = new Cache();
+    private KeySet keySet = new KeySet();
+
+    @Data
+    public static class Cache {
+        private boolean enabled = true;
+        /**
+         * Validated tokens kept at once, by hash; the oldest are evicted first.
+         */
+        private long maximumSize = 10_000;
+        /**
+         * Longest time a validated token is trusted without verifying it again, however long it is valid for.
+         * Bounds how long a token signed with a key withdrawn from the key set is still accepted.
+         */
+        private Duration maximumAge = Duration.ofMinutes(5);
+    }
+
+    @Data
+    public static class KeySet {
+        /**
+         * Delay between background reloads of the key set.
+         */
+        private Duration refreshInterval = Duration.ofMinutes(10);
+        /**
+         * Shortest time between two reloads triggered by tokens naming an unknown key, so that forged key ids
+         * cannot flood the authorization server.
+         */
+        private Duration minimumRefreshInterval = Duration.ofSeconds(30);
+        private Duration timeout = Duration.ofSeconds(2);
+    }
+}
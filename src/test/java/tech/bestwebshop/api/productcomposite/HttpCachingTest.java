@@ -0,0 +1,76 @@
+package tech.bestwebshop.api.productcomposite;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.ResponseEntity;
+import tech.bestwebshop.api.productcomposite.cache.CacheProperties;
+import tech.bestwebshop.api.productcomposite.cache.InventoryCache;
+import tech.bestwebshop.api.productcomposite.model.Category;
+import tech.bestwebshop.api.productcomposite.model.Product;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class HttpCachingTest {
+
+    private final InventoryCache cache = new InventoryCache(new CacheProperties());
+    private final HttpCaching httpCaching = new HttpCaching(new HttpCacheProperties(), cache);
+
+    @Test
+    void tagsFollowTheContent() {
+        Category phones = new Category(1, "Phones");
+        List<Product> listing = List.of(new Product(10, "Phone", 99.0, phones, "A phone"),
+                new Product(11, "Reader", 49.0, phones, "E-ink"));
+        String tag = etag(listing);
+
+        assertThat(tag).matches("\"[0-9a-f]+\"");
+        assertThat(etag(List.of(new Product(10, "Phone", 99.0, new Category(1, "Phones"), "A phone"),
+                new Product(11, "Reader", 49.0, phones, "E-ink")))).isEqualTo(tag);
+        assertThat(etag(List.of(listing.get(1), listing.get(0)))).isNotEqualTo(tag);
+        assertThat(etag(List.of(new Product(10, "Phone", 89.0, phones, "A phone"), listing.get(1))))
+                .isNotEqualTo(tag);
+        assertThat(httpCaching.tagged(ResponseEntity.ok(listing)).getHeaders().getCacheControl())
+                .isEqualTo("no-cache, private");
+    }
+
+    @Test
+    void tagsDifferForContentWithEqualHashCodes() {
+        Category first = new Category(1, "Aa");
+        Category second = new Category(1, "BB");
+        assertThat(first.hashCode()).isEqualTo(second.hashCode());
+
+        assertThat(httpCaching.tagged(ResponseEntity.ok(first)).getHeaders().getETag())
+                .isNotEqualTo(httpCaching.tagged(ResponseEntity.ok(second)).getHeaders().getETag());
+    }
+
+    @Test
+    void tagsCachedAndUncachedEntitiesAlike() {
+        Category phones = new Category(1, "Phones");
+        Product cached = new Product(10, "Phone", 99.0, phones, "A phone");
+        Product copy = new Product(10, "Phone", 99.0, phones, "A phone");
+        String uncachedTag = etag(List.of(cached));
+        cache.products().put(cached.getId(), cached);
+
+        assertThat(cache.products().digest(cached.getId(), cached)).isNotNull();
+        assertThat(cache.products().digest(copy.getId(), copy)).isNull();
+        assertThat(etag(List.of(cached))).isEqualTo(uncachedTag);
+        assertThat(etag(List.of(copy))).isEqualTo(uncachedTag);
+    }
+
+    @Test
+    void leavesFailuresAlone() {
+        ResponseEntity<Product> notFound = ResponseEntity.notFound().build();
+        assertThat(httpCaching.tagged(notFound)).isSameAs(notFound);
+
+        HttpCacheProperties properties = new HttpCacheProperties();
+        properties.setMaxAge(Duration.ofSeconds(5));
+        properties.setShared(true);
+        assertThat(new HttpCaching(properties, cache).tagged(ResponseEntity.ok(new Category(1, "Phones")))
+                .getHeaders().getCacheControl()).isEqualTo("max-age=5, must-revalidate, public");
+    }
+
+    private String etag(List<Product> listing) {
+        return httpCaching.tagged(ResponseEntity.ok(listing)).getHeaders().getETag();
+    }
+}
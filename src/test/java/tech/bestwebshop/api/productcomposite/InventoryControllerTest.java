@@ -0,0 +1,256 @@
+package tech.bestwebshop.api.productcomposite;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.security.oauth2.provider.OAuth2Authentication;
+import org.springframework.security.oauth2.provider.OAuth2Request;
+import org.springframework.security.oauth2.provider.authentication.OAuth2AuthenticationDetails;
+import org.springframework.test.web.client.ExpectedCount;
+import org.springframework.test.web.client.MockRestServiceServer;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.RestTemplate;
+import tech.bestwebshop.api.productcomposite.cache.CacheProperties;
+import tech.bestwebshop.api.productcomposite.cache.InventoryCache;
+import tech.bestwebshop.api.productcomposite.client.ClientProperties;
+import tech.bestwebshop.api.productcomposite.client.HedgedRequests;
+import tech.bestwebshop.api.productcomposite.client.SingleFlight;
+import tech.bestwebshop.api.productcomposite.events.CatalogEvents;
+import tech.bestwebshop.api.productcomposite.events.EventProperties;
+import tech.bestwebshop.api.productcomposite.events.InMemoryInvalidationChannel;
+import tech.bestwebshop.api.productcomposite.index.CategoryNameIndex;
+import tech.bestwebshop.api.productcomposite.index.IndexProperties;
+import tech.bestwebshop.api.productcomposite.index.ProductIndex;
+import tech.bestwebshop.api.productcomposite.limit.ConcurrencyLimits;
+import tech.bestwebshop.api.productcomposite.limit.DownstreamLimits;
+import tech.bestwebshop.api.productcomposite.limit.LimitProperties;
+import tech.bestwebshop.api.productcomposite.model.Category;
+import tech.bestwebshop.api.productcomposite.model.Product;
+import tech.bestwebshop.api.productcomposite.resilience.DownstreamResilience;
+import tech.bestwebshop.api.productcomposite.resilience.ResilienceProperties;
+import tech.bestwebshop.api.productcomposite.resilience.ResilientRestTemplate;
+
+import java.net.URI;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.hamcrest.Matchers.startsWith;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.method;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.requestTo;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withServerError;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withSuccess;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+class InventoryControllerTest {
+
+    private static final Category PHONES = new Category(1, "Phones");
+    private static final Product PHONE = new Product(10, "Phone", 99.0, PHONES, "A phone");
+
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final InventoryCache cache = new InventoryCache(new CacheProperties());
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void servesTheCachedListingWhileTheCircuitIsOpen() {
+        ResilienceProperties properties = new ResilienceProperties();
+        properties.getDefaults().getCircuitBreaker().setSlidingWindowSize(2);
+        properties.getDefaults().getCircuitBreaker().setMinimumNumberOfCalls(2);
+        DownstreamResilience resilience = new DownstreamResilience(properties, meterRegistry);
+        for (int i = 0; i < 2; i++) {
+            assertThatThrownBy(() -> resilience.execute(URI.create("http://product-service/products"),
+                    HttpMethod.POST, () -> {
+                        throw new HttpServerErrorException(HttpStatus.SERVICE_UNAVAILABLE);
+                    })).isInstanceOf(HttpServerErrorException.class);
+        }
+        RestTemplate restTemplate = new ResilientRestTemplate(new SimpleClientHttpRequestFactory(), resilience);
+        // no expectations: any call reaching the network fails the test
+        MockRestServiceServer server = MockRestServiceServer.bindTo(restTemplate).build();
+        cache.products().put(PHONE.getId(), PHONE);
+
+        ResponseEntity<List<Product>> response = controller(restTemplate)
+                .getProducts("", -1e10, 1e10, null, null, null, authentication());
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(response.getBody()).containsExactly(PHONE);
+        assertThat(meterRegistry.counter("inventory.fallbacks", "handler", "getProducts").count()).isEqualTo(1);
+        server.verify();
+    }
+
+    @Test
+    void servesTheCachedListingWhenProductServiceIsAtItsLimit() {
+        LimitProperties properties = new LimitProperties();
+        properties.setEnabled(true);
+        properties.getDownstream().setAlgorithm(LimitProperties.Algorithm.AIMD);
+        properties.getDownstream().setInitialLimit(1);
+        properties.getDownstream().setMinLimit(1);
+        ConcurrencyLimits limits = new ConcurrencyLimits(properties, meterRegistry);
+        assertThat(limits.downstream("product-service").tryAcquire()).isPresent();
+        RestTemplate restTemplate = new RestTemplate();
+        restTemplate.getInterceptors().add(new DownstreamLimits(limits));
+        MockRestServiceServer server = MockRestServiceServer.bindTo(restTemplate).build();
+        cache.products().put(PHONE.getId(), PHONE);
+
+        ResponseEntity<List<Product>> response = controller(restTemplate)
+                .getProducts("", -1e10, 1e10, null, null, null, authentication());
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(response.getBody()).containsExactly(PHONE);
+        assertThat(limits.downstream("product-service").getRejected()).isEqualTo(1);
+        server.verify();
+    }
+
+    @Test
+    void answersNotModifiedWhileTheProductIsUnchanged() throws Exception {
+        cache.products().put(PHONE.getId(), PHONE);
+        MockMvc mockMvc = MockMvcBuilders.standaloneSetup(controller(new RestTemplate())).build();
+
+        String etag = mockMvc.perform(get("/products/10").principal(authentication()))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        mockMvc.perform(get("/products/10").principal(authentication()).header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, etag))
+                .andExpect(content().string(""));
+
+        cache.products().put(PHONE.getId(), new Product(10, "Phone", 89.0, PHONES, "A phone"));
+        mockMvc.perform(get("/products/10").principal(authentication()).header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.price").value(89.0));
+    }
+
+    @Test
+    void answersButDoesNotRememberProductsWithUnresolvedCategories() {
+        RestTemplate restTemplate = new RestTemplate();
+        MockRestServiceServer server = MockRestServiceServer.bindTo(restTemplate).ignoreExpectOrder(true).build();
+        server.expect(requestTo("http://product-service/products"))
+                .andRespond(withSuccess("[{\"id\":10,\"name\":\"Phone\",\"price\":99.0,\"categoryID\":1,"
+                        + "\"details\":\"A phone\"}]", MediaType.APPLICATION_JSON));
+        server.expect(ExpectedCount.manyTimes(), requestTo(startsWith("http://category-service/categories")))
+                .andRespond(withServerError());
+
+        ResponseEntity<List<Product>> response = controller(restTemplate)
+                .getProducts("", -1e10, 1e10, null, null, null, authentication());
+
+        assertThat(response.getBody()).extracting(Product::getCategory)
+                .containsExactly(CategoryResolver.unresolved(1));
+        assertThat(cache.products().get(10)).isEmpty();
+        // the cold cache started a category warm-up nobody waits for, its failure is still counted
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (meterRegistry.counter("inventory.warm-up.failures", "cache", "categories").count() == 0
+                && System.nanoTime() < deadline) {
+            Thread.onSpinWait();
+        }
+        assertThat(meterRegistry.counter("inventory.warm-up.failures", "cache", "categories").count()).isEqualTo(1);
+    }
+
+    @Test
+    void remembersProductsWhoseCategoryHasAnEmptyName() {
+        RestTemplate restTemplate = new RestTemplate();
+        MockRestServiceServer server = MockRestServiceServer.bindTo(restTemplate).ignoreExpectOrder(true).build();
+        server.expect(requestTo("http://product-service/products"))
+                .andRespond(withSuccess("[{\"id\":10,\"name\":\"Phone\",\"price\":99.0,\"categoryID\":1,"
+                        + "\"details\":\"A phone\"}]", MediaType.APPLICATION_JSON));
+        server.expect(ExpectedCount.manyTimes(), requestTo(startsWith("http://category-service/categories")))
+                .andRespond(withSuccess("[{\"id\":1,\"name\":\"\"}]", MediaType.APPLICATION_JSON));
+        cache.categories().put(1, new Category(1, ""));
+
+        ResponseEntity<List<Product>> response = controller(restTemplate)
+                .getProducts("", -1e10, 1e10, null, null, null, authentication());
+
+        assertThat(response.getBody()).allMatch(CategoryResolver::isResolved);
+        assertThat(cache.products().get(10)).isPresent();
+    }
+
+    @Test
+    void deletesTheProductsOfTheDeletedCategoryOnly() {
+        RestTemplate restTemplate = new RestTemplate();
+        MockRestServiceServer server = MockRestServiceServer.bindTo(restTemplate).ignoreExpectOrder(true).build();
+        // product 2 shares its id with the category, which the cascade used to delete
+        server.expect(requestTo("http://product-service/products")).andExpect(method(HttpMethod.GET))
+                .andRespond(withSuccess("[" + coreProduct(10, 2) + "," + coreProduct(11, 2) + ","
+                        + coreProduct(2, 5) + "]", MediaType.APPLICATION_JSON));
+        server.expect(requestTo("http://category-service/categories/2")).andExpect(method(HttpMethod.DELETE))
+                .andRespond(withSuccess("{\"id\":2,\"name\":\"Tablets\"}", MediaType.APPLICATION_JSON));
+        server.expect(requestTo("http://product-service/products/10")).andExpect(method(HttpMethod.DELETE))
+                .andRespond(withSuccess(coreProduct(10, 2), MediaType.APPLICATION_JSON));
+        server.expect(requestTo("http://product-service/products/11")).andExpect(method(HttpMethod.DELETE))
+                .andRespond(withServerError());
+
+        ResponseEntity<Category> response = controller(restTemplate).deleteCategory(2L, authentication());
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.BAD_GATEWAY);
+        assertThat(response.getHeaders().getFirst(InventoryController.UNDELETED_PRODUCTS_HEADER)).isEqualTo("1");
+        assertThat(response.getBody()).isEqualTo(new Category(2, "Tablets"));
+        server.verify();
+    }
+
+    @Test
+    void keepsTheCategoryIfItsProductsCannotBeLookedUp() {
+        RestTemplate restTemplate = new RestTemplate();
+        MockRestServiceServer server = MockRestServiceServer.bindTo(restTemplate).build();
+        server.expect(requestTo("http://product-service/products")).andRespond(withServerError());
+
+        ResponseEntity<Category> response = controller(restTemplate).deleteCategory(2L, authentication());
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.SERVICE_UNAVAILABLE);
+        server.verify();
+    }
+
+    private static String coreProduct(int id, int categoryId) {
+        return "{\"id\":" + id + ",\"name\":\"Product " + id + "\",\"price\":9.0,\"categoryID\":" + categoryId
+                + ",\"details\":\"Details\"}";
+    }
+
+    private InventoryController controller(RestTemplate restTemplate) {
+        ClientProperties clientProperties = new ClientProperties();
+        SingleFlight singleFlight = new SingleFlight(clientProperties);
+        HedgedRequests hedgedRequests = new HedgedRequests(clientProperties, executor, meterRegistry);
+        IndexProperties indexProperties = new IndexProperties();
+        ProductIndex productIndex = new ProductIndex(indexProperties);
+        CategoryNameIndex categoryNames = new CategoryNameIndex(indexProperties);
+        FanOutProperties fanOutProperties = new FanOutProperties();
+        return new InventoryController(restTemplate, singleFlight, hedgedRequests, new ObjectMapper(), cache,
+                productIndex, categoryNames,
+                new CategoryResolver(restTemplate, singleFlight, hedgedRequests, cache, executor, fanOutProperties),
+                new CatalogEvents(new InMemoryInvalidationChannel(), new EventProperties(), cache, productIndex,
+                        categoryNames, meterRegistry),
+                new HttpCaching(new HttpCacheProperties(), cache), executor, executor, fanOutProperties,
+                new BatchProperties(), meterRegistry);
+    }
+
+    private static OAuth2Authentication authentication() {
+        OAuth2Request request = new OAuth2Request(Map.of(), "webshop-webclient", List.of(), true, Set.of("all.read"),
+                Set.of(), null, Set.of(), Map.of());
+        OAuth2Authentication authentication = new OAuth2Authentication(request, null);
+        MockHttpServletRequest servletRequest = new MockHttpServletRequest();
+        servletRequest.setAttribute(OAuth2AuthenticationDetails.ACCESS_TOKEN_VALUE, "token");
+        authentication.setDetails(new OAuth2AuthenticationDetails(servletRequest));
+        return authentication;
+    }
+}
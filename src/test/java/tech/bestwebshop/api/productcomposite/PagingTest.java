@@ -0,0 +1,36 @@
+package tech.bestwebshop.api.productcomposite;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.ResponseEntity;
+import tech.bestwebshop.api.productcomposite.model.Category;
+import tech.bestwebshop.api.productcomposite.model.Product;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PagingTest {
+
+    private static final Category PHONES = new Category(1, "Phones");
+
+    @Test
+    void cutsPagesFromAStableOrder() {
+        Product a = new Product(3, "Phone", 99.0, PHONES, "");
+        Product b = new Product(1, "Phone", 49.0, PHONES, "");
+        Product c = new Product(2, "Phone", 99.0, PHONES, "");
+
+        // the same listing in the orders of the index and of the cache
+        assertThat(page(List.of(a, b, c), null)).containsExactly(b, c);
+        assertThat(page(List.of(c, a, b), null)).containsExactly(b, c);
+        assertThat(page(List.of(a, b, c), "price,desc")).containsExactly(c, a);
+        assertThat(page(List.of(c, a, b), "price,desc")).containsExactly(c, a);
+
+        List<Product> unpaged = List.of(a, b, c);
+        assertThat(Paging.paginate(ResponseEntity.ok(unpaged), null, null, Paging.productOrder(null, null))
+                .getBody()).containsExactly(a, b, c);
+    }
+
+    private static List<Product> page(List<Product> listing, String sort) {
+        return Paging.paginate(ResponseEntity.ok(listing), 0, 2, Paging.productOrder(sort, 2)).getBody();
+    }
+}
@@ -0,0 +1,119 @@
+package tech.bestwebshop.api.productcomposite;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.security.oauth2.provider.OAuth2Authentication;
+import org.springframework.security.oauth2.provider.OAuth2Request;
+import org.springframework.security.oauth2.provider.authentication.OAuth2AuthenticationDetails;
+import org.springframework.test.web.client.MockRestServiceServer;
+import org.springframework.web.client.RestTemplate;
+import tech.bestwebshop.api.productcomposite.cache.CacheProperties;
+import tech.bestwebshop.api.productcomposite.cache.InventoryCache;
+import tech.bestwebshop.api.productcomposite.client.ClientProperties;
+import tech.bestwebshop.api.productcomposite.client.HedgedRequests;
+import tech.bestwebshop.api.productcomposite.client.SingleFlight;
+import tech.bestwebshop.api.productcomposite.events.CatalogEvents;
+import tech.bestwebshop.api.productcomposite.events.EventProperties;
+import tech.bestwebshop.api.productcomposite.events.InMemoryInvalidationChannel;
+import tech.bestwebshop.api.productcomposite.index.CategoryNameIndex;
+import tech.bestwebshop.api.productcomposite.index.IndexProperties;
+import tech.bestwebshop.api.productcomposite.index.ProductIndex;
+import tech.bestwebshop.api.productcomposite.model.BatchResult;
+import tech.bestwebshop.api.productcomposite.model.Category;
+import tech.bestwebshop.api.productcomposite.model.Product;
+import tech.bestwebshop.api.productcomposite.model.ProductDTO;
+
+import javax.validation.Validation;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.method;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.requestTo;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withSuccess;
+
+class ProductBatchControllerTest {
+
+    private static final String CATEGORIES = "http://category-service/categories";
+
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final InventoryCache cache = new InventoryCache(new CacheProperties());
+    private final RestTemplate restTemplate = new RestTemplate();
+    private final MockRestServiceServer server = MockRestServiceServer.bindTo(restTemplate)
+            .ignoreExpectOrder(true).build();
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void answersEachItemOnItsOwn() {
+        server.expect(requestTo(CATEGORIES)).andExpect(method(HttpMethod.GET))
+                .andRespond(withSuccess("[{\"id\":1,\"name\":\"Phones\"}]", MediaType.APPLICATION_JSON));
+        server.expect(requestTo(CATEGORIES)).andExpect(method(HttpMethod.POST))
+                .andRespond(request -> {
+                    throw new IOException("Connection reset");
+                });
+        server.expect(requestTo("http://product-service/products")).andExpect(method(HttpMethod.POST))
+                .andRespond(withSuccess("{\"id\":10,\"name\":\"Phone\",\"price\":99.0,\"categoryID\":1,"
+                        + "\"details\":\"A phone\"}", MediaType.APPLICATION_JSON));
+
+        ResponseEntity<List<BatchResult<Product>>> response = controller().newProducts(List.of(
+                product("Phone", 99.0, "Phones"),
+                product("Broken", -1.0, "Phones"),
+                product("Tablet", 199.0, "Tablets")), authentication());
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.MULTI_STATUS);
+        List<BatchResult<Product>> results = response.getBody();
+        assertThat(results).extracting(BatchResult::getStatus).containsExactly(201, 400, 503);
+        assertThat(results.get(0).getBody().getCategory()).isEqualTo(new Category(1, "Phones"));
+        assertThat(results.get(1).getError()).contains("price");
+        assertThat(results.get(2).getError()).contains("Tablets");
+        server.verify();
+    }
+
+    private ProductBatchController controller() {
+        ClientProperties clientProperties = new ClientProperties();
+        SingleFlight singleFlight = new SingleFlight(clientProperties);
+        HedgedRequests hedgedRequests = new HedgedRequests(clientProperties, executor, meterRegistry);
+        IndexProperties indexProperties = new IndexProperties();
+        CategoryNameIndex categoryNames = new CategoryNameIndex(indexProperties);
+        return new ProductBatchController(restTemplate, cache, categoryNames,
+                new CategoryResolver(restTemplate, singleFlight, hedgedRequests, cache, executor,
+                        new FanOutProperties()),
+                new CatalogEvents(new InMemoryInvalidationChannel(), new EventProperties(), cache,
+                        new ProductIndex(indexProperties), categoryNames, meterRegistry),
+                Validation.buildDefaultValidatorFactory().getValidator(), executor, new BatchProperties());
+    }
+
+    private static ProductDTO product(String name, double price, String category) {
+        ProductDTO product = new ProductDTO();
+        product.setName(name);
+        product.setPrice(price);
+        product.setCategory(category);
+        product.setDetails("Details of " + name);
+        return product;
+    }
+
+    private static OAuth2Authentication authentication() {
+        OAuth2Request request = new OAuth2Request(Map.of(), "webshop-webclient", List.of(), true, Set.of("all.write"),
+                Set.of(), null, Set.of(), Map.of());
+        OAuth2Authentication authentication = new OAuth2Authentication(request, null);
+        MockHttpServletRequest servletRequest = new MockHttpServletRequest();
+        servletRequest.setAttribute(OAuth2AuthenticationDetails.ACCESS_TOKEN_VALUE, "token");
+        authentication.setDetails(new OAuth2AuthenticationDetails(servletRequest));
+        return authentication;
+    }
+}
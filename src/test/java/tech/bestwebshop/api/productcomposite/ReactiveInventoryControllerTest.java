@@ -0,0 +1,207 @@
+package tech.bestwebshop.api.productcomposite;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Primary;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.oauth2.provider.OAuth2Authentication;
+import org.springframework.security.oauth2.provider.OAuth2Request;
+import org.springframework.security.oauth2.provider.authentication.OAuth2AuthenticationDetails;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeFunction;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+import tech.bestwebshop.api.productcomposite.cache.InventoryCache;
+import tech.bestwebshop.api.productcomposite.model.Category;
+import tech.bestwebshop.api.productcomposite.model.Product;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Runs the reactive controller in place of the blocking one, with the backing services answered by a stubbed
+ * {@link WebClient}. Every test gets a fresh context, as the caches and indexes remember what earlier ones fetched.
+ */
+@SpringBootTest(properties = {"inventory.reactive.enabled=true", "inventory.index.enabled=false"})
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+class ReactiveInventoryControllerTest {
+
+    private static final Category PHONES = new Category(1, "Phones");
+    private static final Product PHONE = new Product(10, "Phone", 99.0, PHONES, "A phone");
+
+    @Autowired
+    private ReactiveInventoryController controller;
+    @Autowired
+    private StubServices services;
+    @Autowired
+    private InventoryCache cache;
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @BeforeEach
+    void authenticate() {
+        SecurityContextHolder.getContext().setAuthentication(authentication());
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void servesTheCachedListingWhenProductServiceFails() {
+        cache.products().put(PHONE.getId(), PHONE);
+        services.respond(HttpMethod.GET, "http://product-service/products", HttpStatus.SERVICE_UNAVAILABLE, "");
+        services.respond(HttpMethod.GET, "http://category-service/categories", HttpStatus.OK,
+                "[{\"id\":1,\"name\":\"Phones\"}]");
+
+        ResponseEntity<List<Product>> response = controller
+                .getProducts("", -1e10, 1e10, null, null, null, authentication()).block();
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(response.getBody()).containsExactly(PHONE);
+        assertThat(meterRegistry.counter("inventory.fallbacks", "handler", "getProducts").count()).isEqualTo(1);
+    }
+
+    @Test
+    void answersForbiddenWhenABackingServiceRefusesTheToken() {
+        services.respond(HttpMethod.GET, "http://product-service/products/10", HttpStatus.FORBIDDEN, "");
+        services.respond(HttpMethod.GET, "http://category-service/categories", HttpStatus.UNAUTHORIZED, "");
+
+        assertThat(controller.getProduct(10L, authentication()).block().getStatusCode())
+                .isEqualTo(HttpStatus.FORBIDDEN);
+        assertThat(controller.getCategories(null, null, null, authentication()).block().getStatusCode())
+                .isEqualTo(HttpStatus.FORBIDDEN);
+        assertThat(meterRegistry.find("inventory.fallbacks").counters()).isEmpty();
+    }
+
+    @Test
+    void pagesTheJoinedListing() {
+        services.respond(HttpMethod.GET, "http://product-service/products", HttpStatus.OK,
+                "[" + coreProduct(12, 30.0) + "," + coreProduct(10, 10.0) + "," + coreProduct(11, 20.0) + "]");
+        services.respond(HttpMethod.GET, "http://category-service/categories", HttpStatus.OK,
+                "[{\"id\":1,\"name\":\"Phones\"}]");
+
+        ResponseEntity<List<Product>> second = controller
+                .getProducts("", -1e10, 1e10, 1, 2, null, authentication()).block();
+        ResponseEntity<List<Product>> cheapest = controller
+                .getProducts("", -1e10, 1e10, 0, 2, "price,asc", authentication()).block();
+
+        assertThat(second.getBody()).extracting(Product::getId).containsExactly(12);
+        assertThat(second.getHeaders().getFirst(Paging.TOTAL_COUNT_HEADER)).isEqualTo("3");
+        assertThat(second.getHeaders().getETag()).isNotNull();
+        assertThat(cheapest.getBody()).extracting(Product::getId).containsExactly(10, 11);
+        assertThat(controller.getProducts("", -1e10, 1e10, -1, 2, null, authentication()).block()
+                .getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+    }
+
+    @Test
+    void reportsProductsLeftBehindByACategoryDelete() {
+        // product 2 shares its id with the category, only the category's own products are deleted
+        services.respond(HttpMethod.GET, "http://product-service/products", HttpStatus.OK,
+                "[" + coreProduct(10, 2, 9.0) + "," + coreProduct(11, 2, 9.0) + "," + coreProduct(2, 5, 9.0) + "]");
+        services.respond(HttpMethod.DELETE, "http://category-service/categories/2", HttpStatus.OK,
+                "{\"id\":2,\"name\":\"Tablets\"}");
+        services.respond(HttpMethod.DELETE, "http://product-service/products/10", HttpStatus.OK,
+                coreProduct(10, 2, 9.0));
+        services.respond(HttpMethod.DELETE, "http://product-service/products/11", HttpStatus.INTERNAL_SERVER_ERROR,
+                "");
+
+        ResponseEntity<Category> response = controller.deleteCategory(2L, authentication()).block();
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.BAD_GATEWAY);
+        assertThat(response.getHeaders().getFirst(InventoryController.UNDELETED_PRODUCTS_HEADER)).isEqualTo("1");
+        assertThat(response.getBody()).isEqualTo(new Category(2, "Tablets"));
+        assertThat(services.requests).doesNotContain("DELETE http://product-service/products/2");
+    }
+
+    @Test
+    void keepsTheCategoryIfItsProductsCannotBeLookedUp() {
+        services.respond(HttpMethod.GET, "http://product-service/products", HttpStatus.SERVICE_UNAVAILABLE, "");
+
+        ResponseEntity<Category> response = controller.deleteCategory(2L, authentication()).block();
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.SERVICE_UNAVAILABLE);
+        assertThat(services.requests).containsExactly("GET http://product-service/products");
+    }
+
+    private static String coreProduct(int id, double price) {
+        return coreProduct(id, 1, price);
+    }
+
+    private static String coreProduct(int id, int categoryId, double price) {
+        return "{\"id\":" + id + ",\"name\":\"Product " + id + "\",\"price\":" + price + ",\"categoryID\":"
+                + categoryId + ",\"details\":\"Details\"}";
+    }
+
+    private static OAuth2Authentication authentication() {
+        OAuth2Request request = new OAuth2Request(Map.of(), "webshop-webclient",
+                AuthorityUtils.createAuthorityList("ROLE_USER", "ROLE_ADMIN"), true, Set.of("all.read"), Set.of(),
+                null, Set.of(), Map.of());
+        OAuth2Authentication authentication = new OAuth2Authentication(request, null);
+        MockHttpServletRequest servletRequest = new MockHttpServletRequest();
+        servletRequest.setAttribute(OAuth2AuthenticationDetails.ACCESS_TOKEN_VALUE, "token");
+        authentication.setDetails(new OAuth2AuthenticationDetails(servletRequest));
+        return authentication;
+    }
+
+    @TestConfiguration
+    static class StubServicesConfiguration {
+
+        @Bean
+        StubServices stubServices() {
+            return new StubServices();
+        }
+
+        @Bean
+        @Primary
+        WebClient.Builder stubWebClientBuilder(StubServices stubServices) {
+            return WebClient.builder().exchangeFunction(stubServices);
+        }
+    }
+
+    /**
+     * Answers requests by method and URL, 404 for anything not set up, and records them in order.
+     */
+    static class StubServices implements ExchangeFunction {
+
+        private final Map<String, Supplier<ClientResponse>> responses = new ConcurrentHashMap<>();
+        final List<String> requests = new CopyOnWriteArrayList<>();
+
+        void respond(HttpMethod method, String url, HttpStatus status, String json) {
+            responses.put(method + " " + url, () -> ClientResponse.create(status)
+                    .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                    .body(json)
+                    .build());
+        }
+
+        @Override
+        public Mono<ClientResponse> exchange(ClientRequest request) {
+            String key = request.method() + " " + request.url();
+            requests.add(key);
+            Supplier<ClientResponse> response = responses.get(key);
+            return Mono.just(response != null ? response.get() : ClientResponse.create(HttpStatus.NOT_FOUND).build());
+        }
+    }
+}
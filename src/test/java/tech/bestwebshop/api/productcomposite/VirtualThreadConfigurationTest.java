@@ -0,0 +1,50 @@
+package tech.bestwebshop.api.productcomposite;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assumptions.assumeFalse;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+@SpringBootTest(properties = "inventory.virtual-threads.enabled=true")
+class VirtualThreadConfigurationTest {
+
+    @Autowired
+    @Qualifier("fanOutExecutor")
+    private ExecutorService fanOutExecutor;
+
+    @Autowired
+    @Qualifier("hedgeExecutor")
+    private ExecutorService hedgeExecutor;
+
+    @Test
+    void fallsBackToPlatformThreadsWithoutVirtualThreads() {
+        assumeFalse(VirtualThreads.isSupported());
+        assertThat(fanOutExecutor).isInstanceOf(ThreadPoolExecutor.class);
+    }
+
+    @Test
+    void runsTasksOnVirtualThreadsWhereSupported() throws Exception {
+        assumeTrue(VirtualThreads.isSupported());
+        assertThat(isVirtual(threadOf(fanOutExecutor))).isTrue();
+        assertThat(threadOf(fanOutExecutor).getName()).startsWith("inventory-fan-out-");
+        assertThat(isVirtual(threadOf(hedgeExecutor))).isTrue();
+        assertThat(threadOf(hedgeExecutor).getName()).startsWith("inventory-hedge-");
+    }
+
+    private static Thread threadOf(ExecutorService executor) throws Exception {
+        return executor.submit(Thread::currentThread).get(5, TimeUnit.SECONDS);
+    }
+
+    private static boolean isVirtual(Thread thread) throws ReflectiveOperationException {
+        // Thread#isVirtual is Java 21 API, the tests are compiled for Java 11
+        return (boolean) Thread.class.getMethod("isVirtual").invoke(thread);
+    }
+}
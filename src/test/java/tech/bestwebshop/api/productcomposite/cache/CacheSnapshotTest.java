@@ -0,0 +1,105 @@
+package tech.bestwebshop.api.productcomposite.cache;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import tech.bestwebshop.api.productcomposite.model.Category;
+import tech.bestwebshop.api.productcomposite.model.Product;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CacheSnapshotTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void restoresBothCachesAfterRestart() throws Exception {
+        CacheProperties properties = new CacheProperties();
+        properties.getSnapshot().setPath(directory.resolve("inventory.snapshot"));
+        Category phones = new Category(1, "Téléphones");
+        char[] longDetails = new char[100_000];
+        Arrays.fill(longDetails, 'x');
+        Product phone = new Product(10, "Phone", 99.5, phones, new String(longDetails));
+        Product reader = new Product(11, "Reader", 49.0, new Category(2, "Readers"), "E-ink");
+
+        InventoryCache before = new InventoryCache(properties);
+        before.categories().put(1, phones);
+        before.products().put(10, phone);
+        before.products().put(11, reader);
+        new CacheSnapshot(before, properties).save();
+
+        InventoryCache after = new InventoryCache(properties);
+        new CacheSnapshot(after, properties).load();
+        assertThat(after.categories().values()).containsExactly(phones);
+        assertThat(after.products().get(10)).contains(phone);
+        assertThat(after.products().get(11)).contains(reader);
+        assertThat(Files.list(directory)).hasSize(1);
+    }
+
+    @Test
+    void agesEntriesByTheAgeOfTheSnapshot() throws Exception {
+        Path path = directory.resolve("inventory.snapshot");
+        Instant savedAt = Instant.parse("2026-01-01T10:00:00Z");
+        CacheSnapshot.write(path, new CacheSnapshot.Contents(
+                List.of(new Product(10, "Phone", 99.5, new Category(1, "Phones"), "A phone")),
+                List.of(new Category(1, "Phones")), savedAt.toEpochMilli()));
+        CacheProperties properties = new CacheProperties();
+        properties.getSnapshot().setPath(path);
+        properties.getProducts().setExpireAfterWrite(Duration.ofHours(1));
+        properties.getProducts().setRefreshAfterWrite(Duration.ofSeconds(30));
+        properties.getCategories().setExpireAfterWrite(Duration.ofMinutes(10));
+
+        InventoryCache cache = new InventoryCache(properties);
+        new CacheSnapshot(cache, properties, Clock.fixed(savedAt.plus(Duration.ofMinutes(20)), ZoneOffset.UTC))
+                .load();
+
+        assertThat(cache.products().lookup(10)).hasValueSatisfying(cached -> assertThat(cached.isStale()).isTrue());
+        assertThat(cache.categories().get(1)).isEmpty();
+    }
+
+    @Test
+    void ignoresTruncatedSnapshot() throws Exception {
+        Path path = directory.resolve("inventory.snapshot");
+        CacheSnapshot.write(path, new CacheSnapshot.Contents(
+                List.of(new Product(10, "Phone", 99.5, new Category(1, "Phones"), "A phone")), List.of(),
+                System.currentTimeMillis()));
+        byte[] bytes = Files.readAllBytes(path);
+        Files.write(path, Arrays.copyOf(bytes, bytes.length - 3));
+
+        CacheProperties properties = new CacheProperties();
+        properties.getSnapshot().setPath(path);
+        InventoryCache cache = new InventoryCache(properties);
+        new CacheSnapshot(cache, properties).load();
+        assertThat(cache.products().size()).isZero();
+    }
+
+    @Test
+    void rejectsDamagedLengths() throws Exception {
+        Path path = directory.resolve("inventory.snapshot");
+        CacheSnapshot.write(path, new CacheSnapshot.Contents(
+                List.of(new Product(10, "Phone", 99.5, new Category(1, "Phones"), "A phone")), List.of(),
+                System.currentTimeMillis()));
+        // magic, version, timestamp, no categories, one product and its id precede the length of its name
+        int nameLength = 2 * Integer.BYTES + Long.BYTES + 3 * Integer.BYTES;
+        for (int length : new int[]{-1, Integer.MAX_VALUE}) {
+            ByteBuffer bytes = ByteBuffer.wrap(Files.readAllBytes(path));
+            bytes.putInt(nameLength, length);
+            Path damaged = directory.resolve("damaged-" + length + ".snapshot");
+            Files.write(damaged, bytes.array());
+
+            assertThatThrownBy(() -> CacheSnapshot.read(damaged)).isInstanceOf(IOException.class);
+        }
+    }
+}
@@ -0,0 +1,188 @@
+package tech.bestwebshop.api.productcomposite.cache;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LocalCacheTest {
+
+    private final AtomicLong now = new AtomicLong();
+
+    @Test
+    void expiresEntriesAfterWrite() {
+        LocalCache<Integer, String> cache = new LocalCache<>(10, Duration.ofSeconds(1), Duration.ZERO, now::get);
+        cache.put(1, "one");
+        assertThat(cache.get(1)).contains("one");
+
+        now.addAndGet(Duration.ofSeconds(1).toNanos());
+        assertThat(cache.get(1)).isEmpty();
+        assertThat(cache.stats().getHitCount()).isEqualTo(1);
+        assertThat(cache.stats().getMissCount()).isEqualTo(1);
+        assertThat(cache.stats().getEvictionCount()).isEqualTo(1);
+    }
+
+    @Test
+    void evictsOldestEntriesBeyondMaximumSize() {
+        LocalCache<Integer, String> cache = new LocalCache<>(2, Duration.ZERO, Duration.ZERO, now::get);
+        cache.put(1, "one");
+        cache.put(2, "two");
+        cache.put(1, "uno");
+        cache.put(3, "three");
+
+        assertThat(cache.get(1)).isEmpty();
+        assertThat(cache.get(2)).contains("two");
+        assertThat(cache.get(3)).contains("three");
+        assertThat(cache.stats().getEvictionCount()).isEqualTo(1);
+    }
+
+    @Test
+    void servesStaleEntriesAndRefreshesThemOnce() {
+        LocalCache<Integer, String> cache = new LocalCache<>(10, Duration.ofMinutes(1), Duration.ofSeconds(1), now::get);
+        cache.put(1, "one");
+        assertThat(cache.lookup(1)).hasValueSatisfying(cached -> assertThat(cached.isStale()).isFalse());
+
+        now.addAndGet(Duration.ofSeconds(2).toNanos());
+        assertThat(cache.lookup(1)).hasValueSatisfying(cached -> {
+            assertThat(cached.getValue()).isEqualTo("one");
+            assertThat(cached.isStale()).isTrue();
+        });
+
+        List<Runnable> scheduled = new ArrayList<>();
+        assertThat(cache.refresh(1, () -> Optional.of("uno"), scheduled::add)).isTrue();
+        assertThat(cache.refresh(1, () -> Optional.of("eins"), scheduled::add)).isFalse();
+        scheduled.forEach(Runnable::run);
+
+        assertThat(cache.lookup(1)).hasValueSatisfying(cached -> {
+            assertThat(cached.getValue()).isEqualTo("uno");
+            assertThat(cached.isStale()).isFalse();
+        });
+    }
+
+    @Test
+    void refreshRemovesVanishedEntriesAndKeepsThemOnFailure() {
+        LocalCache<Integer, String> cache = new LocalCache<>(10, Duration.ofMinutes(1), Duration.ofSeconds(1), now::get);
+        cache.put(1, "one");
+        cache.put(2, "two");
+
+        assertThat(cache.refresh(1, () -> {
+            throw new IllegalStateException("backing service unavailable");
+        }, Runnable::run)).isTrue();
+        assertThat(cache.get(1)).contains("one");
+
+        assertThat(cache.refresh(2, Optional::empty, Runnable::run)).isTrue();
+        assertThat(cache.get(2)).isEmpty();
+    }
+
+    @Test
+    void replaceAllSwapsTheWholeContent() {
+        LocalCache<Integer, String> cache = new LocalCache<>(10, Duration.ZERO, Duration.ZERO, now::get);
+        cache.put(1, "one");
+        cache.replaceAll(Map.of(2, "two", 3, "three"));
+
+        assertThat(cache.get(1)).isEmpty();
+        assertThat(cache.values()).containsExactlyInAnyOrder("two", "three");
+    }
+
+    @Test
+    void staysBoundedUnderConcurrentOverwrites() throws Exception {
+        LocalCache<Integer, String> cache = new LocalCache<>(16, Duration.ZERO);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<?>> writers = new ArrayList<>();
+            for (int thread = 0; thread < 8; thread++) {
+                writers.add(executor.submit(() -> {
+                    start.await();
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    for (int i = 0; i < 50_000; i++) {
+                        cache.put(random.nextInt(64), "value");
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> writer : writers) {
+                writer.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        // every live entry still has its queue slot, so one more insert evicts down to the bound
+        cache.put(100, "value");
+        assertThat(cache.size()).isLessThanOrEqualTo(16);
+    }
+
+    @Test
+    void keepsWritesThatRaceWithReplaceAll() {
+        AtomicBoolean replaceDuringWrite = new AtomicBoolean();
+        List<LocalCache<Integer, String>> holder = new ArrayList<>();
+        LocalCache<Integer, String> cache = new LocalCache<>(10, Duration.ZERO, Duration.ZERO, () -> {
+            // the ticker is read between capturing the generation and writing into it
+            if (replaceDuringWrite.compareAndSet(true, false)) {
+                holder.get(0).replaceAll(Map.of(2, "two"));
+            }
+            return now.get();
+        });
+        holder.add(cache);
+
+        replaceDuringWrite.set(true);
+        cache.put(1, "one");
+
+        assertThat(cache.get(1)).contains("one");
+        assertThat(cache.get(2)).contains("two");
+    }
+
+    @Test
+    void digestsEachWrittenValueOnce() {
+        AtomicLong digested = new AtomicLong();
+        LocalCache<Integer, String> cache = new LocalCache<>(10, Duration.ZERO, Duration.ZERO, now::get, value -> {
+            digested.incrementAndGet();
+            return value.getBytes();
+        });
+        String one = "one";
+        cache.put(1, one);
+        cache.digest(1, one);
+        cache.digest(1, one);
+
+        assertThat(cache.digest(1, one)).isEqualTo("one".getBytes());
+        assertThat(cache.digest(1, new String("one"))).isNull();
+        assertThat(cache.digest(2, one)).isNull();
+        assertThat(digested).hasValue(1);
+
+        cache.replaceAll(Map.of(1, "uno"));
+        assertThat(cache.digest(1, one)).isNull();
+        assertThat(digested).hasValue(2);
+    }
+
+    @Test
+    void refreshDoesNotResurrectInvalidatedEntries() {
+        LocalCache<Integer, String> cache = new LocalCache<>(10, Duration.ofMinutes(1), Duration.ofSeconds(1), now::get);
+        cache.put(1, "one");
+        cache.put(2, "two");
+        List<Runnable> scheduled = new ArrayList<>();
+        cache.refresh(1, () -> Optional.of("uno"), scheduled::add);
+        cache.refresh(2, () -> Optional.of("dos"), scheduled::add);
+
+        cache.invalidate(1);
+        cache.put(2, "deux");
+        scheduled.forEach(Runnable::run);
+
+        assertThat(cache.get(1)).isEmpty();
+        assertThat(cache.get(2)).contains("deux");
+    }
+}
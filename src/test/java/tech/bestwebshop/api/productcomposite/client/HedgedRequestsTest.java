@@ -0,0 +1,114 @@
+package tech.bestwebshop.api.productcomposite.client;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.client.HttpServerErrorException;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class HedgedRequestsTest {
+
+    private static final String URL = "http://product-service/products/1";
+
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        executor.shutdownNow();
+    }
+
+    @Test
+    void secondRequestWinsWhenTheFirstIsSlow() {
+        HedgedRequests hedgedRequests = new HedgedRequests(properties(1, 1), executor, meterRegistry);
+
+        assertThat(hedgedRequests.execute(URL, firstBlocksUntilReleased("slow", "fast"))).isEqualTo("fast");
+        assertThat(count("call")).isEqualTo(1);
+        assertThat(count("hedge")).isEqualTo(1);
+        assertThat(count("win")).isEqualTo(1);
+
+        // an error only surfaces once both requests have failed
+        AtomicInteger attempts = new AtomicInteger();
+        assertThatThrownBy(() -> hedgedRequests.execute(URL, () -> {
+            attempts.incrementAndGet();
+            sleep(50);
+            throw new HttpServerErrorException(HttpStatus.BAD_GATEWAY);
+        })).isInstanceOf(HttpServerErrorException.class);
+        assertThat(attempts).hasValue(2);
+    }
+
+    @Test
+    void budgetLimitsHedges() {
+        HedgedRequests hedgedRequests = new HedgedRequests(properties(0.5, 1), executor, meterRegistry);
+
+        AtomicInteger attempts = new AtomicInteger();
+        assertThat(hedgedRequests.execute(URL, () -> {
+            attempts.incrementAndGet();
+            sleep(50);
+            return "slow";
+        })).isEqualTo("slow");
+        assertThat(attempts).hasValue(1);
+        assertThat(count("denied")).isEqualTo(1);
+
+        assertThat(hedgedRequests.execute(URL, firstBlocksUntilReleased("slow", "fast"))).isEqualTo("fast");
+        assertThat(count("hedge")).isEqualTo(1);
+        assertThat(hedgedRequests.execute("http://other-service/", () -> "direct")).isEqualTo("direct");
+        assertThat(count("call")).isEqualTo(2);
+    }
+
+    private Supplier<String> firstBlocksUntilReleased(String first, String second) {
+        AtomicInteger invocations = new AtomicInteger();
+        return () -> {
+            if (invocations.incrementAndGet() == 1) {
+                await(release);
+                return first;
+            }
+            return second;
+        };
+    }
+
+    private double count(String event) {
+        return meterRegistry.counter(HedgedRequests.METRIC, "service", "product-service", "event", event).count();
+    }
+
+    private static ClientProperties properties(double budget, int burst) {
+        ClientProperties properties = new ClientProperties();
+        ClientProperties.Hedging hedging = properties.getHedging();
+        hedging.setEnabled(true);
+        hedging.setMinDelay(Duration.ofMillis(10));
+        hedging.setMaxDelay(Duration.ofMillis(10));
+        hedging.setBudget(budget);
+        hedging.setBurst(burst);
+        return properties;
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package tech.bestwebshop.api.productcomposite.client;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SingleFlightTest {
+
+    private final SingleFlight singleFlight = new SingleFlight(new ClientProperties());
+
+    @Test
+    void concurrentCallersShareOneCall() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger invocations = new AtomicInteger();
+        CompletableFuture<String> leader = CompletableFuture.supplyAsync(() -> singleFlight.execute("key", () -> {
+            invocations.incrementAndGet();
+            await(release);
+            return "value";
+        }));
+        while (singleFlight.callCount() == 0) {
+            Thread.onSpinWait();
+        }
+        CompletableFuture<String> follower = CompletableFuture.supplyAsync(() ->
+                singleFlight.execute("key", () -> "other"));
+        while (singleFlight.sharedCount() == 0) {
+            Thread.onSpinWait();
+        }
+        release.countDown();
+
+        assertThat(leader.get()).isEqualTo("value");
+        assertThat(follower.get()).isEqualTo("value");
+        assertThat(invocations).hasValue(1);
+    }
+
+    @Test
+    void finishedCallsAreNotRemembered() {
+        assertThat(singleFlight.<String>execute("key", () -> "first")).isEqualTo("first");
+        assertThat(singleFlight.<String>execute("key", () -> "second")).isEqualTo("second");
+        assertThatThrownBy(() -> singleFlight.execute("key", () -> {
+            throw new IllegalStateException("boom");
+        })).isInstanceOf(IllegalStateException.class);
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
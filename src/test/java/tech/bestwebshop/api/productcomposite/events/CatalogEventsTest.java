@@ -0,0 +1,69 @@
+package tech.bestwebshop.api.productcomposite.events;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import tech.bestwebshop.api.productcomposite.cache.CacheProperties;
+import tech.bestwebshop.api.productcomposite.cache.InventoryCache;
+import tech.bestwebshop.api.productcomposite.index.CategoryNameIndex;
+import tech.bestwebshop.api.productcomposite.index.IndexProperties;
+import tech.bestwebshop.api.productcomposite.index.ProductIndex;
+import tech.bestwebshop.api.productcomposite.model.Category;
+import tech.bestwebshop.api.productcomposite.model.Product;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CatalogEventsTest {
+
+    private final InvalidationChannel channel = new InMemoryInvalidationChannel();
+    private final Replica writer = new Replica();
+    private final Replica reader = new Replica();
+
+    @Test
+    void appliesWritesOfOtherReplicas() {
+        Category phones = new Category(1, "Phones");
+        writer.events.categoryChanged(phones);
+        writer.events.productChanged(new Product(10, "Phone", 99.0, phones, "A phone"));
+
+        assertThat(reader.cache.categories().get(1)).contains(phones);
+        assertThat(reader.categoryNames.find("Phones")).contains(phones);
+        assertThat(reader.productIndex.search("Phone", 0, 100)).extracting(Product::getId).containsExactly(10);
+
+        Category renamed = new Category(1, "Smartphones");
+        writer.events.categoryChanged(renamed);
+        assertThat(reader.cache.products().get(10)).map(Product::getCategory).contains(renamed);
+        assertThat(reader.categoryNames.find("Phones")).isEmpty();
+
+        writer.events.productDeleted(10);
+        writer.events.categoryDeleted(1);
+        assertThat(reader.cache.products().get(10)).isEmpty();
+        assertThat(reader.productIndex.size()).isZero();
+        assertThat(reader.cache.categories().get(1)).isEmpty();
+        assertThat(reader.categoryNames.find("Smartphones")).isEmpty();
+    }
+
+    @Test
+    void appliesWritesLocallyWithoutAChannel() {
+        InventoryCache cache = new InventoryCache(new CacheProperties());
+        ProductIndex productIndex = new ProductIndex(new IndexProperties());
+        CatalogEvents events = new CatalogEvents(null, new EventProperties(), cache, productIndex,
+                new CategoryNameIndex(new IndexProperties()), new SimpleMeterRegistry());
+        events.subscribe();
+
+        Product phone = new Product(10, "Phone", 99.0, new Category(1, "Phones"), "A phone");
+        events.productChanged(phone);
+        assertThat(cache.products().get(10)).contains(phone);
+        assertThat(productIndex.ids()).containsExactly(10);
+    }
+
+    private class Replica {
+        private final InventoryCache cache = new InventoryCache(new CacheProperties());
+        private final ProductIndex productIndex = new ProductIndex(new IndexProperties());
+        private final CategoryNameIndex categoryNames = new CategoryNameIndex(new IndexProperties());
+        private final CatalogEvents events = new CatalogEvents(channel, new EventProperties(), cache, productIndex,
+                categoryNames, new SimpleMeterRegistry());
+
+        private Replica() {
+            events.subscribe();
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package tech.bestwebshop.api.productcomposite.index;
+
+import org.junit.jupiter.api.Test;
+import tech.bestwebshop.api.productcomposite.model.Category;
+
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CategoryNameIndexTest {
+
+    private final AtomicLong now = new AtomicLong();
+    private final CategoryNameIndex index = new CategoryNameIndex(new IndexProperties(), now::get);
+
+    @Test
+    void followsRenamesAndDeletes() {
+        index.replaceAll(List.of(new Category(1, "Phones"), new Category(2, "Readers")));
+        index.put(new Category(1, "Smartphones"));
+        index.remove(2);
+
+        assertThat(index.find("Phones")).isEmpty();
+        assertThat(index.find("Smartphones")).contains(new Category(1, "Smartphones"));
+        assertThat(index.find("Readers")).isEmpty();
+        assertThat(index.isServable()).isTrue();
+    }
+
+    @Test
+    void createsEachMissingNameOnce() throws Exception {
+        AtomicInteger creates = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<Category>> results = new CopyOnWriteArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                results.add(executor.submit(() -> index.getOrCreate("Phones", name -> {
+                    creates.incrementAndGet();
+                    await(release);
+                    return new Category(7, name);
+                })));
+            }
+            Thread.sleep(50);
+            release.countDown();
+
+            for (Future<Category> result : results) {
+                assertThat(result.get(1, TimeUnit.SECONDS)).isEqualTo(new Category(7, "Phones"));
+            }
+            assertThat(creates.get()).isEqualTo(1);
+            assertThat(index.find("Phones")).contains(new Category(7, "Phones"));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
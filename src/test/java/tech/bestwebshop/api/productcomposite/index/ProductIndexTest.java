@@ -0,0 +1,68 @@
+package tech.bestwebshop.api.productcomposite.index;
+
+import org.junit.jupiter.api.Test;
+import tech.bestwebshop.api.productcomposite.model.Category;
+import tech.bestwebshop.api.productcomposite.model.Product;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ProductIndexTest {
+
+    private static final Category PHONES = new Category(1, "Phones");
+
+    private final AtomicLong now = new AtomicLong();
+    private final ProductIndex index = new ProductIndex(new IndexProperties(), now::get);
+
+    @Test
+    void matchesSubstringsOfNameAndDetailsWithinPriceRange() {
+        index.replaceAll(List.of(
+                new Product(1, "iPhone", 999.0, PHONES, "Smartphone"),
+                new Product(2, "Pixel", 599.0, PHONES, "Android phone"),
+                new Product(3, "Nokia", 49.0, PHONES, "Feature phone")));
+
+        assertThat(index.search("e phone", -1e10, 1e10)).extracting(Product::getId).containsExactlyInAnyOrder(3);
+        assertThat(index.search("hone", 500, 1000)).extracting(Product::getId).containsExactlyInAnyOrder(1, 2);
+        assertThat(index.search("", 0, 100)).extracting(Product::getId).containsExactly(3);
+        assertThat(index.search("Ph", -1e10, 1e10)).extracting(Product::getId).containsExactly(1);
+    }
+
+    @Test
+    void findsNothingForInvertedOrNaNPriceBounds() {
+        index.replaceAll(List.of(new Product(1, "iPhone", 999.0, PHONES, "Smartphone")));
+
+        assertThat(index.search("", 1000, 500)).isEmpty();
+        assertThat(index.search("", Double.NaN, 1e10)).isEmpty();
+        assertThat(index.search("Phone", -1e10, Double.NaN)).isEmpty();
+    }
+
+    @Test
+    void appliesIncrementalUpdates() {
+        index.replaceAll(List.of(new Product(1, "iPhone", 999.0, PHONES, "Smartphone")));
+        index.put(new Product(1, "Galaxy", 899.0, PHONES, "Smartphone"));
+        index.put(new Product(2, "Pixel", 599.0, PHONES, "Android"));
+        index.put(new Product(3, "Kindle", 99.0, new Category(2, "Readers"), "E-Reader"));
+        index.remove(2);
+
+        assertThat(index.productIdsInCategory(1)).containsExactly(1);
+        assertThat(index.productIdsInCategory(2)).containsExactly(3);
+        assertThat(index.search("iPhone", -1e10, 1e10)).isEmpty();
+        assertThat(index.search("Galaxy", 800, 900)).extracting(Product::getId).containsExactly(1);
+        assertThat(index.search("Pixel", -1e10, 1e10)).isEmpty();
+        assertThat(index.size()).isEqualTo(2);
+    }
+
+    @Test
+    void isOnlyServableWhileRecentlyLoaded() {
+        assertThat(index.isServable()).isFalse();
+        index.replaceAll(List.of());
+        assertThat(index.isServable()).isTrue();
+
+        now.addAndGet(Duration.ofMinutes(1).toNanos());
+        assertThat(index.isServable()).isFalse();
+        assertThat(index.isComplete()).isTrue();
+    }
+}
@@ -0,0 +1,79 @@
+package tech.bestwebshop.api.productcomposite.limit;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AdaptiveLimiterTest {
+
+    private final AtomicLong now = new AtomicLong();
+
+    @Test
+    void rejectsBeyondTheLimitAndBacksOffOnDrops() {
+        LimitProperties.Spec spec = spec(LimitProperties.Algorithm.AIMD, 4);
+        AdaptiveLimiter limiter = new AdaptiveLimiter(LimitAlgorithm.of(spec), spec, now::get);
+
+        List<AdaptiveLimiter.Token> tokens = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            tokens.add(limiter.tryAcquire().orElseThrow());
+        }
+        assertThat(limiter.tryAcquire()).isEmpty();
+        assertThat(limiter.getRejected()).isEqualTo(1);
+
+        // completing twice must not free two slots; only a request admitted near the limit grows it
+        tokens.get(3).onSuccess();
+        tokens.get(3).onSuccess();
+        assertThat(limiter.getInflight()).isEqualTo(3);
+        assertThat(limiter.getLimit()).isEqualTo(5);
+        tokens.get(0).onSuccess();
+        assertThat(limiter.getLimit()).isEqualTo(5);
+
+        tokens.get(1).onDropped();
+        assertThat(limiter.getLimit()).isEqualTo(4);
+
+        now.addAndGet(Duration.ofSeconds(10).toNanos());
+        tokens.get(2).onSuccess();
+        assertThat(limiter.getLimit()).isEqualTo(3);
+    }
+
+    @Test
+    void gradientShrinksWhenLatencyRisesAndGrowsWhenItIsStable() {
+        LimitProperties.Spec spec = spec(LimitProperties.Algorithm.GRADIENT, 20);
+        AdaptiveLimiter limiter = new AdaptiveLimiter(LimitAlgorithm.of(spec), spec, now::get);
+
+        runSaturated(limiter, 200, Duration.ofMillis(10));
+        int stable = limiter.getLimit();
+        assertThat(stable).isGreaterThan(20);
+
+        runSaturated(limiter, 20, Duration.ofMillis(100));
+        assertThat(limiter.getLimit()).isLessThan(stable / 2);
+    }
+
+    private void runSaturated(AdaptiveLimiter limiter, int rounds, Duration latency) {
+        for (int round = 0; round < rounds; round++) {
+            List<AdaptiveLimiter.Token> tokens = new ArrayList<>();
+            limiter.tryAcquire().ifPresent(tokens::add);
+            while (tokens.size() < limiter.getLimit()) {
+                tokens.add(limiter.tryAcquire().orElseThrow());
+            }
+            now.addAndGet(latency.toNanos());
+            tokens.forEach(AdaptiveLimiter.Token::onSuccess);
+        }
+    }
+
+    private static LimitProperties.Spec spec(LimitProperties.Algorithm algorithm, int initialLimit) {
+        LimitProperties.Spec spec = new LimitProperties.Spec();
+        spec.setAlgorithm(algorithm);
+        spec.setInitialLimit(initialLimit);
+        spec.setMinLimit(1);
+        spec.setMaxLimit(1000);
+        spec.setBackoffRatio(0.8);
+        spec.setTimeout(Duration.ofSeconds(5));
+        return spec;
+    }
+}
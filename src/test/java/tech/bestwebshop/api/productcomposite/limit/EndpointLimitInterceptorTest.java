@@ -0,0 +1,46 @@
+package tech.bestwebshop.api.productcomposite.limit;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.method.HandlerMethod;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class EndpointLimitInterceptorTest {
+
+    @Test
+    void limitsEqualNamedHandlersOfDifferentControllersSeparately() throws Exception {
+        LimitProperties properties = new LimitProperties();
+        properties.setEnabled(true);
+        properties.getEndpoints().setAlgorithm(LimitProperties.Algorithm.AIMD);
+        properties.getEndpoints().setInitialLimit(1);
+        properties.getEndpoints().setMinLimit(1);
+        ConcurrencyLimits limits = new ConcurrencyLimits(properties, new SimpleMeterRegistry());
+        EndpointLimitInterceptor interceptor = new EndpointLimitInterceptor(limits);
+        HandlerMethod first = new HandlerMethod(new FirstController(), "getProduct");
+        HandlerMethod second = new HandlerMethod(new SecondController(), "getProduct");
+
+        assertThat(interceptor.preHandle(new MockHttpServletRequest(), new MockHttpServletResponse(), first)).isTrue();
+        assertThat(interceptor.preHandle(new MockHttpServletRequest(), new MockHttpServletResponse(), second)).isTrue();
+
+        MockHttpServletResponse shed = new MockHttpServletResponse();
+        assertThat(interceptor.preHandle(new MockHttpServletRequest(), shed, first)).isFalse();
+        assertThat(shed.getStatus()).isEqualTo(HttpStatus.SERVICE_UNAVAILABLE.value());
+        assertThat(limits.endpoint("FirstController#getProduct").getInflight()).isEqualTo(1);
+    }
+
+    static class FirstController {
+        public String getProduct() {
+            return "first";
+        }
+    }
+
+    static class SecondController {
+        public String getProduct() {
+            return "second";
+        }
+    }
+}
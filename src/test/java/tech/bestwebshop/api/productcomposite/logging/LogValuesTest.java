@@ -0,0 +1,19 @@
+package tech.bestwebshop.api.productcomposite.logging;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LogValuesTest {
+
+    @Test
+    void quotesAndEscapesCallerSuppliedValues() {
+        assertThat(LogValues.quote("phone")).isEqualTo("\"phone\"");
+        assertThat(LogValues.quote("x\nINFO: [InventoryService#deleteProduct] Deleted \"all\"\r"))
+                .isEqualTo("\"x\\nINFO: [InventoryService#deleteProduct] Deleted \\\"all\\\"\\r\"");
+        assertThat(LogValues.quote("a\u0000b")).isEqualTo("\"a\\u0000b\"");
+        assertThat(LogValues.quote(null)).isEqualTo("null");
+        assertThat(LogValues.quote("x".repeat(LogValues.MAX_LENGTH + 1)))
+                .isEqualTo("\"" + "x".repeat(LogValues.MAX_LENGTH) + "\"...");
+    }
+}
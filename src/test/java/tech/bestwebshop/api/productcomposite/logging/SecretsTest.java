@@ -0,0 +1,24 @@
+package tech.bestwebshop.api.productcomposite.logging;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SecretsTest {
+
+    @Test
+    void masksTokensAndSecrets() {
+        assertThat(Secrets.scrub("Authorization: Bearer abc.def-ghi")).isEqualTo("Authorization: Bearer ****");
+        assertThat(Secrets.scrub("Token is: eyJhbGciOiJSUzI1NiJ9.eyJzdWIiOiJ4In0.c2ln"))
+                .isEqualTo("Token is: ****");
+        assertThat(Secrets.scrub("client-secret=supersecretpassword&scope=all"))
+                .isEqualTo("client-secret=****&scope=all");
+        assertThat(Secrets.scrub("{\"password\": \"hunter2\"}")).isEqualTo("{\"password\": \"****\"}");
+    }
+
+    @Test
+    void leavesOrdinaryMessagesAlone() {
+        String message = "[InventoryService#getProducts] Return 42 products.";
+        assertThat(Secrets.scrub(message)).isSameAs(message);
+    }
+}
@@ -0,0 +1,97 @@
+package tech.bestwebshop.api.productcomposite.refresh;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.client.RestTemplate;
+import tech.bestwebshop.api.productcomposite.cache.CacheProperties;
+import tech.bestwebshop.api.productcomposite.cache.InventoryCache;
+import tech.bestwebshop.api.productcomposite.index.CategoryNameIndex;
+import tech.bestwebshop.api.productcomposite.index.IndexProperties;
+import tech.bestwebshop.api.productcomposite.index.ProductIndex;
+import tech.bestwebshop.api.productcomposite.model.Category;
+import tech.bestwebshop.api.productcomposite.model.CoreProduct;
+import tech.bestwebshop.api.productcomposite.model.Product;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+class CatalogRefresherTest {
+
+    private final RestTemplate restTemplate = mock(RestTemplate.class);
+    private final ServiceToken serviceToken = mock(ServiceToken.class);
+    private final InventoryCache cache = new InventoryCache(new CacheProperties());
+    private final ProductIndex productIndex = new ProductIndex(new IndexProperties());
+    private final CategoryNameIndex categoryNames = new CategoryNameIndex(new IndexProperties());
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final CatalogRefresher refresher = new CatalogRefresher(restTemplate, serviceToken, cache, productIndex,
+            categoryNames, new RefreshProperties(), new IndexProperties(), meterRegistry);
+
+    @Test
+    void appliesOnlyTheDifferences() {
+        Category phones = new Category(1, "Phones");
+        when(serviceToken.httpEntity()).thenAnswer(invocation -> HttpEntity.EMPTY);
+        answer(new Category[]{phones}, new CoreProduct[]{
+                new CoreProduct(10, "Phone", 99.0, 1, "A phone"),
+                new CoreProduct(11, "Old phone", 19.0, 1, "Discontinued")});
+        refresher.refresh();
+        assertThat(productIndex.isServable()).isTrue();
+        assertThat(categoryNames.find("Phones")).contains(phones);
+
+        answer(new Category[]{phones}, new CoreProduct[]{new CoreProduct(10, "Phone", 89.0, 1, "A phone")});
+        refresher.refresh();
+
+        assertThat(cache.products().get(10)).map(Product::getPrice).contains(89.0);
+        assertThat(productIndex.search("Phone", 80, 90)).extracting(Product::getId).containsExactly(10);
+        assertThat(cache.products().get(11)).isEmpty();
+        assertThat(productIndex.ids()).containsExactly(10);
+        assertThat(changes("upserted")).isEqualTo(3);
+        assertThat(changes("removed")).isEqualTo(1);
+    }
+
+    @Test
+    void leavesProductsOfUnknownCategoriesOut() {
+        Category phones = new Category(1, "Phones");
+        when(serviceToken.httpEntity()).thenAnswer(invocation -> HttpEntity.EMPTY);
+        answer(new Category[]{phones}, new CoreProduct[]{
+                new CoreProduct(10, "Phone", 99.0, 1, "A phone"),
+                new CoreProduct(11, "Tablet", 199.0, 2, "Category created after the list was read")});
+        refresher.refresh();
+
+        assertThat(cache.products().get(10)).isPresent();
+        assertThat(cache.products().get(11)).isEmpty();
+        assertThat(productIndex.ids()).containsExactly(10);
+        assertThat(productIndex.isServable()).isFalse();
+    }
+
+    @Test
+    void staysOffWithoutAServiceClient() {
+        RefreshProperties properties = new RefreshProperties();
+        properties.setEnabled(true);
+        CatalogRefresher unconfigured = new CatalogRefresher(restTemplate, serviceToken, cache, productIndex,
+                categoryNames, properties, new IndexProperties(), meterRegistry);
+
+        unconfigured.start();
+        unconfigured.stop();
+
+        verifyNoInteractions(restTemplate);
+        assertThat(meterRegistry.find("inventory.refresh.lag").meter()).isNull();
+    }
+
+    private double changes(String change) {
+        return meterRegistry.counter("inventory.refresh.changes", "entity", "product", "change", change).count();
+    }
+
+    private void answer(Category[] categories, CoreProduct[] coreProducts) {
+        when(restTemplate.exchange(eq("http://category-service/categories"), eq(HttpMethod.GET), any(HttpEntity.class),
+                eq(Category[].class))).thenReturn(ResponseEntity.ok(categories));
+        when(restTemplate.exchange(eq("http://product-service/products"), eq(HttpMethod.GET), any(HttpEntity.class),
+                eq(CoreProduct[].class))).thenReturn(ResponseEntity.ok(coreProducts));
+    }
+}
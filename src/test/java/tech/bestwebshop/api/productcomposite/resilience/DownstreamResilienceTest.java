@@ -0,0 +1,112 @@
+package tech.bestwebshop.api.productcomposite.resilience;
+
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpServerErrorException;
+
+import java.io.IOException;
+import java.net.URI;
+import java.time.Duration;
+import java.util.EnumSet;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class DownstreamResilienceTest {
+
+    private static final URI PRODUCT = URI.create("http://product-service/products/1");
+
+    @Test
+    void retriesOnlyTransientFailuresOfIdempotentCalls() {
+        DownstreamResilience resilience = new DownstreamResilience(properties(), new SimpleMeterRegistry());
+        AtomicInteger attempts = new AtomicInteger();
+
+        String body = resilience.execute(PRODUCT, HttpMethod.GET, () -> {
+            if (attempts.incrementAndGet() < 3) {
+                throw new HttpServerErrorException(HttpStatus.BAD_GATEWAY);
+            }
+            return "ok";
+        });
+        assertThat(body).isEqualTo("ok");
+        assertThat(attempts).hasValue(3);
+
+        attempts.set(0);
+        assertThatThrownBy(() -> resilience.execute(PRODUCT, HttpMethod.PUT, () -> {
+            attempts.incrementAndGet();
+            throw new HttpServerErrorException(HttpStatus.BAD_GATEWAY);
+        })).isInstanceOf(HttpServerErrorException.class);
+        assertThat(attempts).hasValue(1);
+
+        attempts.set(0);
+        assertThatThrownBy(() -> resilience.execute(PRODUCT, HttpMethod.GET, () -> {
+            attempts.incrementAndGet();
+            throw new HttpClientErrorException(HttpStatus.NOT_FOUND);
+        })).isInstanceOf(HttpClientErrorException.class);
+        assertThat(attempts).hasValue(1);
+    }
+
+    @Test
+    void opensTheCircuitOfOneServiceOnly() {
+        ResilienceProperties properties = properties();
+        properties.getDefaults().getCircuitBreaker().setSlidingWindowSize(4);
+        properties.getDefaults().getCircuitBreaker().setMinimumNumberOfCalls(4);
+        DownstreamResilience resilience = new DownstreamResilience(properties, new SimpleMeterRegistry());
+        for (int i = 0; i < 4; i++) {
+            assertThatThrownBy(() -> resilience.execute(PRODUCT, HttpMethod.POST, () -> {
+                throw new HttpServerErrorException(HttpStatus.SERVICE_UNAVAILABLE);
+            })).isInstanceOf(HttpServerErrorException.class);
+        }
+
+        AtomicInteger attempts = new AtomicInteger();
+        assertThatThrownBy(() -> resilience.execute(PRODUCT, HttpMethod.GET, attempts::incrementAndGet))
+                .isInstanceOf(CallNotPermittedException.class);
+        assertThat(attempts).hasValue(0);
+        assertThat(resilience.execute(URI.create("http://category-service/categories/1"), HttpMethod.GET,
+                attempts::incrementAndGet)).isEqualTo(1);
+    }
+
+    @Test
+    void neverRetriesStreamedCallsNorCountsTheirConsumerFailures() {
+        ResilienceProperties properties = properties();
+        properties.getDefaults().getCircuitBreaker().setSlidingWindowSize(2);
+        properties.getDefaults().getCircuitBreaker().setMinimumNumberOfCalls(2);
+        DownstreamResilience resilience = new DownstreamResilience(properties, new SimpleMeterRegistry());
+        AtomicInteger attempts = new AtomicInteger();
+        for (int i = 0; i < 3; i++) {
+            assertThatThrownBy(() -> resilience.executeOnce(PRODUCT, () -> {
+                attempts.incrementAndGet();
+                throw new StreamConsumerException(new IOException("Broken pipe"));
+            })).isInstanceOf(StreamConsumerException.class);
+        }
+        assertThat(attempts).hasValue(3);
+        assertThat(resilience.execute(PRODUCT, HttpMethod.GET, attempts::incrementAndGet)).isEqualTo(4);
+
+        attempts.set(0);
+        assertThatThrownBy(() -> resilience.executeOnce(PRODUCT, () -> {
+            attempts.incrementAndGet();
+            throw new HttpServerErrorException(HttpStatus.BAD_GATEWAY);
+        })).isInstanceOf(HttpServerErrorException.class);
+        assertThat(attempts).hasValue(1);
+    }
+
+    @Test
+    void longestGetCoversEveryAttemptAndBackoff() {
+        ResilienceProperties.Policy policy = new ResilienceProperties().getDefaults();
+        // 3 attempts of 2 s, backoffs of 50 ms and 100 ms with 50 % jitter
+        assertThat(policy.longestGet()).isEqualTo(Duration.ofMillis(6225));
+
+        policy.getRetry().setMethods(EnumSet.noneOf(HttpMethod.class));
+        assertThat(policy.longestGet()).isEqualTo(Duration.ofSeconds(2));
+    }
+
+    private static ResilienceProperties properties() {
+        ResilienceProperties properties = new ResilienceProperties();
+        properties.getDefaults().getRetry().setInitialBackoff(Duration.ofMillis(10));
+        return properties;
+    }
+}
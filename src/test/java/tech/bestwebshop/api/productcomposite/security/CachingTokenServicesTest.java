@@ -0,0 +1,133 @@
+package tech.bestwebshop.api.productcomposite.security;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.boot.autoconfigure.security.oauth2.resource.ResourceServerProperties;
+import org.springframework.security.jwt.JwtHelper;
+import org.springframework.security.jwt.crypto.sign.RsaSigner;
+import org.springframework.security.oauth2.common.exceptions.InvalidTokenException;
+import org.springframework.security.oauth2.provider.OAuth2Authentication;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.NoSuchAlgorithmException;
+import java.security.interfaces.RSAPrivateKey;
+import java.security.interfaces.RSAPublicKey;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CachingTokenServicesTest {
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    private final KeyPair current = generateKeyPair();
+    private final KeyPair next = generateKeyPair();
+    private final TokenProperties properties = new TokenProperties();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @TempDir
+    Path keySetDir;
+
+    @Test
+    void verifiesEachTokenOnce() throws IOException {
+        CachingTokenServices tokenServices = tokenServices(Map.of("current", current));
+        String token = token("current", current, Duration.ofHours(1));
+
+        OAuth2Authentication first = tokenServices.loadAuthentication(token);
+        OAuth2Authentication second = tokenServices.loadAuthentication(token);
+        assertThat(first.getName()).isEqualTo("alice");
+        assertThat(first.getAuthorities()).extracting(Object::toString).containsExactly("ROLE_ADMIN");
+        assertThat(second).isNotSameAs(first).isEqualTo(first);
+        assertThat(requests("hit")).isEqualTo(1);
+        assertThat(requests("miss")).isEqualTo(1);
+
+        assertThatThrownBy(() -> tokenServices.loadAuthentication(token("current", current, Duration.ofHours(-1))))
+                .isInstanceOf(InvalidTokenException.class);
+        assertThatThrownBy(() -> tokenServices.loadAuthentication(token("current", next, Duration.ofHours(1))))
+                .isInstanceOf(InvalidTokenException.class);
+        assertThatThrownBy(() -> tokenServices.loadAuthentication(token.substring(0, token.length() - 4) + "AAAA"))
+                .isInstanceOf(InvalidTokenException.class);
+    }
+
+    @Test
+    void picksUpRotatedKeys() throws IOException {
+        properties.getKeySet().setMinimumRefreshInterval(Duration.ZERO);
+        CachingTokenServices tokenServices = tokenServices(Map.of("current", current));
+        String token = token("next", next, Duration.ofHours(1));
+        assertThatThrownBy(() -> tokenServices.loadAuthentication(token)).isInstanceOf(InvalidTokenException.class);
+
+        writeKeySet(Map.of("current", current, "next", next));
+        assertThat(tokenServices.loadAuthentication(token).getName()).isEqualTo("alice");
+    }
+
+    private CachingTokenServices tokenServices(Map<String, KeyPair> keys) throws IOException {
+        ResourceServerProperties resourceServer = new ResourceServerProperties();
+        resourceServer.getJwk().setKeySetUri(writeKeySet(keys).toUri().toString());
+        CachingTokenServices tokenServices = new CachingTokenServices(
+                new JwkKeySet(resourceServer, properties, meterRegistry), properties);
+        tokenServices.bindTo(meterRegistry);
+        return tokenServices;
+    }
+
+    private double requests(String result) {
+        return meterRegistry.get("inventory.cache.requests").tags("cache", "tokenCache", "result", result)
+                .functionCounter().count();
+    }
+
+    private Path writeKeySet(Map<String, KeyPair> keys) throws IOException {
+        List<Map<String, String>> jwks = keys.entrySet().stream()
+                .map(key -> jwk(key.getKey(), (RSAPublicKey) key.getValue().getPublic()))
+                .collect(Collectors.toList());
+        Path keySet = keySetDir.resolve("jwks.json");
+        Files.write(keySet, OBJECT_MAPPER.writeValueAsBytes(Map.of("keys", jwks)));
+        return keySet;
+    }
+
+    private static String token(String keyId, KeyPair keyPair, Duration validity) throws IOException {
+        Map<String, Object> claims = Map.of(
+                "user_name", "alice",
+                "client_id", "webshop-webclient",
+                "scope", List.of("all.read"),
+                "authorities", List.of("ROLE_ADMIN"),
+                "exp", Instant.now().plus(validity).getEpochSecond());
+        return JwtHelper.encode(OBJECT_MAPPER.writeValueAsString(claims),
+                new RsaSigner((RSAPrivateKey) keyPair.getPrivate()), Map.of("kid", keyId)).getEncoded();
+    }
+
+    private static Map<String, String> jwk(String keyId, RSAPublicKey publicKey) {
+        return Map.of("kty", "RSA", "kid", keyId, "alg", "RS256", "use", "sig",
+                "n", base64Url(publicKey.getModulus()), "e", base64Url(publicKey.getPublicExponent()));
+    }
+
+    private static String base64Url(BigInteger value) {
+        byte[] bytes = value.toByteArray();
+        if (bytes.length > 1 && bytes[0] == 0) {
+            bytes = Arrays.copyOfRange(bytes, 1, bytes.length);
+        }
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+    }
+
+    private static KeyPair generateKeyPair() {
+        try {
+            KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+            generator.initialize(2048);
+            return generator.generateKeyPair();
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+}